@@ -2,8 +2,10 @@ package jp.co.axa.apidemo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ApiDemoApplication {
 
 	public static void main(String[] args) {
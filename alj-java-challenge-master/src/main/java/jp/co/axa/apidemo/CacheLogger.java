@@ -1,19 +1,35 @@
 package jp.co.axa.apidemo;
 
+import jp.co.axa.apidemo.cache.CacheEventAggregator;
 import org.ehcache.event.CacheEvent;
 import org.ehcache.event.CacheEventListener;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
- *  Cache Logger class to monitor what's occurrrng on cache level for debug.
+ *  Cache Logger class to monitor what's occurrrng on cache level.
+ *  Events are counted by CacheEventAggregator, and a sample of them is logged on DEBUG level (key and value type only).
+ *  A listener is registered on each cache with the cache name (CacheConfig), so events don't need their source.
  */
 @Slf4j
 public class CacheLogger implements CacheEventListener<Object, Object> {
 
+	private final CacheEventAggregator aggregator = CacheEventAggregator.getInstance();
+
+	private final String cacheName;
+
+	public CacheLogger(String cacheName) {
+	  this.cacheName = cacheName;
+	}
+
 	@Override
 	public void onEvent(CacheEvent<?, ?> cacheEvent) {
-	  log.info("Key: {} | EventType: {} | Old value: {} | New value: {}",
-			   cacheEvent.getKey(), cacheEvent.getType(), cacheEvent.getOldValue(), 
-			   cacheEvent.getNewValue());
+	  aggregator.record(cacheName, cacheEvent.getType(), cacheEvent.getNewValue());
+	  if (log.isDebugEnabled() && ThreadLocalRandom.current().nextInt(aggregator.getDebugLogSampleRate()) == 0) {
+		Object value = cacheEvent.getNewValue() != null ? cacheEvent.getNewValue() : cacheEvent.getOldValue();
+		log.debug("Cache: {} | Key: {} | EventType: {} | Value type: {}",
+				  cacheName, cacheEvent.getKey(), cacheEvent.getType(), value == null ? null : value.getClass().getSimpleName());
+	  }
 	}
 }
@@ -0,0 +1,131 @@
+package jp.co.axa.apidemo.bulkhead;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Bounded executor of one class of requests (e.g. login). Each class has its own threads and queue,
+ *  so a burst of one class fills only its own queue and is rejected there, while the other classes keep running.
+ *  A slot (thread or queue) is reserved by tryAcquire before the task is handed over, so callers can reject
+ *  a request at once, before starting async processing of it.
+ */
+@Slf4j
+public class Bulkhead {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore slots;
+    private final long maxWaitNanos;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * @param name name of the request class (used in thread names)
+     * @param threads max number of requests of the class processed at the same time
+     * @param queueSize max number of requests waiting for a thread
+     * @param maxWaitMillis max time a request waits on the queue
+     */
+    public Bulkhead(String name, int threads, int queueSize, long maxWaitMillis) {
+        this.name = name;
+        this.slots = new Semaphore(threads + queueSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        AtomicInteger counter = new AtomicInteger();
+        // Queue is bounded by the slots
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "bulkhead-" + name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Reserve a slot for a task. The slot must be passed to execute
+     * @return false if all threads are busy and the queue is full
+     */
+    public boolean tryAcquire() {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        rejected.increment();
+        log.debug("Bulkhead " + name + " is full : " + executor.getActiveCount() + " active, "
+                  + executor.getQueue().size() + " queued");
+        return false;
+    }
+
+    /**
+     * Run the task on a thread of this bulkhead with the slot reserved by tryAcquire.
+     * The slot is released when the task is done
+     * @param task
+     */
+    public void execute(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @param task
+     * @return false if the task is rejected (see tryAcquire)
+     */
+    public boolean tryExecute(Runnable task) {
+        if (!tryAcquire()) {
+            return false;
+        }
+        execute(task);
+        return true;
+    }
+
+    /**
+     * @param queuedAt System.nanoTime() when the task was handed over
+     * @return true if the task waited on the queue longer than the max wait (the client has likely given up)
+     */
+    public boolean isExpired(long queuedAt) {
+        if (System.nanoTime() - queuedAt > maxWaitNanos) {
+            expired.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of tasks rejected because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return number of tasks not run because they waited longer than the max wait
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Stop accepting tasks (queued and running tasks are completed)
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
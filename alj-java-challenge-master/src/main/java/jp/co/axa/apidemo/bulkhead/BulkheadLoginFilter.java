@@ -0,0 +1,97 @@
+package jp.co.axa.apidemo.bulkhead;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.GenericFilterBean;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ *  Filter that runs login (password check and token issue of the login filter) on the login bulkhead.
+ *  The login filter writes the response by its success/failure handler and doesn't continue the filter chain,
+ *  so it can run on another thread after the request is put in async mode.
+ *  If the login bulkhead is full, 503 is returned on the request thread.
+ */
+@Slf4j
+public class BulkheadLoginFilter extends GenericFilterBean {
+
+    // Login filter never continues the chain on login requests
+    private static final FilterChain NO_CHAIN = (request, response) -> {
+        throw new ServletException("Login request is not handled by login filter");
+    };
+
+    private final RequestMatcher loginRequestMatcher;
+    private final Bulkhead bulkhead;
+    private Filter loginFilter;
+
+    /**
+     * @param loginRequestMatcher requests handled by the login filter
+     * @param bulkhead login bulkhead
+     */
+    public BulkheadLoginFilter(RequestMatcher loginRequestMatcher, Bulkhead bulkhead) {
+        this.loginRequestMatcher = loginRequestMatcher;
+        this.bulkhead = bulkhead;
+    }
+
+    /**
+     * @param loginFilter login filter configured by Spring Security (formLogin)
+     */
+    public void setLoginFilter(Filter loginFilter) {
+        this.loginFilter = loginFilter;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        if (loginFilter == null || !request.isAsyncSupported() || !loginRequestMatcher.matches(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!bulkhead.tryAcquire()) {
+            sendError(response, BulkheadRoutes.rejected(response, bulkhead));
+            return;
+        }
+
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(0);
+        long queuedAt = System.nanoTime();
+        bulkhead.execute(() -> {
+            try {
+                if (bulkhead.isExpired(queuedAt)) {
+                    sendError(response, BulkheadRoutes.rejected(response, bulkhead));
+                } else {
+                    loginFilter.doFilter(request, response, NO_CHAIN);
+                }
+            } catch (Exception e) {
+                log.error("Failed to process login request", e);
+                sendError(response, new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+            } finally {
+                SecurityContextHolder.clearContext();
+                asyncContext.complete();
+            }
+        });
+    }
+
+    private static void sendError(HttpServletResponse response, ResponseStatusException e) {
+        if (response.isCommitted()) {
+            return;
+        }
+        try {
+            response.sendError(e.getStatus().value(), e.getReason());
+        } catch (IOException | IllegalStateException ex) {
+            log.debug("Failed to send error " + e.getStatus() + " : " + ex.toString());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package jp.co.axa.apidemo.bulkhead;
+
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Callable;
+
+/**
+ *  RequestMappingHandlerAdapter that runs controller methods on the bulkhead of their route.
+ *  The controller method (incl. argument binding) is handed off as an async task (WebAsyncTask), so the request thread
+ *  is released while it runs, and the result is written as usual on the async dispatch.
+ *  If the bulkhead is full, 503 is returned on the request thread without starting async processing.
+ *  Controllers are unchanged : they are called in the same way, only on another thread.
+ */
+public class BulkheadRequestMappingHandlerAdapter extends RequestMappingHandlerAdapter {
+
+    // Async request of the task doesn't time out (a request waits on the queue at most max wait of the bulkhead)
+    private static final Long NO_TIMEOUT = 0L;
+
+    private final BulkheadRoutes routes;
+
+    public BulkheadRequestMappingHandlerAdapter(BulkheadRoutes routes) {
+        this.routes = routes;
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        return new BulkheadInvocableHandlerMethod(handlerMethod);
+    }
+
+    private class BulkheadInvocableHandlerMethod extends ServletInvocableHandlerMethod {
+
+        BulkheadInvocableHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        @Override
+        public Object invokeForRequest(NativeWebRequest request, ModelAndViewContainer mavContainer,
+                                       Object... providedArgs) throws Exception {
+            HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+            Bulkhead bulkhead = routes.bulkheadOf(servletRequest);
+            if (bulkhead == null) {
+                return super.invokeForRequest(request, mavContainer, providedArgs);
+            }
+            HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+            if (!bulkhead.tryAcquire()) {
+                throw BulkheadRoutes.rejected(response, bulkhead);
+            }
+            long queuedAt = System.nanoTime();
+            Callable<Object> task = () -> {
+                if (bulkhead.isExpired(queuedAt)) {
+                    throw BulkheadRoutes.rejected(response, bulkhead);
+                }
+                // Web request of the request thread is completed when the thread returns, so a new one is used
+                return super.invokeForRequest(new ServletWebRequest(servletRequest, response), mavContainer, providedArgs);
+            };
+            return new WebAsyncTask<>(NO_TIMEOUT, new TaskExecutorAdapter(bulkhead::execute), task);
+        }
+    }
+}
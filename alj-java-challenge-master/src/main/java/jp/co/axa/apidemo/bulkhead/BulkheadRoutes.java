@@ -0,0 +1,84 @@
+package jp.co.axa.apidemo.bulkhead;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  Bulkhead of each route (path pattern), e.g. /api/v1/token/** to login bulkhead.
+ *  Patterns are matched in the order they are added, and excluded patterns are checked first.
+ */
+public class BulkheadRoutes {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    private final List<String> excludedPatterns = new ArrayList<>();
+    private final Map<String, Bulkhead> routes = new LinkedHashMap<>();
+
+    /**
+     * @param pattern path pattern (Ant style)
+     * @param bulkhead bulkhead that runs requests of the path
+     * @return this
+     */
+    public BulkheadRoutes route(String pattern, Bulkhead bulkhead) {
+        routes.put(pattern, bulkhead);
+        return this;
+    }
+
+    /**
+     * @param pattern path pattern that isn't run on a bulkhead even if it matches a route
+     * @return this
+     */
+    public BulkheadRoutes exclude(String pattern) {
+        excludedPatterns.add(pattern);
+        return this;
+    }
+
+    /**
+     * @param request
+     * @return bulkhead of the request path, or null if the request runs on the request thread
+     */
+    public Bulkhead bulkheadOf(HttpServletRequest request) {
+        if (request == null || !request.isAsyncSupported()) {
+            return null;
+        }
+        String path = urlPathHelper.getPathWithinApplication(request);
+        for (String pattern : excludedPatterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return null;
+            }
+        }
+        for (Map.Entry<String, Bulkhead> route : routes.entrySet()) {
+            if (pathMatcher.match(route.getKey(), path)) {
+                return route.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Exception of a request rejected by its bulkhead (503 with Retry-After header)
+     * @param response Retry-After header is set on it (nullable)
+     * @param bulkhead
+     * @return ResponseStatusException
+     */
+    static ResponseStatusException rejected(HttpServletResponse response, Bulkhead bulkhead) {
+        if (response != null && !response.isCommitted()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        }
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                           "Too many " + bulkhead.getName() + " requests. Please retry later.");
+    }
+}
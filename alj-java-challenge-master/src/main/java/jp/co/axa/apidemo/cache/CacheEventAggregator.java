@@ -0,0 +1,247 @@
+package jp.co.axa.apidemo.cache;
+
+import jp.co.axa.apidemo.dto.CacheEventStatistics;
+import lombok.extern.slf4j.Slf4j;
+import org.ehcache.event.EventType;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *  Statistics of Ehcache events recorded by CacheLogger, per cache and event type.
+ *    - count : striped counter (LongAdder), so events on many threads don't contend on a single value
+ *    - rate  : events per second between the last two calls of sample() (called periodically)
+ *    - entry size : power-of-two histogram of created entries by size estimated from the compact binary format
+ *  Recording is lock-free and doesn't format values. CacheLogger of each cache records its events by cache name
+ *  on the single instance returned by getInstance().
+ */
+@Slf4j
+public class CacheEventAggregator implements CacheEventAggregatorMXBean {
+
+    public static final String OBJECT_NAME = "jp.co.axa.apidemo:type=CacheEventAggregator";
+
+    private static final EventType[] TYPES = EventType.values();
+
+    // Bucket i has entries of size < 2^i bytes (and >= 2^(i-1)). The last bucket has all larger entries
+    private static final int SIZE_BUCKETS = 25;
+
+    private static final CacheEventAggregator INSTANCE = new CacheEventAggregator();
+
+    // Cache name -> counters of the cache
+    private final ConcurrentMap<String, Counters> byName = new ConcurrentHashMap<>();
+
+    private volatile int debugLogSampleRate = 100;
+
+    private long sampledAt = System.nanoTime();
+
+    CacheEventAggregator() {
+    }
+
+    public static CacheEventAggregator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record an event
+     * @param cacheName cache that fired the event
+     * @param type
+     * @param newValue value of created/updated entry (null for other events)
+     */
+    public void record(String cacheName, EventType type, Object newValue) {
+        Counters counters = byName.get(cacheName);
+        if (counters == null) {
+            counters = byName.computeIfAbsent(cacheName, Counters::new);
+        }
+        counters.counts[type.ordinal()].increment();
+        if (type == EventType.CREATED) {
+            long size = estimateSize(newValue);
+            if (size >= 0) {
+                counters.sizes[Math.min(64 - Long.numberOfLeadingZeros(size), SIZE_BUCKETS - 1)].increment();
+            }
+        }
+    }
+
+    /**
+     * Update the rates with the events since the previous sample
+     */
+    public void sample() {
+        sample(System.nanoTime());
+    }
+
+    synchronized void sample(long nanos) {
+        double seconds = (nanos - sampledAt) / 1_000_000_000.0;
+        sampledAt = nanos;
+        if (seconds <= 0) {
+            return;
+        }
+        for (Counters counters : byName.values()) {
+            double[] rates = new double[TYPES.length];
+            for (int i = 0; i < TYPES.length; i++) {
+                long count = counters.counts[i].sum();
+                rates[i] = (count - counters.sampledCounts[i]) / seconds;
+                counters.sampledCounts[i] = count;
+            }
+            counters.rates = rates;
+        }
+    }
+
+    /**
+     * @return statistics of caches that have events, ordered by cache name
+     */
+    public List<CacheEventStatistics> getStatistics() {
+        List<CacheEventStatistics> statistics = new ArrayList<>();
+        for (Counters counters : byName.values()) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            Map<String, Double> rates = new LinkedHashMap<>();
+            double[] sampledRates = counters.rates;
+            for (int i = 0; i < TYPES.length; i++) {
+                long count = counters.counts[i].sum();
+                if (count > 0) {
+                    counts.put(TYPES[i].name(), count);
+                    rates.put(TYPES[i].name(), sampledRates[i]);
+                }
+            }
+            Map<String, Long> sizes = new LinkedHashMap<>();
+            for (int i = 0; i < SIZE_BUCKETS; i++) {
+                long count = counters.sizes[i].sum();
+                if (count > 0) {
+                    sizes.put(i == SIZE_BUCKETS - 1 ? "inf" : String.valueOf(1L << i), count);
+                }
+            }
+            if (!counts.isEmpty()) {
+                statistics.add(new CacheEventStatistics(counters.cacheName, counts, rates, sizes));
+            }
+        }
+        statistics.sort(Comparator.comparing(CacheEventStatistics::getCacheName));
+        return statistics;
+    }
+
+    @Override
+    public Map<String, Long> getEventCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        getStatistics().forEach(stats -> stats.getCounts().forEach((type, count) -> counts.put(stats.getCacheName() + "." + type, count)));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getEventRates() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        getStatistics().forEach(stats -> stats.getRates().forEach((type, rate) -> rates.put(stats.getCacheName() + "." + type, rate)));
+        return rates;
+    }
+
+    @Override
+    public Map<String, Long> getEntrySizeHistogram() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        getStatistics().forEach(stats -> stats.getEntrySizes().forEach((bucket, count) -> sizes.put(stats.getCacheName() + ".<" + bucket, count)));
+        return sizes;
+    }
+
+    /**
+     * @return 1 in this number of events is logged on DEBUG level by CacheLogger
+     */
+    @Override
+    public int getDebugLogSampleRate() {
+        return debugLogSampleRate;
+    }
+
+    @Override
+    public void setDebugLogSampleRate(int debugLogSampleRate) {
+        this.debugLogSampleRate = Math.max(debugLogSampleRate, 1);
+    }
+
+    /**
+     * Reset counters of all caches (cache names are kept)
+     */
+    @Override
+    public synchronized void reset() {
+        byName.values().forEach(Counters::reset);
+    }
+
+    /**
+     * Register on the platform MBean server, unless it's already registered
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            log.warn("Failed to register cache event statistics on JMX : " + e.toString());
+        }
+    }
+
+    /**
+     * Estimate size of the value in the compact binary format of offheap/disk tiers (strings counted as ASCII).
+     * A list is estimated by its first item and item count, so a large list isn't walked on each event
+     * @return -1 for values of other types
+     */
+    static long estimateSize(Object value) {
+        if (value instanceof CachedEmployee) {
+            CachedEmployee employee = (CachedEmployee) value;
+            return 8 + length(employee.getName()) + length(employee.getDepartment());
+        }
+        if (value instanceof CachedAccount) {
+            return 5 + length(((CachedAccount) value).getName());
+        }
+        if (value instanceof VersionedList) {
+            List<?> items = ((VersionedList<?>) value).getItems();
+            return items.isEmpty() ? 4 : 4 + items.size() * Math.max(estimateSize(items.get(0)), 0);
+        }
+        return -1;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length() + 1;
+    }
+
+    /**
+     *  Counters of a cache
+     */
+    private static final class Counters {
+
+        private final String cacheName;
+        private final LongAdder[] counts = newAdders(TYPES.length);
+        private final LongAdder[] sizes = newAdders(SIZE_BUCKETS);
+
+        // Updated by sample() only
+        private final long[] sampledCounts = new long[TYPES.length];
+        private volatile double[] rates = new double[TYPES.length];
+
+        Counters(String cacheName) {
+            this.cacheName = cacheName;
+        }
+
+        void reset() {
+            for (LongAdder adder : counts) {
+                adder.reset();
+            }
+            for (LongAdder adder : sizes) {
+                adder.reset();
+            }
+            Arrays.fill(sampledCounts, 0);
+            rates = new double[TYPES.length];
+        }
+
+        private static LongAdder[] newAdders(int length) {
+            LongAdder[] adders = new LongAdder[length];
+            for (int i = 0; i < length; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package jp.co.axa.apidemo.cache;
+
+import java.util.Map;
+
+/**
+ *  JMX view of CacheEventAggregator (jp.co.axa.apidemo:type=CacheEventAggregator).
+ *  Keys of maps are "cache name.event type" or "cache name.size bucket".
+ */
+public interface CacheEventAggregatorMXBean {
+
+    Map<String, Long> getEventCounts();
+
+    Map<String, Double> getEventRates();
+
+    Map<String, Long> getEntrySizeHistogram();
+
+    int getDebugLogSampleRate();
+
+    void setDebugLogSampleRate(int debugLogSampleRate);
+
+    void reset();
+}
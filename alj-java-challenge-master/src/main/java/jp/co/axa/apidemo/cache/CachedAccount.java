@@ -0,0 +1,62 @@
+package jp.co.axa.apidemo.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import jp.co.axa.apidemo.entities.AccountView;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ *  Immutable API account kept on [accountCache] and [allAccountCache].
+ *  Password is not kept (always empty), and cache hits return the cached instance itself (no copy).
+ *  JSON is the same as Account with empty password.
+ */
+@Getter
+@EqualsAndHashCode
+@JsonPropertyOrder({"id", "name", "password", "admin"})
+public final class CachedAccount implements AccountView, Serializable {
+
+    private static final long serialVersionUID = 7248105961932478510L;
+
+    private final Long id;
+
+    private final String name;
+
+    private final Boolean admin;
+
+    @JsonIgnore
+    private final Long version;
+
+    CachedAccount(Long id, String name, Boolean admin, Long version) {
+        this.id = id;
+        this.name = name;
+        this.admin = admin;
+        this.version = version;
+    }
+
+    /**
+     * @param account
+     * @return immutable copy of the account without password
+     */
+    public static CachedAccount of(AccountView account) {
+        if (account instanceof CachedAccount) {
+            return (CachedAccount) account;
+        }
+        return new CachedAccount(account.getId(), account.getName(), account.getAdmin(), account.getVersion());
+    }
+
+    /**
+     * @return always empty
+     */
+    @Override
+    public String getPassword() {
+        return "";
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ID=%s, Name=%s, Admin=%s", id, name, admin);
+    }
+}
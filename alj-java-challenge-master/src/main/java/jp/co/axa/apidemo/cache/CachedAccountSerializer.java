@@ -0,0 +1,79 @@
+package jp.co.axa.apidemo.cache;
+
+import org.ehcache.spi.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ *  Ehcache serializer of CachedAccount for offheap and disk tiers.
+ *  Layout : format(1) presence(1) [id] [name] [version] (see BinaryFormat). Admin flag is a bit of presence byte.
+ */
+public class CachedAccountSerializer implements Serializer<CachedAccount> {
+
+    private static final int FORMAT = 1;
+
+    private static final int ID = 1;
+    private static final int NAME = 1 << 1;
+    private static final int VERSION = 1 << 2;
+    private static final int ADMIN_PRESENT = 1 << 3;
+    private static final int ADMIN = 1 << 4;
+
+    /**
+     * Constructor called by Ehcache
+     * @param classLoader not used
+     */
+    public CachedAccountSerializer(ClassLoader classLoader) {
+    }
+
+    @Override
+    public ByteBuffer serialize(CachedAccount account) {
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(24);
+        writer.writeByte(FORMAT);
+        write(writer, account);
+        return writer.toByteBuffer();
+    }
+
+    @Override
+    public CachedAccount read(ByteBuffer binary) {
+        BinaryFormat.checkFormat(binary, FORMAT);
+        return read0(binary);
+    }
+
+    @Override
+    public boolean equals(CachedAccount account, ByteBuffer binary) {
+        return account.equals(read(binary));
+    }
+
+    /**
+     * Write fields of the account (without format byte)
+     */
+    static void write(BinaryFormat.Writer writer, CachedAccount account) {
+        int presence = (account.getId() != null ? ID : 0)
+                       | (account.getName() != null ? NAME : 0)
+                       | (account.getVersion() != null ? VERSION : 0)
+                       | (account.getAdmin() != null ? ADMIN_PRESENT : 0)
+                       | (Boolean.TRUE.equals(account.getAdmin()) ? ADMIN : 0);
+        writer.writeByte(presence);
+        if (account.getId() != null) {
+            writer.writeVarLong(account.getId());
+        }
+        if (account.getName() != null) {
+            writer.writeString(account.getName());
+        }
+        if (account.getVersion() != null) {
+            writer.writeVarLong(account.getVersion());
+        }
+    }
+
+    /**
+     * Read fields written by write()
+     */
+    static CachedAccount read0(ByteBuffer binary) {
+        int presence = binary.get();
+        Long id = (presence & ID) != 0 ? BinaryFormat.readVarLong(binary) : null;
+        String name = (presence & NAME) != 0 ? BinaryFormat.readString(binary) : null;
+        Long version = (presence & VERSION) != 0 ? BinaryFormat.readVarLong(binary) : null;
+        Boolean admin = (presence & ADMIN_PRESENT) != 0 ? (presence & ADMIN) != 0 : null;
+        return new CachedAccount(id, name, admin, version);
+    }
+}
@@ -0,0 +1,51 @@
+package jp.co.axa.apidemo.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jp.co.axa.apidemo.entities.EmployeeView;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ *  Immutable employee kept on [employeeCache] and [allEmployeeCache].
+ *  It can't be changed by callers, so cache hits return the cached instance itself (no copy).
+ *  JSON is the same as Employee.
+ */
+@Getter
+@EqualsAndHashCode
+public final class CachedEmployee implements EmployeeView, Serializable {
+
+    private static final long serialVersionUID = -3198447210551538806L;
+
+    private final Long id;
+
+    private final String name;
+
+    private final Integer salary;
+
+    private final String department;
+
+    @JsonIgnore
+    private final Long version;
+
+    CachedEmployee(Long id, String name, Integer salary, String department, Long version) {
+        this.id = id;
+        this.name = name;
+        this.salary = salary;
+        this.department = department;
+        this.version = version;
+    }
+
+    /**
+     * @param employee
+     * @return immutable copy of the employee (the employee itself if it's already immutable)
+     */
+    public static CachedEmployee of(EmployeeView employee) {
+        if (employee instanceof CachedEmployee) {
+            return (CachedEmployee) employee;
+        }
+        return new CachedEmployee(employee.getId(), employee.getName(), employee.getSalary(),
+                                  employee.getDepartment(), employee.getVersion());
+    }
+}
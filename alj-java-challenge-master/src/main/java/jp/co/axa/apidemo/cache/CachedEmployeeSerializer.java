@@ -0,0 +1,87 @@
+package jp.co.axa.apidemo.cache;
+
+import org.ehcache.spi.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ *  Ehcache serializer of CachedEmployee for offheap and disk tiers.
+ *  Layout : format(1) presence(1) [id] [name] [salary] [department] [version] (see BinaryFormat)
+ *  An employee takes about 20 bytes instead of about 300 bytes by Java serialization.
+ */
+public class CachedEmployeeSerializer implements Serializer<CachedEmployee> {
+
+    private static final int FORMAT = 1;
+
+    private static final int ID = 1;
+    private static final int NAME = 1 << 1;
+    private static final int SALARY = 1 << 2;
+    private static final int DEPARTMENT = 1 << 3;
+    private static final int VERSION = 1 << 4;
+
+    /**
+     * Constructor called by Ehcache
+     * @param classLoader not used
+     */
+    public CachedEmployeeSerializer(ClassLoader classLoader) {
+    }
+
+    @Override
+    public ByteBuffer serialize(CachedEmployee employee) {
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(32);
+        writer.writeByte(FORMAT);
+        write(writer, employee);
+        return writer.toByteBuffer();
+    }
+
+    @Override
+    public CachedEmployee read(ByteBuffer binary) {
+        BinaryFormat.checkFormat(binary, FORMAT);
+        return read0(binary);
+    }
+
+    @Override
+    public boolean equals(CachedEmployee employee, ByteBuffer binary) {
+        return employee.equals(read(binary));
+    }
+
+    /**
+     * Write fields of the employee (without format byte)
+     */
+    static void write(BinaryFormat.Writer writer, CachedEmployee employee) {
+        int presence = (employee.getId() != null ? ID : 0)
+                       | (employee.getName() != null ? NAME : 0)
+                       | (employee.getSalary() != null ? SALARY : 0)
+                       | (employee.getDepartment() != null ? DEPARTMENT : 0)
+                       | (employee.getVersion() != null ? VERSION : 0);
+        writer.writeByte(presence);
+        if (employee.getId() != null) {
+            writer.writeVarLong(employee.getId());
+        }
+        if (employee.getName() != null) {
+            writer.writeString(employee.getName());
+        }
+        if (employee.getSalary() != null) {
+            writer.writeVarLong(employee.getSalary());
+        }
+        if (employee.getDepartment() != null) {
+            writer.writeString(employee.getDepartment());
+        }
+        if (employee.getVersion() != null) {
+            writer.writeVarLong(employee.getVersion());
+        }
+    }
+
+    /**
+     * Read fields written by write()
+     */
+    static CachedEmployee read0(ByteBuffer binary) {
+        int presence = binary.get();
+        Long id = (presence & ID) != 0 ? BinaryFormat.readVarLong(binary) : null;
+        String name = (presence & NAME) != 0 ? BinaryFormat.readString(binary) : null;
+        Integer salary = (presence & SALARY) != 0 ? BinaryFormat.readVarInt(binary) : null;
+        String department = (presence & DEPARTMENT) != 0 ? BinaryFormat.readString(binary) : null;
+        Long version = (presence & VERSION) != 0 ? BinaryFormat.readVarLong(binary) : null;
+        return new CachedEmployee(id, name, salary, department, version);
+    }
+}
@@ -0,0 +1,76 @@
+package jp.co.axa.apidemo.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ *  Consistent-hash ring that maps long keys (employee/account IDs) to owner nodes.
+ *  Each node is placed on the ring at a number of points (virtual nodes), so keys are spread evenly
+ *  and adding or removing a node moves only the keys of that node. The ring is immutable.
+ */
+public class ConsistentHashRing {
+
+    private final List<String> nodes;
+
+    // Sorted points on the ring and the node at each point
+    private final long[] points;
+    private final String[] owners;
+
+    /**
+     * @param nodes node names (e.g. host:port). Every node must use the same list to agree on owners
+     * @param virtualNodes number of points of each node on the ring
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("Ring needs at least one node and one virtual node");
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+
+        List<long[]> entries = new ArrayList<>(nodes.size() * virtualNodes);
+        for (int n = 0; n < nodes.size(); n++) {
+            long nodeHash = hash(nodes.get(n));
+            for (int v = 0; v < virtualNodes; v++) {
+                entries.add(new long[] {IdBloomFilter.mix(nodeHash + v), n});
+            }
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry[0]));
+        this.points = new long[entries.size()];
+        this.owners = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            points[i] = entries.get(i)[0];
+            owners[i] = nodes.get((int) entries.get(i)[1]);
+        }
+    }
+
+    /**
+     * @param key
+     * @return node at the first point after the hash of the key (clockwise)
+     */
+    public String ownerOf(long key) {
+        int index = Arrays.binarySearch(points, IdBloomFilter.mix(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the node name
+     */
+    private static long hash(String node) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : node.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
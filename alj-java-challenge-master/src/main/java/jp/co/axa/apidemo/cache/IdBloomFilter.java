@@ -0,0 +1,70 @@
+package jp.co.axa.apidemo.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *  Bloom filter of long IDs. mightContain() is false only for IDs that were never added, and true for
+ *  other IDs with the false positive rate given on creation (while the number of IDs is under the capacity).
+ *  IDs can't be removed. Adds and lookups are lock-free and don't allocate.
+ */
+public class IdBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+
+    /**
+     * @param capacity expected number of IDs
+     * @param falsePositiveRate false positive rate at the capacity (e.g. 0.01)
+     */
+    public IdBloomFilter(long capacity, double falsePositiveRate) {
+        long n = Math.max(capacity, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Math.max((m + 63) / 64, 1), Integer.MAX_VALUE / 2);
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = words * 64L;
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitSize / n * Math.log(2))));
+    }
+
+    public void add(long id) {
+        long h1 = mix(id);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitSize);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((bits.get(word) & mask) == 0) {
+                bits.accumulateAndGet(word, mask, (current, added) -> current | added);
+            }
+        }
+    }
+
+    public boolean mightContain(long id) {
+        long h1 = mix(id);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitSize);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return size of the filter in bytes
+     */
+    public long getByteSize() {
+        return bitSize / 8;
+    }
+
+    /**
+     * SplitMix64 finalizer, so that sequential IDs are spread over all bits (also used by ConsistentHashRing)
+     */
+    static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
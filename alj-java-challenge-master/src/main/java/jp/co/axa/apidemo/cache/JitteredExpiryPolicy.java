@@ -0,0 +1,72 @@
+package jp.co.axa.apidemo.cache;
+
+import org.ehcache.expiry.ExpiryPolicy;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ *  Ehcache expiry (set by <expiry><class> in ehcache.xml) : time to live with random jitter.
+ *  Each created or updated entry lives TTL +/- jitter, so entries loaded at the same time
+ *  (e.g. by startup preload) don't expire at the same time. Access doesn't change the expiry.
+ */
+public class JitteredExpiryPolicy implements ExpiryPolicy<Object, Object> {
+
+    private final long ttlMillis;
+    private final long jitterMillis;
+
+    /**
+     * 30 seconds +/- 10%
+     */
+    public JitteredExpiryPolicy() {
+        this(Duration.ofSeconds(30), 0.1);
+    }
+
+    /**
+     * @param ttl
+     * @param jitter ratio of TTL (0.1 for +/- 10%)
+     */
+    protected JitteredExpiryPolicy(Duration ttl, double jitter) {
+        this.ttlMillis = ttl.toMillis();
+        this.jitterMillis = (long) (ttlMillis * jitter);
+    }
+
+    /**
+     * @return TTL without jitter
+     */
+    public Duration getTtl() {
+        return Duration.ofMillis(ttlMillis);
+    }
+
+    @Override
+    public Duration getExpiryForCreation(Object key, Object value) {
+        return nextTtl();
+    }
+
+    @Override
+    public Duration getExpiryForAccess(Object key, Supplier<?> value) {
+        return null;
+    }
+
+    @Override
+    public Duration getExpiryForUpdate(Object key, Supplier<?> oldValue, Object newValue) {
+        return nextTtl();
+    }
+
+    private Duration nextTtl() {
+        if (jitterMillis <= 0) {
+            return Duration.ofMillis(ttlMillis);
+        }
+        return Duration.ofMillis(ttlMillis + ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1));
+    }
+
+    /**
+     *  1 hour +/- 10% for persistent caches (ehcache-persistent.xml)
+     */
+    public static class Persistent extends JitteredExpiryPolicy {
+        public Persistent() {
+            super(Duration.ofHours(1), 0.1);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package jp.co.axa.apidemo.cache;
+
+/**
+ *  VersionedListSerializer that compresses lists larger than 1 KB by LZ4 (block mode).
+ *  Repeated values (e.g. department names) make employee lists a few times smaller.
+ */
+public class Lz4VersionedListSerializer extends VersionedListSerializer {
+
+    private static final int COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * Constructor called by Ehcache
+     * @param classLoader not used
+     */
+    public Lz4VersionedListSerializer(ClassLoader classLoader) {
+        super(COMPRESSION_THRESHOLD);
+    }
+}
@@ -0,0 +1,128 @@
+package jp.co.axa.apidemo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ *  Answers lookups of IDs that don't exist with less DB access.
+ *    - Negative cache : IDs found missing in DB (or deleted) are kept for a short TTL
+ *    - Bloom filter of existing IDs : an ID that was never added on this node doesn't exist, unless it was created
+ *      on another node since the last build. So it's confirmed by a cheap existence check on DB instead of a load
+ *      through caches (and owner nodes), and the result is kept on the filter or the negative cache.
+ *      It's rebuilt from DB periodically, which also drops deleted IDs. Until the first build, every ID may exist
+ *  IDs must be added when they are assigned (before commit) and again after commit, so that a lookup
+ *  between them that found nothing in DB doesn't stay in the negative cache.
+ */
+@Slf4j
+public class MissingIdCache {
+
+    // Bloom filter is sized for this times the number of IDs on build, to keep the false positive rate until the next build
+    private static final int GROWTH_FACTOR = 2;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final String name;
+    private final double falsePositiveRate;
+    private final Cache<Long, Boolean> negative;
+
+    private volatile IdBloomFilter filter;
+
+    // IDs added during a rebuild. They are added to the new filter after it's built
+    private volatile Queue<Long> addedDuringBuild;
+
+    /**
+     * @param name used in log
+     * @param negativeTtl time to keep missing IDs
+     * @param negativeMaximumSize max number of missing IDs to keep
+     * @param falsePositiveRate false positive rate of Bloom filter
+     */
+    public MissingIdCache(String name, Duration negativeTtl, long negativeMaximumSize, double falsePositiveRate) {
+        this.name = name;
+        this.falsePositiveRate = falsePositiveRate;
+        this.negative = Caffeine.newBuilder().expireAfterWrite(negativeTtl).maximumSize(negativeMaximumSize).build();
+    }
+
+    /**
+     * @param id
+     * @param exists existence check on DB, called only when the ID is not on the Bloom filter
+     * @return true if the ID is known not to exist
+     */
+    public boolean isMissing(Long id, Predicate<Long> exists) {
+        if (id == null) {
+            return false;
+        }
+        if (negative.getIfPresent(id) != null) {
+            return true;
+        }
+        IdBloomFilter current = filter;
+        if (current == null || current.mightContain(id)) {
+            return false;
+        }
+        if (exists.test(id)) {
+            log.debug("ID " + id + " of " + name + " is not on the filter, but exists in DB");
+            add(id);
+            return false;
+        }
+        markMissing(id);
+        return true;
+    }
+
+    /**
+     * Keep the ID as missing (not found in DB, or deleted)
+     * @param id
+     */
+    public void markMissing(Long id) {
+        if (id != null) {
+            negative.put(id, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Add the ID of new entity
+     * @param id
+     */
+    public void add(Long id) {
+        if (id == null) {
+            return;
+        }
+        // Queue first : if the filter read below is replaced by a rebuild, the queue is drained into the new one
+        Queue<Long> queue = addedDuringBuild;
+        if (queue != null) {
+            queue.add(id);
+        }
+        IdBloomFilter current = filter;
+        if (current != null) {
+            current.add(id);
+        }
+        negative.invalidate(id);
+    }
+
+    /**
+     * Rebuild the Bloom filter from all IDs in DB
+     * @param idLoader loads all existing IDs
+     */
+    public synchronized void rebuild(Supplier<List<Long>> idLoader) {
+        long start = System.currentTimeMillis();
+        Queue<Long> queue = new ConcurrentLinkedQueue<>();
+        addedDuringBuild = queue;
+        try {
+            List<Long> ids = idLoader.get();
+            IdBloomFilter built = new IdBloomFilter(Math.max((long) ids.size() * GROWTH_FACTOR, MIN_CAPACITY), falsePositiveRate);
+            ids.forEach(built::add);
+            filter = built;
+            addedDuringBuild = null;
+            queue.forEach(built::add);
+            log.info("ID filter of " + name + " rebuilt : ids = " + ids.size() + ", bytes = " + built.getByteSize()
+                     + ", time = " + (System.currentTimeMillis() - start) + "ms");
+        } finally {
+            addedDuringBuild = null;
+        }
+    }
+}
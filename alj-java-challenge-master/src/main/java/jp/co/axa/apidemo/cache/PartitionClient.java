@@ -0,0 +1,216 @@
+package jp.co.axa.apidemo.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Client of PartitionServer of other nodes. Connections are kept open and reused per node.
+ *  A node that fails (connect error, timeout etc.) is not called again until the retry delay passes,
+ *  so requests don't wait for the timeout of a node that is down.
+ */
+@Slf4j
+public class PartitionClient implements Closeable {
+
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+
+    private final int timeoutMillis;
+    private final long retryDelayNanos;
+
+    private final ConcurrentMap<String, BlockingQueue<Connection>> idleConnections = new ConcurrentHashMap<>();
+
+    // Node -> System.nanoTime() until which the node is not called
+    private final ConcurrentMap<String, Long> downUntil = new ConcurrentHashMap<>();
+
+    /**
+     * @param timeoutMillis connect and read timeout
+     * @param retryDelayMillis time to skip a node after it failed
+     */
+    public PartitionClient(int timeoutMillis, long retryDelayMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.retryDelayNanos = TimeUnit.MILLISECONDS.toNanos(retryDelayMillis);
+    }
+
+    /**
+     * @param node owner node (host:port)
+     * @param cacheName
+     * @param key
+     * @return value on the owner, or null if the owner doesn't have the key
+     * @throws IOException if the owner can't be called
+     */
+    public Object get(String node, String cacheName, long key) throws IOException {
+        ByteBuffer response = call(node, PartitionProtocol.request(PartitionProtocol.GET, cacheName, key));
+        return checkStatus(node, response) == PartitionProtocol.HIT ? PartitionProtocol.readValue(response) : null;
+    }
+
+    /**
+     * @param node owner node (host:port)
+     * @param cacheName
+     * @param key
+     * @param value cached employee/account (PartitionProtocol.isSupported)
+     * @throws IOException if the owner can't be called
+     */
+    public void put(String node, String cacheName, long key, Object value) throws IOException {
+        BinaryFormat.Writer request = PartitionProtocol.request(PartitionProtocol.PUT, cacheName, key);
+        PartitionProtocol.writeValue(request, value);
+        checkStatus(node, call(node, request));
+    }
+
+    /**
+     * @param node owner node (host:port)
+     * @param cacheName
+     * @param key
+     * @param value cached employee/account (PartitionProtocol.isSupported)
+     * @return value the owner already has (the given value is not written), or null if the value is written
+     * @throws IOException if the owner can't be called
+     */
+    public Object putIfAbsent(String node, String cacheName, long key, Object value) throws IOException {
+        BinaryFormat.Writer request = PartitionProtocol.request(PartitionProtocol.PUT_IF_ABSENT, cacheName, key);
+        PartitionProtocol.writeValue(request, value);
+        ByteBuffer response = call(node, request);
+        return checkStatus(node, response) == PartitionProtocol.HIT ? PartitionProtocol.readValue(response) : null;
+    }
+
+    /**
+     * @param node owner node (host:port)
+     * @param cacheName
+     * @param key
+     * @throws IOException if the owner can't be called
+     */
+    public void evict(String node, String cacheName, long key) throws IOException {
+        checkStatus(node, call(node, PartitionProtocol.request(PartitionProtocol.EVICT, cacheName, key)));
+    }
+
+    /**
+     * Clear the partition of the node
+     * @param node (host:port)
+     * @param cacheName
+     * @throws IOException if the node can't be called
+     */
+    public void clear(String node, String cacheName) throws IOException {
+        checkStatus(node, call(node, PartitionProtocol.request(PartitionProtocol.CLEAR, cacheName, 0)));
+    }
+
+    /**
+     * Close idle connections
+     */
+    @Override
+    public void close() {
+        idleConnections.values().forEach(queue -> {
+            Connection connection;
+            while ((connection = queue.poll()) != null) {
+                connection.close();
+            }
+        });
+    }
+
+    /**
+     * @param node host:port
+     * @return address of the node
+     */
+    public static InetSocketAddress toAddress(String node) {
+        int separator = node.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Node must be host:port : " + node);
+        }
+        return new InetSocketAddress(node.substring(0, separator), Integer.parseInt(node.substring(separator + 1)));
+    }
+
+    private ByteBuffer call(String node, BinaryFormat.Writer request) throws IOException {
+        Long until = downUntil.get(node);
+        if (until != null) {
+            if (System.nanoTime() - until < 0) {
+                throw new IOException("Node is down : " + node);
+            }
+            downUntil.remove(node, until);
+        }
+        BlockingQueue<Connection> idle = idleConnections.computeIfAbsent(node,
+                key -> new ArrayBlockingQueue<>(MAX_IDLE_CONNECTIONS));
+        Connection connection = idle.poll();
+        if (connection != null) {
+            try {
+                return exchange(idle, connection, request);
+            } catch (IOException e) {
+                // Idle connection closed by the node (e.g. restarted). Retried once on a new connection
+                connection.close();
+                log.debug("Idle connection to " + node + " failed : " + e.toString());
+            }
+        }
+        connection = null;
+        try {
+            connection = new Connection(node, timeoutMillis);
+            return exchange(idle, connection, request);
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            if (downUntil.put(node, System.nanoTime() + retryDelayNanos) == null) {
+                log.warn("Partition cache node " + node + " is down : " + e.toString());
+            }
+            throw e;
+        }
+    }
+
+    private static ByteBuffer exchange(BlockingQueue<Connection> idle, Connection connection,
+                                       BinaryFormat.Writer request) throws IOException {
+        PartitionProtocol.writeFrame(connection.out, request);
+        ByteBuffer response = PartitionProtocol.readFrame(connection.in);
+        if (!idle.offer(connection)) {
+            connection.close();
+        }
+        return response;
+    }
+
+    private static int checkStatus(String node, ByteBuffer response) throws IOException {
+        int status = response.get();
+        if (status == PartitionProtocol.ERROR) {
+            throw new IOException("Error on " + node + " : " + BinaryFormat.readString(response));
+        }
+        return status;
+    }
+
+    /**
+     *  Connection to a node
+     */
+    private static final class Connection {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        Connection(String node, int timeoutMillis) throws IOException {
+            socket = new Socket();
+            try {
+                socket.connect(toAddress(node), timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Failed to close connection : " + e.toString());
+            }
+        }
+    }
+}
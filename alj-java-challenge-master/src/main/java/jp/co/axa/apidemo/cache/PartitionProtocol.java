@@ -0,0 +1,96 @@
+package jp.co.axa.apidemo.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ *  Binary protocol between nodes of the partitioned cache (PartitionClient -> PartitionServer).
+ *  Each message is a frame : size(4) payload. Fields of the payload use BinaryFormat.
+ *    - Request  : op(1) cacheName key [value (PUT, PUT_IF_ABSENT)]. Key is 0 for CLEAR
+ *    - Response : status(1) [value (HIT, or existing value of PUT_IF_ABSENT)] [message (ERROR)]
+ *    - Value    : type(1) fields of the cached employee/account (same as their Ehcache serializers)
+ *  A cached employee takes about 30 bytes on the wire including the request.
+ */
+final class PartitionProtocol {
+
+    static final int GET = 1;
+    static final int PUT = 2;
+    static final int EVICT = 3;
+    static final int PUT_IF_ABSENT = 4;
+    static final int CLEAR = 5;
+
+    static final int MISS = 0;
+    static final int HIT = 1;
+    static final int OK = 2;
+    static final int ERROR = 3;
+
+    private static final int EMPLOYEE = 1;
+    private static final int ACCOUNT = 2;
+
+    private static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    private PartitionProtocol() {
+    }
+
+    /**
+     * @param value
+     * @return true if the value can be sent to other nodes
+     */
+    static boolean isSupported(Object value) {
+        return value instanceof CachedEmployee || value instanceof CachedAccount;
+    }
+
+    static BinaryFormat.Writer request(int op, String cacheName, long key) {
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(32);
+        writer.writeByte(op);
+        writer.writeString(cacheName);
+        writer.writeVarLong(key);
+        return writer;
+    }
+
+    static void writeValue(BinaryFormat.Writer writer, Object value) {
+        if (value instanceof CachedEmployee) {
+            writer.writeByte(EMPLOYEE);
+            CachedEmployeeSerializer.write(writer, (CachedEmployee) value);
+        } else if (value instanceof CachedAccount) {
+            writer.writeByte(ACCOUNT);
+            CachedAccountSerializer.write(writer, (CachedAccount) value);
+        } else {
+            throw new IllegalArgumentException("Unsupported value : " + (value == null ? null : value.getClass()));
+        }
+    }
+
+    static Object readValue(ByteBuffer buffer) throws IOException {
+        int type = buffer.get();
+        switch (type) {
+            case EMPLOYEE:
+                return CachedEmployeeSerializer.read0(buffer);
+            case ACCOUNT:
+                return CachedAccountSerializer.read0(buffer);
+            default:
+                throw new IOException("Unknown value type : " + type);
+        }
+    }
+
+    static void writeFrame(DataOutputStream out, BinaryFormat.Writer writer) throws IOException {
+        out.writeInt(writer.size());
+        out.write(writer.array(), 0, writer.size());
+        out.flush();
+    }
+
+    /**
+     * @return payload of the next frame
+     * @throws java.io.EOFException if the connection is closed by the peer
+     */
+    static ByteBuffer readFrame(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size <= 0 || size > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid frame size : " + size);
+        }
+        byte[] payload = new byte[size];
+        in.readFully(payload);
+        return ByteBuffer.wrap(payload);
+    }
+}
@@ -0,0 +1,217 @@
+package jp.co.axa.apidemo.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Serves the partition of the partitioned caches owned by this node to other nodes (PartitionProtocol).
+ *  Requests are applied to the local caches (PartitionedCacheManager.getTarget()), never forwarded.
+ *  Each connection is served by a thread while it's open. Connections over the limit are closed.
+ *  It starts before CacheWarmer (phase 0), so that other nodes can fill this node's partition on their startup.
+ */
+@Slf4j
+public class PartitionServer implements SmartLifecycle {
+
+    private final CacheManager localCacheManager;
+    private final Set<String> cacheNames;
+    private final InetSocketAddress address;
+    private final int maxConnections;
+
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile ServerSocket serverSocket;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * @param localCacheManager CacheManager of caches owned by this node
+     * @param cacheNames names of partitioned caches that can be called
+     * @param address address to listen on
+     * @param maxConnections max number of connections served at the same time
+     */
+    public PartitionServer(CacheManager localCacheManager, Set<String> cacheNames, InetSocketAddress address,
+                           int maxConnections) {
+        this.localCacheManager = localCacheManager;
+        this.cacheNames = cacheNames;
+        this.address = address;
+        this.maxConnections = maxConnections;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (serverSocket != null) {
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-partition-");
+        threadFactory.setDaemon(true);
+        executor = new ThreadPoolExecutor(1, maxConnections + 1, 60, TimeUnit.SECONDS,
+                                          new SynchronousQueue<>(), threadFactory);
+        try {
+            ServerSocket socket = new ServerSocket();
+            socket.setReuseAddress(true);
+            socket.bind(address);
+            serverSocket = socket;
+        } catch (IOException e) {
+            executor.shutdown();
+            throw new IllegalStateException("Failed to listen on " + address, e);
+        }
+        executor.execute(this::accept);
+        log.info("Partition cache server started on " + address + " : " + cacheNames);
+    }
+
+    @Override
+    public synchronized void stop() {
+        ServerSocket socket = serverSocket;
+        if (socket == null) {
+            return;
+        }
+        serverSocket = null;
+        close(socket);
+        connections.forEach(this::close);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return serverSocket != null;
+    }
+
+    @Override
+    public int getPhase() {
+        return -1;
+    }
+
+    /**
+     * @return port listened on (the actual port if 0 was given), or -1 if not running
+     */
+    public int getPort() {
+        ServerSocket socket = serverSocket;
+        return socket == null ? -1 : socket.getLocalPort();
+    }
+
+    private void accept() {
+        ServerSocket socket;
+        while ((socket = serverSocket) != null) {
+            try {
+                Socket connection = socket.accept();
+                if (connections.size() >= maxConnections) {
+                    log.warn("Partition cache connection refused (too many connections) : " + connection.getRemoteSocketAddress());
+                    close(connection);
+                    continue;
+                }
+                connections.add(connection);
+                executor.execute(() -> serve(connection));
+            } catch (RejectedExecutionException e) {
+                log.debug("Partition cache server is stopping");
+            } catch (IOException e) {
+                if (serverSocket != null) {
+                    log.warn("Failed to accept partition cache connection : " + e.toString());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        try {
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            while (!connection.isClosed()) {
+                PartitionProtocol.writeFrame(out, handle(PartitionProtocol.readFrame(in)));
+            }
+        } catch (EOFException | SocketException e) {
+            // Closed by the client or by stop()
+        } catch (IOException e) {
+            log.debug("Partition cache connection failed : " + e.toString());
+        } finally {
+            connections.remove(connection);
+            close(connection);
+        }
+    }
+
+    /**
+     * @param request
+     * @return response to the request
+     */
+    BinaryFormat.Writer handle(ByteBuffer request) {
+        BinaryFormat.Writer response = new BinaryFormat.Writer(32);
+        try {
+            int op = request.get();
+            String cacheName = BinaryFormat.readString(request);
+            long key = BinaryFormat.readVarLong(request);
+            Cache cache = cacheNames.contains(cacheName) ? localCacheManager.getCache(cacheName) : null;
+            if (cache == null) {
+                throw new IllegalArgumentException("Unknown cache : " + cacheName);
+            }
+            switch (op) {
+                case PartitionProtocol.GET:
+                    Cache.ValueWrapper wrapper = cache.get(key);
+                    if (wrapper != null && PartitionProtocol.isSupported(wrapper.get())) {
+                        response.writeByte(PartitionProtocol.HIT);
+                        PartitionProtocol.writeValue(response, wrapper.get());
+                    } else {
+                        response.writeByte(PartitionProtocol.MISS);
+                    }
+                    break;
+                case PartitionProtocol.PUT:
+                    cache.put(key, PartitionProtocol.readValue(request));
+                    response.writeByte(PartitionProtocol.OK);
+                    break;
+                case PartitionProtocol.PUT_IF_ABSENT:
+                    Cache.ValueWrapper existing = cache.putIfAbsent(key, PartitionProtocol.readValue(request));
+                    if (existing != null && PartitionProtocol.isSupported(existing.get())) {
+                        response.writeByte(PartitionProtocol.HIT);
+                        PartitionProtocol.writeValue(response, existing.get());
+                    } else {
+                        response.writeByte(PartitionProtocol.OK);
+                    }
+                    break;
+                case PartitionProtocol.EVICT:
+                    cache.evict(key);
+                    response.writeByte(PartitionProtocol.OK);
+                    break;
+                case PartitionProtocol.CLEAR:
+                    cache.clear();
+                    response.writeByte(PartitionProtocol.OK);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown op : " + op);
+            }
+        } catch (Exception e) {
+            log.debug("Partition cache request failed : " + e.toString());
+            response = new BinaryFormat.Writer(64);
+            response.writeByte(PartitionProtocol.ERROR);
+            response.writeString(String.valueOf(e.getMessage()));
+        }
+        return response;
+    }
+
+    private void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Failed to close : " + e.toString());
+        }
+    }
+}
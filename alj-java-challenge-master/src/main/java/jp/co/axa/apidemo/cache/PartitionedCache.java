@@ -0,0 +1,253 @@
+package jp.co.axa.apidemo.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jp.co.axa.apidemo.dto.CacheTierStatistics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Cache partitioned across nodes by a consistent-hash ring of IDs (Long keys).
+ *    - Keys owned by this node (and keys that are not Long) are kept on the target cache of this node
+ *    - Keys owned by other nodes are read from and written to the owner (PartitionClient), and values read are
+ *      kept on a small local near cache for a short time. Writes by other nodes are seen after it expires
+ *    - Values loaded on a miss are written to the owner only if it doesn't have the key yet, so they don't overwrite
+ *      a newer value written by the node that changed the entity meanwhile
+ *    - Clear is sent to all nodes. Near caches of other nodes keep their entries until they expire
+ *    - If the owner is down, values are loaded on this node and kept only on the near cache
+ *  Each node keeps only its own partition, so the total capacity grows with the number of nodes.
+ */
+@Slf4j
+public class PartitionedCache implements Cache {
+
+    private final Cache target;
+    private final ConsistentHashRing ring;
+    private final String self;
+    private final PartitionClient client;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> near;
+
+    private final LongAdder ownerHits = new LongAdder();
+    private final LongAdder ownerMisses = new LongAdder();
+
+    /**
+     * @param target cache of the partition owned by this node
+     * @param ring owners of keys
+     * @param self name of this node on the ring
+     * @param client client to call owners
+     * @param nearBuilder settings of the near cache (size, expiry)
+     */
+    public PartitionedCache(Cache target, ConsistentHashRing ring, String self, PartitionClient client,
+                            Caffeine<Object, Object> nearBuilder) {
+        this.target = target;
+        this.ring = ring;
+        this.self = self;
+        this.client = client;
+        this.near = nearBuilder.recordStats().build();
+    }
+
+    /**
+     * @param key
+     * @return owner of the key if it's another node, or null if the key is kept on this node
+     */
+    String remoteOwner(Object key) {
+        if (!(key instanceof Long)) {
+            return null;
+        }
+        String owner = ring.ownerOf((Long) key);
+        return self.equals(owner) ? null : owner;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String owner = remoteOwner(key);
+        if (owner == null) {
+            return target.get(key);
+        }
+        Object value = getRemote(owner, key);
+        return value == null ? null : new SimpleValueWrapper(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        String owner = remoteOwner(key);
+        if (owner == null) {
+            return target.get(key, type);
+        }
+        Object value = getRemote(owner, key);
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String owner = remoteOwner(key);
+        if (owner == null) {
+            return target.get(key, valueLoader);
+        }
+        Object cached = getRemote(owner, key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        Object existing = putIfAbsentRemote(owner, key, value);
+        return existing != null ? (T) existing : value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String owner = remoteOwner(key);
+        if (owner == null) {
+            target.put(key, value);
+        } else {
+            putRemote(owner, key, value);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        String owner = remoteOwner(key);
+        if (owner == null) {
+            return target.putIfAbsent(key, value);
+        }
+        Object existing = putIfAbsentRemote(owner, key, value);
+        return existing == null ? null : new SimpleValueWrapper(existing);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String owner = remoteOwner(key);
+        if (owner == null) {
+            target.evict(key);
+            return;
+        }
+        near.invalidate(key);
+        try {
+            client.evict(owner, getName(), (Long) key);
+        } catch (IOException e) {
+            log.debug("Failed to evict " + key + " on " + owner + " : " + e.toString());
+        }
+    }
+
+    /**
+     * Clear the partition of this node, the near cache and the partitions of other nodes.
+     * Other nodes that can't be called keep their partition until the entries expire.
+     */
+    @Override
+    public void clear() {
+        target.clear();
+        near.invalidateAll();
+        for (String node : ring.getNodes()) {
+            if (self.equals(node)) {
+                continue;
+            }
+            try {
+                client.clear(node, getName());
+            } catch (IOException e) {
+                log.warn("Failed to clear " + getName() + " on " + node + " : " + e.toString());
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return target.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return target.getNativeCache();
+    }
+
+    /**
+     * @return cache of the partition owned by this node
+     */
+    public Cache getTarget() {
+        return target;
+    }
+
+    /**
+     * @return hits and misses of keys owned by other nodes on the near cache and on the owners
+     *         (failed calls to owners are misses)
+     */
+    public List<CacheTierStatistics> getTierStatistics() {
+        CacheStats stats = near.stats();
+        return Arrays.asList(new CacheTierStatistics("near (caffeine)", stats.hitCount(), stats.missCount()),
+                             new CacheTierStatistics("owner (remote)", ownerHits.sum(), ownerMisses.sum()));
+    }
+
+    private Object getRemote(String owner, Object key) {
+        Object value = near.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        try {
+            value = client.get(owner, getName(), (Long) key);
+        } catch (IOException e) {
+            log.debug("Failed to get " + key + " from " + owner + " : " + e.toString());
+            value = null;
+        }
+        if (value == null) {
+            ownerMisses.increment();
+            return null;
+        }
+        ownerHits.increment();
+        near.put(key, value);
+        return value;
+    }
+
+    /**
+     * @return value the owner already has, or null if the value is written on the owner (or the owner is down)
+     */
+    private Object putIfAbsentRemote(String owner, Object key, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (!PartitionProtocol.isSupported(value)) {
+            log.debug("Value of " + key + " can't be sent to " + owner + " : " + value.getClass().getName());
+            return null;
+        }
+        Object existing;
+        try {
+            existing = client.putIfAbsent(owner, getName(), (Long) key, value);
+        } catch (IOException e) {
+            log.debug("Failed to put " + key + " on " + owner + " : " + e.toString());
+            existing = null;
+        }
+        near.put(key, existing != null ? existing : value);
+        return existing;
+    }
+
+    private void putRemote(String owner, Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        if (!PartitionProtocol.isSupported(value)) {
+            log.debug("Value of " + key + " can't be sent to " + owner + " : " + value.getClass().getName());
+            near.invalidate(key);
+            return;
+        }
+        near.put(key, value);
+        try {
+            client.put(owner, getName(), (Long) key, value);
+        } catch (IOException e) {
+            log.debug("Failed to put " + key + " on " + owner + " : " + e.toString());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package jp.co.axa.apidemo.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *  CacheManager decorator that returns caches partitioned across nodes (PartitionedCache) for the given names.
+ *  Other caches (e.g. lists of all employees) are returned as they are, so every node keeps them.
+ *  The partition of this node is served to other nodes by PartitionServer.
+ */
+public class PartitionedCacheManager implements CacheManager {
+
+    private final CacheManager target;
+    private final Set<String> partitionedCacheNames;
+    private final ConsistentHashRing ring;
+    private final String self;
+    private final PartitionClient client;
+    private final long nearMaximumSize;
+    private final Duration nearExpireAfterWrite;
+
+    private final ConcurrentMap<String, PartitionedCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param target CacheManager of caches of this node
+     * @param partitionedCacheNames names of caches to partition
+     * @param ring owners of keys
+     * @param self name of this node on the ring
+     * @param client client to call owners
+     * @param nearMaximumSize max number of entries owned by other nodes kept on each cache
+     * @param nearExpireAfterWrite time to keep an entry owned by another node
+     */
+    public PartitionedCacheManager(CacheManager target, Set<String> partitionedCacheNames, ConsistentHashRing ring,
+                                   String self, PartitionClient client, long nearMaximumSize,
+                                   Duration nearExpireAfterWrite) {
+        this.target = target;
+        this.partitionedCacheNames = partitionedCacheNames;
+        this.ring = ring;
+        this.self = self;
+        this.client = client;
+        this.nearMaximumSize = nearMaximumSize;
+        this.nearExpireAfterWrite = nearExpireAfterWrite;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        if (!partitionedCacheNames.contains(name)) {
+            return target.getCache(name);
+        }
+        PartitionedCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache targetCache = target.getCache(name);
+        if (targetCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> new PartitionedCache(targetCache, ring, self, client,
+                                                                        Caffeine.newBuilder()
+                                                                                .maximumSize(nearMaximumSize)
+                                                                                .expireAfterWrite(nearExpireAfterWrite)));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return target.getCacheNames();
+    }
+
+    /**
+     * @return decorated CacheManager (caches of this node)
+     */
+    public CacheManager getTarget() {
+        return target;
+    }
+
+    public Set<String> getPartitionedCacheNames() {
+        return partitionedCacheNames;
+    }
+
+    /**
+     * @param cacheManager CacheManager that may decorate PartitionedCacheManager
+     *                     (by SingleFlightCacheManager and RefreshAheadCacheManager)
+     * @return PartitionedCacheManager, or null if caches are not partitioned
+     */
+    public static PartitionedCacheManager find(CacheManager cacheManager) {
+        CacheManager manager = cacheManager;
+        if (manager instanceof SingleFlightCacheManager) {
+            manager = ((SingleFlightCacheManager) manager).getTarget();
+        }
+        if (manager instanceof RefreshAheadCacheManager) {
+            manager = ((RefreshAheadCacheManager) manager).getTarget();
+        }
+        return manager instanceof PartitionedCacheManager ? (PartitionedCacheManager) manager : null;
+    }
+}
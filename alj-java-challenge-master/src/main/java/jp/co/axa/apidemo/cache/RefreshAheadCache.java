@@ -0,0 +1,179 @@
+package jp.co.axa.apidemo.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ *  Cache that reloads entries in background before they expire (refresh-ahead, stale-while-revalidate).
+ *    - Each entry gets a refresh time (refresh factor of TTL +/- jitter) when it's loaded, written or first read
+ *    - A read after the refresh time still returns the cached value, and the entry is reloaded by the loader
+ *      in background and written to the target cache (which restarts its TTL). Only one reload per key runs at a time
+ *    - Entries that aren't read before they expire are not reloaded
+ *  The loader of the cache is resolved on each read (null until it's registered), so services can register it
+ *  after the cache is created.
+ */
+@Slf4j
+public class RefreshAheadCache implements Cache {
+
+    // Refresh time of the entry being reloaded
+    private static final Long IN_FLIGHT = Long.MAX_VALUE;
+
+    private final Cache target;
+    private final Supplier<Function<Object, Object>> loader;
+    private final long refreshNanos;
+    private final long jitterNanos;
+    private final Executor executor;
+    private final Ticker ticker;
+
+    // Key -> refresh time (nanos of ticker). Removed after TTL, when the entry has expired on the target as well
+    private final Map<Object, Long> refreshTimes;
+
+    /**
+     * @param target cache with TTL
+     * @param loader loader of the cache (key -> value, or null if the key doesn't exist anymore)
+     * @param ttl TTL of the target cache
+     * @param refreshFactor entries are reloaded when read after this ratio of TTL (e.g. 0.75)
+     * @param jitter ratio of refresh time added or subtracted randomly (e.g. 0.1)
+     * @param executor runs reloads
+     * @param ticker time source
+     */
+    public RefreshAheadCache(Cache target, Supplier<Function<Object, Object>> loader, Duration ttl,
+                             double refreshFactor, double jitter, Executor executor, Ticker ticker) {
+        this.target = target;
+        this.loader = loader;
+        this.refreshNanos = (long) (ttl.toNanos() * refreshFactor);
+        this.jitterNanos = (long) (refreshNanos * jitter);
+        this.executor = executor;
+        this.ticker = ticker;
+        this.refreshTimes = Caffeine.newBuilder().expireAfterWrite(ttl).ticker(ticker).<Object, Long>build().asMap();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = target.get(key);
+        if (wrapper != null) {
+            refreshIfDue(key);
+        }
+        return wrapper;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        T value = target.get(key, type);
+        if (value != null) {
+            refreshIfDue(key);
+        }
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        boolean[] loaded = new boolean[1];
+        T value = target.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        if (loaded[0]) {
+            refreshTimes.put(key, nextRefreshTime());
+        } else {
+            refreshIfDue(key);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        target.put(key, value);
+        refreshTimes.put(key, nextRefreshTime());
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = target.putIfAbsent(key, value);
+        refreshTimes.putIfAbsent(key, nextRefreshTime());
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        target.evict(key);
+        refreshTimes.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        target.clear();
+        refreshTimes.clear();
+    }
+
+    @Override
+    public String getName() {
+        return target.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return target.getNativeCache();
+    }
+
+    /**
+     * @return decorated cache
+     */
+    public Cache getTarget() {
+        return target;
+    }
+
+    /**
+     * Start a reload of the key if its refresh time has passed and no reload of it is running
+     */
+    private void refreshIfDue(Object key) {
+        Function<Object, Object> keyLoader = loader.get();
+        if (keyLoader == null) {
+            return;
+        }
+        Long refreshTime = refreshTimes.computeIfAbsent(key, k -> nextRefreshTime());
+        if (IN_FLIGHT.equals(refreshTime) || refreshTime - ticker.read() > 0
+            || !refreshTimes.replace(key, refreshTime, IN_FLIGHT)) {
+            return;
+        }
+        try {
+            executor.execute(() -> reload(key, keyLoader));
+        } catch (RejectedExecutionException e) {
+            // Too many reloads. The entry is served until it expires
+            log.debug("Refresh of " + getName() + " is skipped : key = " + key);
+        }
+    }
+
+    private void reload(Object key, Function<Object, Object> keyLoader) {
+        try {
+            Object value = keyLoader.apply(key);
+            // Not written if the entry was written or evicted during the reload
+            if (refreshTimes.replace(key, IN_FLIGHT, nextRefreshTime())) {
+                if (value == null) {
+                    target.evict(key);
+                } else {
+                    target.put(key, value);
+                }
+            }
+        } catch (RuntimeException e) {
+            refreshTimes.remove(key, IN_FLIGHT);
+            log.warn("Failed to refresh " + getName() + " : key = " + key + ", exception = " + e.toString());
+        }
+    }
+
+    private Long nextRefreshTime() {
+        long jitter = jitterNanos <= 0 ? 0 : ThreadLocalRandom.current().nextLong(-jitterNanos, jitterNanos + 1);
+        return ticker.read() + refreshNanos + jitter;
+    }
+}
@@ -0,0 +1,95 @@
+package jp.co.axa.apidemo.cache;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ *  CacheManager decorator that returns caches reloading entries before they expire (RefreshAheadCache).
+ *  Caches are refreshed only after their loader is registered by registerLoader().
+ *  Reloads run on a small pool of daemon threads, and are skipped when its queue is full.
+ */
+public class RefreshAheadCacheManager implements CacheManager {
+
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private final CacheManager target;
+    private final Function<String, Duration> ttls;
+    private final double refreshFactor;
+    private final double jitter;
+    private final ExecutorService executor;
+
+    private final ConcurrentMap<String, RefreshAheadCache> caches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Function<Object, Object>> loaders = new ConcurrentHashMap<>();
+
+    /**
+     * @param target CacheManager of caches with TTL
+     * @param ttls cache name -> TTL of the target cache
+     * @param refreshFactor entries are reloaded when read after this ratio of TTL
+     * @param jitter ratio of refresh time added or subtracted randomly
+     * @param threads number of threads to reload entries
+     */
+    public RefreshAheadCacheManager(CacheManager target, Function<String, Duration> ttls, double refreshFactor,
+                                    double jitter, int threads) {
+        this.target = target;
+        this.ttls = ttls;
+        this.refreshFactor = refreshFactor;
+        this.jitter = jitter;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-refresh-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        RefreshAheadCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache targetCache = target.getCache(name);
+        if (targetCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> new RefreshAheadCache(targetCache, () -> loaders.get(name), ttls.apply(name),
+                                                                         refreshFactor, jitter, executor, Ticker.systemTicker()));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return target.getCacheNames();
+    }
+
+    /**
+     * @return decorated CacheManager
+     */
+    public CacheManager getTarget() {
+        return target;
+    }
+
+    /**
+     * Register the loader used to reload entries of the cache, if the CacheManager (or the CacheManager decorated
+     * by SingleFlightCacheManager) refreshes ahead. Otherwise nothing is done.
+     * @param cacheManager
+     * @param cacheName
+     * @param loader key -> value to cache, or null if the key doesn't exist anymore
+     */
+    public static void registerLoader(CacheManager cacheManager, String cacheName, Function<Object, Object> loader) {
+        CacheManager manager = cacheManager instanceof SingleFlightCacheManager
+                               ? ((SingleFlightCacheManager) cacheManager).getTarget() : cacheManager;
+        if (manager instanceof RefreshAheadCacheManager) {
+            ((RefreshAheadCacheManager) manager).loaders.put(cacheName, loader);
+        }
+    }
+}
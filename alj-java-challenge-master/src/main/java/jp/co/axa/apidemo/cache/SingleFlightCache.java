@@ -0,0 +1,156 @@
+package jp.co.axa.apidemo.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Cache decorator that loads a missing key only once at a time (single-flight).
+ *  On a miss, the first caller runs the loader and other callers of the same key wait for its result,
+ *  so an expired entry doesn't send every concurrent request to DB.
+ *  It applies to @Cacheable(sync = true), which calls get(key, valueLoader).
+ *  Put/evict of the key detaches the load in progress, so later callers don't wait for a value loaded before the change,
+ *  and the detached load doesn't write its value on the cache.
+ */
+public class SingleFlightCache implements Cache {
+
+    private final Cache target;
+
+    // Key -> result of the load in progress
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+
+    public SingleFlightCache(Cache target) {
+        this.target = target;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        // Cached values are immutable and returned as they are. Non-null value is read without ValueWrapper
+        Object value = target.get(key, (Class<Object>) null);
+        if (value != null) {
+            return (T) value;
+        }
+        ValueWrapper cached = target.get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalescedLoads.increment();
+            return (T) await(key, valueLoader, running);
+        }
+
+        try {
+            // Another caller may have loaded it just before this load started
+            cached = target.get(key);
+            if (cached != null) {
+                future.complete(cached.get());
+            } else {
+                loads.increment();
+                T loaded = valueLoader.call();
+                // Write back only if the load is still in flight. A put/evict during the load has detached it,
+                // and the loaded value may be older than that change. It's checked and written under the lock
+                // of the key on inFlight, so a put/evict can't come in between
+                inFlight.computeIfPresent(key, (k, current) -> {
+                    if (current != future) {
+                        return current;
+                    }
+                    target.put(key, loaded);
+                    return null;
+                });
+                future.complete(loaded);
+            }
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, future);
+        }
+        return (T) await(key, valueLoader, future);
+    }
+
+    private Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    /**
+     * @return number of loads run by this cache
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * @return number of callers that waited for the load of another caller instead of loading by themselves
+     */
+    public long getCoalescedLoads() {
+        return coalescedLoads.sum();
+    }
+
+    /**
+     * @return decorated cache
+     */
+    public Cache getTarget() {
+        return target;
+    }
+
+    @Override
+    public String getName() {
+        return target.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return target.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return target.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return target.get(key, type);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        inFlight.remove(key);
+        target.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return target.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        inFlight.remove(key);
+        target.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        inFlight.clear();
+        target.clear();
+    }
+}
@@ -0,0 +1,76 @@
+package jp.co.axa.apidemo.cache;
+
+import jp.co.axa.apidemo.dto.CacheStatistics;
+import jp.co.axa.apidemo.dto.CacheTierStatistics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *  CacheManager decorator that returns caches wrapped by SingleFlightCache.
+ *  Wrapped cache is kept per name, so its in-flight loads and counters are shared by all callers.
+ */
+public class SingleFlightCacheManager implements CacheManager {
+
+    private final CacheManager target;
+
+    private final ConcurrentMap<String, SingleFlightCache> caches = new ConcurrentHashMap<>();
+
+    public SingleFlightCacheManager(CacheManager target) {
+        this.target = target;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        SingleFlightCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache targetCache = target.getCache(name);
+        if (targetCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> new SingleFlightCache(targetCache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return target.getCacheNames();
+    }
+
+    /**
+     * @return load statistics (and hit statistics of each tier if it has L1 or is partitioned) of caches that have been used,
+     *         ordered by cache name
+     */
+    public List<CacheStatistics> getStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        for (SingleFlightCache cache : caches.values()) {
+            Cache target = cache.getTarget() instanceof RefreshAheadCache
+                           ? ((RefreshAheadCache) cache.getTarget()).getTarget() : cache.getTarget();
+            List<CacheTierStatistics> tiers = new ArrayList<>();
+            if (target instanceof PartitionedCache) {
+                tiers.addAll(((PartitionedCache) target).getTierStatistics());
+                target = ((PartitionedCache) target).getTarget();
+            }
+            if (target instanceof TwoTierCache) {
+                tiers.addAll(((TwoTierCache) target).getTierStatistics());
+            }
+            statistics.add(new CacheStatistics(cache.getName(), cache.getLoads(), cache.getCoalescedLoads(), tiers));
+        }
+        statistics.sort(Comparator.comparing(CacheStatistics::getCacheName));
+        return statistics;
+    }
+
+    /**
+     * @return decorated CacheManager
+     */
+    public CacheManager getTarget() {
+        return target;
+    }
+}
@@ -0,0 +1,145 @@
+package jp.co.axa.apidemo.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jp.co.axa.apidemo.dto.CacheTierStatistics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Cache with a small local L1 (Caffeine, W-TinyLFU eviction) in front of the target cache (Ehcache as L2).
+ *    - Read : L1, then L2 on L1 miss. Value found on L2 is kept on L1
+ *    - Write (put/evict/clear) : L2 first, then L1, so L1 never has a value older than L2 after the write
+ *    - Entries read on L1 after refresh period are reloaded from L2 in background (the old value is served meanwhile),
+ *      and removed from L1 if L2 doesn't have them anymore (e.g. expired on L2)
+ *  Frequently used keys stay on L1 even if they are pushed out of the heap tier of L2 by one-off reads.
+ */
+public class TwoTierCache implements Cache {
+
+    private final Cache target;
+
+    // Key -> value on L2 (NullValue for null)
+    private final LoadingCache<Object, Object> local;
+
+    private final LongAdder targetHits = new LongAdder();
+    private final LongAdder targetMisses = new LongAdder();
+
+    /**
+     * @param target L2 cache
+     * @param localBuilder settings of L1 (size, expiry, refresh etc.)
+     */
+    public TwoTierCache(Cache target, Caffeine<Object, Object> localBuilder) {
+        this.target = target;
+        this.local = localBuilder.recordStats().build(this::loadFromTarget);
+    }
+
+    /**
+     * Read the key from L2 for L1 (on L1 miss and on refresh)
+     * @return value to keep on L1, or null if L2 doesn't have the key
+     */
+    private Object loadFromTarget(Object key) {
+        ValueWrapper wrapper = target.get(key);
+        if (wrapper == null) {
+            targetMisses.increment();
+            return null;
+        }
+        targetHits.increment();
+        return toLocal(wrapper.get());
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object value = local.get(key);
+        return value == null ? null : new SimpleValueWrapper(fromLocal(value));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        Object value = local.get(key);
+        value = value == null ? null : fromLocal(value);
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = local.get(key);
+        if (cached != null) {
+            return (T) fromLocal(cached);
+        }
+        T value = target.get(key, valueLoader);
+        local.put(key, toLocal(value));
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        target.put(key, value);
+        local.put(key, toLocal(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = target.putIfAbsent(key, value);
+        // Value on L2 is taken on the next read
+        local.invalidate(key);
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        target.evict(key);
+        local.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        target.clear();
+        local.invalidateAll();
+    }
+
+    @Override
+    public String getName() {
+        return target.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return target.getNativeCache();
+    }
+
+    /**
+     * @return hits and misses on L1 (Caffeine) and L2 (Ehcache, reads on L1 miss and refresh)
+     */
+    public List<CacheTierStatistics> getTierStatistics() {
+        CacheStats stats = local.stats();
+        return Arrays.asList(new CacheTierStatistics("L1 (caffeine)", stats.hitCount(), stats.missCount()),
+                             new CacheTierStatistics("L2 (ehcache)", targetHits.sum(), targetMisses.sum()));
+    }
+
+    /**
+     * @return number of entries on L1 (approximate)
+     */
+    public long getLocalSize() {
+        return local.estimatedSize();
+    }
+
+    private static Object toLocal(Object value) {
+        return value == null ? NullValue.INSTANCE : value;
+    }
+
+    private static Object fromLocal(Object value) {
+        return value == NullValue.INSTANCE ? null : value;
+    }
+}
@@ -0,0 +1,65 @@
+package jp.co.axa.apidemo.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *  CacheManager decorator that returns caches with a local L1 (TwoTierCache) in front of the target caches.
+ *  Each cache has its own L1 of the same settings.
+ */
+public class TwoTierCacheManager implements CacheManager {
+
+    private final CacheManager target;
+    private final long maximumSize;
+    private final Duration expireAfterWrite;
+    private final Duration refreshAfterWrite;
+
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param target L2 CacheManager
+     * @param maximumSize max number of entries on L1 of each cache
+     * @param expireAfterWrite L1 entry is removed after this time from when it's taken from L2 or written
+     * @param refreshAfterWrite L1 entry read after this time is reloaded from L2 in background
+     */
+    public TwoTierCacheManager(CacheManager target, long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite) {
+        this.target = target;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.refreshAfterWrite = refreshAfterWrite;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoTierCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache targetCache = target.getCache(name);
+        if (targetCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> new TwoTierCache(targetCache, Caffeine.newBuilder()
+                                                                                   .maximumSize(maximumSize)
+                                                                                   .expireAfterWrite(expireAfterWrite)
+                                                                                   .refreshAfterWrite(refreshAfterWrite)));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return target.getCacheNames();
+    }
+
+    /**
+     * @return decorated CacheManager
+     */
+    public CacheManager getTarget() {
+        return target;
+    }
+}
@@ -0,0 +1,51 @@
+package jp.co.axa.apidemo.cache;
+
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *  Cached list with the version of changes that are applied to it (value of list caches).
+ */
+@EqualsAndHashCode
+public class VersionedList<T> implements Serializable {
+
+    private static final long serialVersionUID = 6630297715391209741L;
+
+    private final long version;
+
+    private final ArrayList<T> items;
+
+    public VersionedList(long version, List<T> items) {
+        this(version, new ArrayList<>(items));
+    }
+
+    private VersionedList(long version, ArrayList<T> items) {
+        this.version = version;
+        this.items = items;
+    }
+
+    /**
+     * Create with the list as it is (without copy). The caller must not change the list after this.
+     * @param version
+     * @param items list that was built for this VersionedList only
+     * @return VersionedList
+     */
+    static <T> VersionedList<T> of(long version, ArrayList<T> items) {
+        return new VersionedList<>(version, items);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return read-only view of the items
+     */
+    public List<T> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+}
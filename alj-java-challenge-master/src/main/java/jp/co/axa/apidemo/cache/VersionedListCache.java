@@ -0,0 +1,190 @@
+package jp.co.axa.apidemo.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ *  List cache (e.g. all employees) that is patched by each change instead of being evicted.
+ *    - The list is ordered by ID, and each change inserts, replaces or removes items by ID on a copy of the list
+ *    - Every change increments the version, and the cached list keeps the version it reflects.
+ *      A list loaded from DB gets the version taken before the load, so a list that missed a change
+ *      (loaded while the change was being applied) has an old version and is reloaded instead of being served.
+ *    - Changes must be applied after commit, in the order of the versions (serialized by lock). Reads don't lock.
+ *  If the cache is not available, the list is loaded from DB every time.
+ */
+public class VersionedListCache<T> {
+
+    // Same key as @Cacheable on a method without parameters
+    private static final Object KEY = SimpleKey.EMPTY;
+
+    private final Supplier<Cache> cacheSupplier;
+    private final Function<T, Long> idOf;
+    private final Function<T, Long> versionOf;
+    private final Comparator<T> byId;
+
+    private final AtomicLong version = new AtomicLong();
+    private final Object lock = new Object();
+
+    /**
+     * @param cacheSupplier cache to store the list (resolved on each access, null if not available)
+     * @param idOf ID of item
+     * @param versionOf version of item (replacement by older version is ignored)
+     */
+    public VersionedListCache(Supplier<Cache> cacheSupplier, Function<T, Long> idOf, Function<T, Long> versionOf) {
+        this.cacheSupplier = cacheSupplier;
+        this.idOf = idOf;
+        this.versionOf = versionOf;
+        this.byId = Comparator.comparing(idOf, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Return the cached list, or load it if it's not cached or out of date
+     * @param loader load all items from DB
+     * @return read-only list ordered by ID
+     */
+    public List<T> get(Supplier<List<T>> loader) {
+        Cache cache = cacheSupplier.get();
+        if (cache == null) {
+            return sorted(loader.get());
+        }
+        for (int attempt = 0; attempt < 2; attempt++) {
+            long loadVersion = version.get();
+            VersionedList<T> cached = cache.get(KEY, () -> VersionedList.of(loadVersion, sorted(loader.get())));
+            if (cached != null && cached.getVersion() == version.get()) {
+                return cached.getItems();
+            }
+            if (cached != null && cached.getVersion() < version.get()) {
+                cache.evict(KEY);
+            }
+        }
+        // Changes keep coming during load. Serve from DB without caching
+        return Collections.unmodifiableList(sorted(loader.get()));
+    }
+
+    /**
+     * Load the list for refresh of the cached list. It has the version taken before the load,
+     * so it's reloaded on read if a change is applied during the load.
+     * @param loader load all items from DB
+     * @return list to cache
+     */
+    public VersionedList<T> reload(Supplier<List<T>> loader) {
+        long loadVersion = version.get();
+        return VersionedList.of(loadVersion, sorted(loader.get()));
+    }
+
+    /**
+     * @return version of the list (number of changes applied)
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Insert or replace the item by ID
+     * @param item
+     */
+    public void upsert(T item) {
+        upsertAll(Collections.singletonList(item));
+    }
+
+    /**
+     * Insert or replace items by ID
+     * @param items
+     */
+    public void upsertAll(Collection<T> items) {
+        apply(list -> {
+            for (T item : items) {
+                int index = Collections.binarySearch(list, item, byId);
+                if (index < 0) {
+                    list.add(-index - 1, item);
+                } else if (!isOlder(item, list.get(index))) {
+                    list.set(index, item);
+                }
+            }
+            return list;
+        });
+    }
+
+    /**
+     * Remove the item by ID
+     * @param id
+     */
+    public void remove(Long id) {
+        removeAll(Collections.singletonList(id));
+    }
+
+    /**
+     * Remove items by ID
+     * @param ids
+     */
+    public void removeAll(Collection<Long> ids) {
+        Set<Long> removed = new HashSet<>(ids);
+        apply(list -> {
+            list.removeIf(item -> removed.contains(idOf.apply(item)));
+            return list;
+        });
+    }
+
+    /**
+     * Drop the cached list when the change can't be applied to it (e.g. bulk update by SQL)
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            version.incrementAndGet();
+            Cache cache = cacheSupplier.get();
+            if (cache != null) {
+                cache.evict(KEY);
+            }
+        }
+    }
+
+    /**
+     * Apply the change to a copy of cached list and store it with the next version.
+     * The copy is made once and handed over to the new VersionedList as it is.
+     * If cached list is out of date, it's evicted instead.
+     */
+    @SuppressWarnings("unchecked")
+    private void apply(UnaryOperator<ArrayList<T>> change) {
+        synchronized (lock) {
+            long next = version.incrementAndGet();
+            Cache cache = cacheSupplier.get();
+            if (cache == null) {
+                return;
+            }
+            Cache.ValueWrapper wrapper = cache.get(KEY);
+            VersionedList<T> cached = wrapper == null ? null : (VersionedList<T>) wrapper.get();
+            if (cached == null) {
+                return;
+            }
+            if (cached.getVersion() != next - 1) {
+                cache.evict(KEY);
+                return;
+            }
+            cache.put(KEY, VersionedList.of(next, change.apply(new ArrayList<>(cached.getItems()))));
+        }
+    }
+
+    private boolean isOlder(T item, T current) {
+        Long itemVersion = versionOf.apply(item);
+        Long currentVersion = versionOf.apply(current);
+        return itemVersion != null && currentVersion != null && itemVersion < currentVersion;
+    }
+
+    private ArrayList<T> sorted(List<T> items) {
+        ArrayList<T> sorted = new ArrayList<>(items);
+        sorted.sort(byId);
+        return sorted;
+    }
+}
@@ -0,0 +1,114 @@
+package jp.co.axa.apidemo.cache;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  Ehcache serializer of VersionedList of CachedEmployee or CachedAccount for offheap and disk tiers.
+ *  Layout : format(1) [raw length if LZ4] body
+ *           body = version, element type(1), size, elements (same layout as CachedEmployee/CachedAccountSerializer)
+ *  This serializer doesn't compress. Lz4VersionedListSerializer compresses large lists,
+ *  and both of them read either format.
+ */
+@SuppressWarnings("rawtypes")
+public class VersionedListSerializer implements Serializer<VersionedList> {
+
+    private static final int FORMAT_PLAIN = 1;
+    private static final int FORMAT_LZ4 = 2;
+
+    private static final int EMPTY = 0;
+    private static final int EMPLOYEE = 1;
+    private static final int ACCOUNT = 2;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    // Body larger than this size is compressed by LZ4 (Integer.MAX_VALUE to disable)
+    private final int compressionThreshold;
+
+    /**
+     * Constructor called by Ehcache
+     * @param classLoader not used
+     */
+    public VersionedListSerializer(ClassLoader classLoader) {
+        this(Integer.MAX_VALUE);
+    }
+
+    protected VersionedListSerializer(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public ByteBuffer serialize(VersionedList list) {
+        List<?> items = list.getItems();
+        BinaryFormat.Writer body = new BinaryFormat.Writer(16 + items.size() * 24);
+        body.writeVarLong(list.getVersion());
+        int type = items.isEmpty() ? EMPTY : items.get(0) instanceof CachedAccount ? ACCOUNT : EMPLOYEE;
+        body.writeByte(type);
+        body.writeVarLong(items.size());
+        for (Object item : items) {
+            if (type == EMPLOYEE && item instanceof CachedEmployee) {
+                CachedEmployeeSerializer.write(body, (CachedEmployee) item);
+            } else if (type == ACCOUNT && item instanceof CachedAccount) {
+                CachedAccountSerializer.write(body, (CachedAccount) item);
+            } else {
+                throw new SerializerException("Unsupported list item : " + (item == null ? null : item.getClass()));
+            }
+        }
+
+        if (body.size() > compressionThreshold) {
+            LZ4Compressor compressor = LZ4.fastCompressor();
+            BinaryFormat.Writer writer = new BinaryFormat.Writer(16 + compressor.maxCompressedLength(body.size()));
+            writer.writeByte(FORMAT_LZ4);
+            writer.writeVarLong(body.size());
+            byte[] compressed = new byte[compressor.maxCompressedLength(body.size())];
+            int length = compressor.compress(body.array(), 0, body.size(), compressed, 0, compressed.length);
+            if (length < body.size()) {
+                writer.writeBytes(compressed, 0, length);
+                return writer.toByteBuffer();
+            }
+        }
+        BinaryFormat.Writer writer = new BinaryFormat.Writer(1 + body.size());
+        writer.writeByte(FORMAT_PLAIN);
+        writer.writeBytes(body.array(), 0, body.size());
+        return writer.toByteBuffer();
+    }
+
+    @Override
+    public VersionedList read(ByteBuffer binary) {
+        int format = binary.get();
+        ByteBuffer body;
+        if (format == FORMAT_LZ4) {
+            int length = BinaryFormat.readVarInt(binary);
+            byte[] decompressed = new byte[length];
+            LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+            int read = decompressor.decompress(binary, binary.position(), ByteBuffer.wrap(decompressed), 0, length);
+            binary.position(binary.position() + read);
+            body = ByteBuffer.wrap(decompressed);
+        } else if (format == FORMAT_PLAIN) {
+            body = binary;
+        } else {
+            throw new SerializerException("Unknown format : " + format);
+        }
+
+        long version = BinaryFormat.readVarLong(body);
+        int type = body.get();
+        int size = BinaryFormat.readVarInt(body);
+        ArrayList<Object> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(type == ACCOUNT ? CachedAccountSerializer.read0(body) : CachedEmployeeSerializer.read0(body));
+        }
+        return VersionedList.of(version, items);
+    }
+
+    @Override
+    public boolean equals(VersionedList list, ByteBuffer binary) {
+        return list.equals(read(binary));
+    }
+}
@@ -0,0 +1,99 @@
+package jp.co.axa.apidemo.config;
+
+import jp.co.axa.apidemo.bulkhead.Bulkhead;
+import jp.co.axa.apidemo.bulkhead.BulkheadRequestMappingHandlerAdapter;
+import jp.co.axa.apidemo.bulkhead.BulkheadRoutes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+/**
+ *  Bulkheads of the servlet stack (bulkhead.enabled=true). Login (password check by bcrypt), admin API (account and
+ *  cache) and employee API run on their own bounded executors, so a burst of one of them can't use up
+ *  the request threads of the others. Request threads only hand requests off (or reject them with 503).
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "bulkhead.enabled", havingValue = "true")
+@Slf4j
+public class BulkheadConfig {
+
+    // API path (like /api/v1/)
+    @Value("${axa.java.challenge.api.path}")
+    private String apiPath = "";
+
+    // Max time a request waits on a bulkhead queue (milliseconds)
+    @Value("${bulkhead.max-wait:5000}")
+    private long maxWait;
+
+    @Value("${bulkhead.login.threads:4}")
+    private int loginThreads;
+
+    @Value("${bulkhead.login.queue:50}")
+    private int loginQueue;
+
+    @Value("${bulkhead.admin.threads:4}")
+    private int adminThreads;
+
+    @Value("${bulkhead.admin.queue:20}")
+    private int adminQueue;
+
+    @Value("${bulkhead.employee.threads:64}")
+    private int employeeThreads;
+
+    @Value("${bulkhead.employee.queue:500}")
+    private int employeeQueue;
+
+    @Bean(destroyMethod = "shutdown")
+    public Bulkhead loginBulkhead() {
+        return new Bulkhead("login", loginThreads, loginQueue, maxWait);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public Bulkhead adminBulkhead() {
+        return new Bulkhead("admin", adminThreads, adminQueue, maxWait);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public Bulkhead employeeBulkhead() {
+        return new Bulkhead("employee", employeeThreads, employeeQueue, maxWait);
+    }
+
+    /**
+     * Routes of bulkheads. Export API is excluded since it streams on the async request executor by itself.
+     * Login (token API) is run on loginBulkhead by BulkheadLoginFilter of DemoSecurityConfig, and refresh token API
+     * by the route below.
+     * @return BulkheadRoutes
+     */
+    @Bean
+    public BulkheadRoutes bulkheadRoutes() {
+        log.info("Bulkheads : login " + loginThreads + "/" + loginQueue + ", admin " + adminThreads + "/" + adminQueue
+                 + ", employee " + employeeThreads + "/" + employeeQueue + " (threads/queue)");
+        return new BulkheadRoutes()
+                .exclude(apiPath + "employees/export")
+                .route(apiPath + "token/**", loginBulkhead())
+                .route(apiPath + "account/**", adminBulkhead())
+                .route(apiPath + "cache/**", adminBulkhead())
+                .route(apiPath + "employees/**", employeeBulkhead());
+    }
+
+    /**
+     * Run controller methods on the bulkheads of their routes
+     * @param bulkheadRoutes
+     * @return WebMvcRegistrations
+     */
+    @Bean
+    public WebMvcRegistrations bulkheadWebMvcRegistrations(BulkheadRoutes bulkheadRoutes) {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new BulkheadRequestMappingHandlerAdapter(bulkheadRoutes);
+            }
+        };
+    }
+}
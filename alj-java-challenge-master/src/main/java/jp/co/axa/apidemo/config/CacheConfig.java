@@ -1,12 +1,212 @@
 package jp.co.axa.apidemo.config;
 
+import jp.co.axa.apidemo.CacheLogger;
+import jp.co.axa.apidemo.cache.CacheEventAggregator;
+import jp.co.axa.apidemo.cache.ConsistentHashRing;
+import jp.co.axa.apidemo.cache.JitteredExpiryPolicy;
+import jp.co.axa.apidemo.cache.PartitionClient;
+import jp.co.axa.apidemo.cache.PartitionServer;
+import jp.co.axa.apidemo.cache.PartitionedCacheManager;
+import jp.co.axa.apidemo.cache.RefreshAheadCacheManager;
+import jp.co.axa.apidemo.cache.SingleFlightCacheManager;
+import jp.co.axa.apidemo.cache.TwoTierCacheManager;
+import lombok.extern.slf4j.Slf4j;
+import org.ehcache.event.EventFiring;
+import org.ehcache.event.EventOrdering;
+import org.ehcache.event.EventType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
 
 /**
  *  ehcache config class that enables the caching by @EnableCaching
  */
 @Configuration
 @EnableCaching
+@Slf4j
 public class CacheConfig {
+
+    /**
+     * Decorate CacheManager (JCache/Ehcache by Spring Boot). From the outermost :
+     *   - SingleFlightCacheManager : concurrent misses of the same key are loaded only once (@Cacheable with sync = true)
+     *   - RefreshAheadCacheManager (cache.refresh-ahead.enabled) : entries read near expiry are reloaded from DB
+     *     in background by the loaders registered by services (RefreshAheadCacheManager.registerLoader)
+     *   - PartitionedCacheManager (cache.partition.enabled) : the given caches are partitioned across the nodes by
+     *     consistent hashing of IDs. Entries owned by other nodes are read from them (PartitionServer) and kept
+     *     on a small near cache
+     *   - TwoTierCacheManager (cache.l1.enabled) : a local Caffeine cache is put in front of each Ehcache cache as L1
+     * @param l1Enabled
+     * @param l1MaximumSize max number of entries on L1 of each cache
+     * @param l1ExpireAfterWrite seconds to keep an entry on L1
+     * @param l1RefreshAfterWrite seconds after which an entry read on L1 is reloaded from Ehcache in background
+     * @param refreshAheadEnabled
+     * @param refreshAheadTtl seconds of TTL of caches whose TTL can't be read from their Ehcache expiry
+     * @param refreshAheadFactor entries read after this ratio of TTL are reloaded
+     * @param refreshAheadJitter ratio of refresh time added or subtracted randomly
+     * @param refreshAheadThreads number of threads to reload entries
+     * @param partitionEnabled
+     * @param partitionNodes all nodes (host:port of PartitionServer). Every node must have the same list
+     * @param partitionSelf this node in partitionNodes
+     * @param partitionVirtualNodes number of points of each node on the hash ring
+     * @param partitionCaches names of caches to partition
+     * @param nearMaximumSize max number of entries owned by other nodes kept on each cache
+     * @param nearExpireAfterWrite seconds to keep an entry owned by another node
+     * @param partitionTimeout milliseconds to connect to and wait for another node
+     * @param partitionRetryDelay milliseconds to skip a node after it failed
+     * @return BeanPostProcessor
+     */
+    @Bean
+    public static BeanPostProcessor cacheManagerDecoratorPostProcessor(
+            @Value("${cache.l1.enabled:false}") boolean l1Enabled,
+            @Value("${cache.l1.maximum-size:200}") long l1MaximumSize,
+            @Value("${cache.l1.expire-after-write:30}") long l1ExpireAfterWrite,
+            @Value("${cache.l1.refresh-after-write:5}") long l1RefreshAfterWrite,
+            @Value("${cache.refresh-ahead.enabled:false}") boolean refreshAheadEnabled,
+            @Value("${cache.refresh-ahead.ttl:30}") long refreshAheadTtl,
+            @Value("${cache.refresh-ahead.factor:0.75}") double refreshAheadFactor,
+            @Value("${cache.refresh-ahead.jitter:0.1}") double refreshAheadJitter,
+            @Value("${cache.refresh-ahead.threads:2}") int refreshAheadThreads,
+            @Value("${cache.partition.enabled:false}") boolean partitionEnabled,
+            @Value("${cache.partition.nodes:localhost:7070}") String[] partitionNodes,
+            @Value("${cache.partition.self:localhost:7070}") String partitionSelf,
+            @Value("${cache.partition.virtual-nodes:128}") int partitionVirtualNodes,
+            @Value("${cache.partition.caches:employeeCache,accountCache}") String[] partitionCaches,
+            @Value("${cache.partition.near-cache.maximum-size:1000}") long nearMaximumSize,
+            @Value("${cache.partition.near-cache.expire-after-write:5}") long nearExpireAfterWrite,
+            @Value("${cache.partition.timeout:200}") int partitionTimeout,
+            @Value("${cache.partition.retry-delay:5000}") long partitionRetryDelay) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof CacheManager && !(bean instanceof SingleFlightCacheManager)) {
+                    CacheManager cacheManager = (CacheManager) bean;
+                    if (l1Enabled) {
+                        cacheManager = new TwoTierCacheManager(cacheManager, l1MaximumSize,
+                                                               Duration.ofSeconds(l1ExpireAfterWrite),
+                                                               Duration.ofSeconds(l1RefreshAfterWrite));
+                    }
+                    if (partitionEnabled) {
+                        List<String> nodes = Arrays.asList(partitionNodes);
+                        if (!nodes.contains(partitionSelf)) {
+                            throw new IllegalStateException("cache.partition.self " + partitionSelf
+                                                            + " is not in cache.partition.nodes " + nodes);
+                        }
+                        cacheManager = new PartitionedCacheManager(cacheManager,
+                                                                   new HashSet<>(Arrays.asList(partitionCaches)),
+                                                                   new ConsistentHashRing(nodes, partitionVirtualNodes),
+                                                                   partitionSelf,
+                                                                   new PartitionClient(partitionTimeout, partitionRetryDelay),
+                                                                   nearMaximumSize,
+                                                                   Duration.ofSeconds(nearExpireAfterWrite));
+                    }
+                    if (refreshAheadEnabled) {
+                        CacheManager ehcacheManager = (CacheManager) bean;
+                        cacheManager = new RefreshAheadCacheManager(cacheManager,
+                                                                    name -> ttlOf(ehcacheManager, name,
+                                                                                  Duration.ofSeconds(refreshAheadTtl)),
+                                                                    refreshAheadFactor, refreshAheadJitter,
+                                                                    refreshAheadThreads);
+                    }
+                    return new SingleFlightCacheManager(cacheManager);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * TTL of the cache from its Ehcache expiry (JitteredExpiryPolicy of ehcache.xml or ehcache-persistent.xml),
+     * so refresh-ahead follows the TTL of each cache
+     * @param cacheManager JCacheCacheManager of Ehcache
+     * @param name cache name
+     * @param defaultTtl TTL of caches that are not Ehcache or have another expiry
+     * @return TTL
+     */
+    static Duration ttlOf(CacheManager cacheManager, String name, Duration defaultTtl) {
+        if (cacheManager instanceof JCacheCacheManager) {
+            javax.cache.CacheManager jcacheManager = ((JCacheCacheManager) cacheManager).getCacheManager();
+            javax.cache.Cache<?, ?> cache = jcacheManager == null ? null : jcacheManager.getCache(name);
+            try {
+                Object expiry = cache == null ? null
+                                : cache.unwrap(org.ehcache.Cache.class).getRuntimeConfiguration().getExpiryPolicy();
+                if (expiry instanceof JitteredExpiryPolicy) {
+                    return ((JitteredExpiryPolicy) expiry).getTtl();
+                }
+            } catch (IllegalArgumentException e) {
+                log.debug("Cache is not Ehcache : " + name);
+            }
+        }
+        log.info("TTL of cache " + name + " is not found on its expiry. Refresh-ahead uses " + defaultTtl);
+        return defaultTtl;
+    }
+
+    /**
+     * Serve the partition of this node to other nodes (if cache.partition.enabled is true)
+     * @param cacheManager CacheManager decorating PartitionedCacheManager
+     * @param partitionSelf address to listen on (host:port)
+     * @param maxConnections max number of connections from other nodes served at the same time
+     * @return PartitionServer
+     */
+    @Bean
+    @ConditionalOnProperty(name = "cache.partition.enabled", havingValue = "true")
+    public PartitionServer partitionServer(CacheManager cacheManager,
+                                           @Value("${cache.partition.self:localhost:7070}") String partitionSelf,
+                                           @Value("${cache.partition.max-connections:64}") int maxConnections) {
+        PartitionedCacheManager partitioned = PartitionedCacheManager.find(cacheManager);
+        if (partitioned == null) {
+            throw new IllegalStateException("CacheManager is not partitioned : " + cacheManager.getClass().getName());
+        }
+        return new PartitionServer(partitioned.getTarget(), partitioned.getPartitionedCacheNames(),
+                                   PartitionClient.toAddress(partitionSelf), maxConnections);
+    }
+
+    /**
+     * Statistics of Ehcache events recorded by CacheLogger. CacheLogger of the cache name is registered on each
+     * Ehcache cache of JCache CacheManager (created, expired and evicted events, fired asynchronously),
+     * and the statistics are exposed on JMX.
+     * @param jcacheManager
+     * @param debugLogSampleRate 1 in this number of events is logged on DEBUG level
+     * @return CacheEventAggregator
+     */
+    @Bean
+    public CacheEventAggregator cacheEventAggregator(ObjectProvider<javax.cache.CacheManager> jcacheManager,
+                                                     @Value("${cache.events.debug-log-sample-rate:100}") int debugLogSampleRate) {
+        CacheEventAggregator aggregator = CacheEventAggregator.getInstance();
+        aggregator.setDebugLogSampleRate(debugLogSampleRate);
+        javax.cache.CacheManager manager = jcacheManager.getIfAvailable();
+        if (manager != null) {
+            for (String name : manager.getCacheNames()) {
+                try {
+                    manager.getCache(name).unwrap(org.ehcache.Cache.class).getRuntimeConfiguration()
+                           .registerCacheEventListener(new CacheLogger(name), EventOrdering.UNORDERED, EventFiring.ASYNCHRONOUS,
+                                                       EnumSet.of(EventType.CREATED, EventType.EXPIRED, EventType.EVICTED));
+                } catch (IllegalArgumentException e) {
+                    log.debug("Cache is not Ehcache : " + name);
+                }
+            }
+        }
+        aggregator.registerMBean();
+        return aggregator;
+    }
+
+    /**
+     * Update rates of cache event statistics
+     */
+    @Scheduled(fixedRateString = "${cache.events.sample-period:10000}")
+    public void sampleCacheEvents() {
+        CacheEventAggregator.getInstance().sample();
+    }
 }
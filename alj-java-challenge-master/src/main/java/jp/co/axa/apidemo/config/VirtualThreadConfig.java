@@ -0,0 +1,46 @@
+package jp.co.axa.apidemo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ *  Virtual thread mode of servlet stack (profile 'virtual-threads', requires JDK 21).
+ *  Each request runs on its own virtual thread instead of Tomcat's worker pool, so threads blocked by JPA or bcrypt
+ *  don't limit the number of concurrent requests (server.tomcat.max-threads is not used).
+ *  Async request processing (e.g. StreamingResponseBody of export API) runs on virtual threads as well.
+ */
+@Configuration
+@Profile("virtual-threads")
+@Slf4j
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        log.info("Request executor : virtual threads (Java " + System.getProperty("java.version") + ")");
+        return VirtualThreads.newThreadPerTaskExecutor("http-vt-");
+    }
+
+    /**
+     * Replace Tomcat's worker pool by virtual thread executor
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    /**
+     * Executor of Spring MVC async requests and @Async (replaces the default thread pool)
+     */
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+}
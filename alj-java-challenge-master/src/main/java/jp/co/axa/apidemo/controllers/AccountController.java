@@ -1,6 +1,8 @@
 package jp.co.axa.apidemo.controllers;
 
 import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.AccountView;
+import jp.co.axa.apidemo.services.NotFoundException;
 import jp.co.axa.apidemo.services.impl.AccountServiceImpl;
 
 import io.swagger.annotations.Api;
@@ -13,6 +15,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.MediaType;
 import org.springframework.http.HttpStatus;
@@ -22,11 +25,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 
 @Api(tags = {"Account"})
 @RestController
+@Profile("!reactive")
 @RequestMapping(path = "/api/v1", produces = MediaType.APPLICATION_JSON_VALUE)
 @Slf4j
 public class AccountController {
@@ -36,16 +41,22 @@ public class AccountController {
 
     /**
      * Get all account list on Axa Java Challange API (Admin Role only)
+     * 304 is returned without loading accounts if ETag (version of account list) matches.
      * @param request
-     * @return List<Account>
+     * @param webRequest
+     * @return List<AccountView>
      */
     @ApiOperation("Get list of accounts (Admin role only)")
     @GetMapping("/account")
-    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+    @ApiResponses(value = { @ApiResponse(code = 304, message = "Not Modified"),
+                            @ApiResponse(code = 400, message = "Bad Request"),
                             @ApiResponse(code = 500, message = "Internal Server Error") })  
-    public List<Account> getAccounts(HttpServletRequest request) {
+    public List<AccountView> getAccounts(HttpServletRequest request, WebRequest webRequest) {
         try {
             log.info("getAccounts() is invoked by User : " + request.getRemoteUser());
+            if (webRequest.checkNotModified("accounts-" + accountService.getAccountsVersion())) {
+                return null;
+            }
             return accountService.retrieveAccounts();
         } catch(Exception e) {
             log.debug("Exception on getAccounts. Exception : " + e.toString());
@@ -56,18 +67,30 @@ public class AccountController {
 
     /**
      * Get account by given account name
+     * 304 is returned without response body if ETag (ID and version of the account) matches.
      * @param name
-     * @return Account
+     * @param request
+     * @return AccountView
      */
     @ApiOperation("Get account by ID (Admin role only)")
     @GetMapping("/account/{accountId}")
-    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+    @ApiResponses(value = { @ApiResponse(code = 304, message = "Not Modified"),
+                            @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 404, message = "Not Found"),
                             @ApiResponse(code = 500, message = "Internal Server Error") })  
-    public Account getAccountById(@PathVariable(name="accountId")Long accountId) {
+    public AccountView getAccountById(@PathVariable(name="accountId")Long accountId, WebRequest request) {
         log.info("getAccountbyName() is invoked");
 
         try {
-            return accountService.findById(accountId);
+            AccountView account = accountService.findById(accountId);
+            if (account.getVersion() != null
+                && request.checkNotModified("account-" + account.getId() + "-" + account.getVersion())) {
+                return null;
+            }
+            return account;
+        } catch(NotFoundException e) {
+            log.debug("Account Not Found. ID = " + accountId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account Not Found. ID = " + accountId);
         } catch(NoSuchElementException e) {
             log.debug("Account Not Found. ID = " + accountId);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Account Not Found. ID = " + accountId);
@@ -0,0 +1,72 @@
+package jp.co.axa.apidemo.controllers;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import jp.co.axa.apidemo.cache.CacheEventAggregator;
+import jp.co.axa.apidemo.cache.SingleFlightCacheManager;
+import jp.co.axa.apidemo.dto.CacheEventStatistics;
+import jp.co.axa.apidemo.dto.CacheStatistics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collections;
+import java.util.List;
+
+@Api(tags = {"Cache"})
+@RestController
+@Profile("!reactive")
+@RequestMapping(path = "/api/v1", produces = MediaType.APPLICATION_JSON_VALUE)
+@Slf4j
+public class CacheController {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheEventAggregator cacheEventAggregator;
+
+    /**
+     * Get load statistics of caches (Admin Role only)
+     * @return List<CacheStatistics>
+     */
+    @ApiOperation("Get cache statistics (Admin role only)")
+    @GetMapping("/cache/stats")
+    @ApiResponses(value = { @ApiResponse(code = 500, message = "Internal Server Error") })
+    public List<CacheStatistics> getCacheStatistics() {
+        try {
+            if (!(cacheManager instanceof SingleFlightCacheManager)) {
+                return Collections.emptyList();
+            }
+            return ((SingleFlightCacheManager) cacheManager).getStatistics();
+        } catch(Exception e) {
+            log.debug("Exception on getCacheStatistics. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get cache statistics. Please contact support.");
+        }
+    }
+
+    /**
+     * Get Ehcache event statistics of caches (Admin Role only)
+     * @return List<CacheEventStatistics>
+     */
+    @ApiOperation("Get cache event statistics (Admin role only)")
+    @GetMapping("/cache/events")
+    @ApiResponses(value = { @ApiResponse(code = 500, message = "Internal Server Error") })
+    public List<CacheEventStatistics> getCacheEventStatistics() {
+        try {
+            return cacheEventAggregator.getStatistics();
+        } catch(Exception e) {
+            log.debug("Exception on getCacheEventStatistics. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get cache event statistics. Please contact support.");
+        }
+    }
+}
@@ -1,24 +1,41 @@
 package jp.co.axa.apidemo.controllers;
 
 import java.util.List;
-import java.util.NoSuchElementException;
+import javax.servlet.http.HttpServletResponse;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import jp.co.axa.apidemo.dto.BulkUpdateResult;
+import jp.co.axa.apidemo.dto.DepartmentSalaryStats;
+import jp.co.axa.apidemo.dto.EmployeeNameMatch;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.SalaryPercentile;
+import jp.co.axa.apidemo.dto.SalaryRangeResult;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.entities.EmployeeView;
+import jp.co.axa.apidemo.services.EmployeeExportFormat;
+import jp.co.axa.apidemo.services.EmployeeSortKey;
+import jp.co.axa.apidemo.services.NotFoundException;
 import jp.co.axa.apidemo.services.impl.EmployeeServiceImpl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Api(tags = "Employee")
 @RestController
+@Profile("!reactive")
 @RequestMapping(path="/api/v1", produces = MediaType.APPLICATION_JSON_VALUE)
 @Slf4j
 public class EmployeeController {
@@ -28,16 +45,22 @@ public class EmployeeController {
 
     /**
      * getEmployees :
-     *    Return the list of employees
-     * @return List<Employee>
+     *    Return the list of employees.
+     *    ETag is the version of the list, so 304 is returned without loading the list if nothing changed.
+     * @param request
+     * @return List<EmployeeView>
      */
     @ApiOperation("Get all employees")
     @GetMapping("/employees")
-    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+    @ApiResponses(value = { @ApiResponse(code = 304, message = "Not Modified"),
+                            @ApiResponse(code = 400, message = "Bad Request"),
                             @ApiResponse(code = 500, message = "Internal Server Error") })  
-    public List<Employee> getEmployees() {
+    public List<EmployeeView> getEmployees(WebRequest request) {
         try {
-            List<Employee> employees = employeeService.retrieveEmployees();
+            if (request.checkNotModified(EmployeeETags.ofEmployees(employeeService.getEmployeesVersion()))) {
+                return null;
+            }
+            List<EmployeeView> employees = employeeService.retrieveEmployees();
             return employees;
         } catch(Exception e) {
             log.debug("Exception on getEmployees. Exception : " + e.toString());
@@ -46,22 +69,192 @@ public class EmployeeController {
     }
 
 
+    /**
+     * getEmployeePage :
+     *    Return one page of employees by keyset pagination (when 'limit' param is given).
+     *    Use 'nextCursor' in response as 'cursor' param to get the next page.
+     * @param limit page size
+     * @param sort sort key (id, name or salary)
+     * @param after employee ID to start after (only for sort by id)
+     * @param cursor cursor returned by previous page
+     * @return EmployeePage
+     */
+    @ApiOperation("Get employees page by page (keyset pagination)")
+    @GetMapping(value = "/employees", params = "limit")
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 500, message = "Internal Server Error") })
+    public EmployeePage getEmployeePage(@RequestParam(name="limit") int limit,
+                                        @RequestParam(name="sort", defaultValue="id") String sort,
+                                        @RequestParam(name="after", required=false) Long after,
+                                        @RequestParam(name="cursor", required=false) String cursor) {
+        try {
+            return employeeService.retrieveEmployeePage(EmployeeSortKey.of(sort), after, cursor, limit);
+        } catch(IllegalArgumentException e) {
+            log.debug("Invalid page request. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page request. " + e.getMessage());
+        } catch(Exception e) {
+            log.debug("Exception on getEmployeePage. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get employees. Please contact support.");
+        }
+    }
+
+
+    /**
+     * exportEmployees :
+     *    Stream all employees as NDJSON (default) or CSV. Response is written while rows are read from DB,
+     *    so it doesn't build the whole list in memory.
+     * @param format ndjson or csv
+     * @return streaming response
+     */
+    @ApiOperation("Export all employees as NDJSON or CSV")
+    @GetMapping(value = "/employees/export", produces = { "application/x-ndjson", "text/csv" })
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 500, message = "Internal Server Error") })
+    public ResponseEntity<StreamingResponseBody> exportEmployees(@RequestParam(name="format", defaultValue="ndjson") String format) {
+        EmployeeExportFormat exportFormat;
+        try {
+            exportFormat = EmployeeExportFormat.of(format);
+        } catch(IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format : " + format);
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                employeeService.exportEmployees(exportFormat, out);
+            } catch(Exception e) {
+                // status is already committed while streaming, so just logging here
+                log.error("Exception on exportEmployees. Exception : " + e.toString());
+                throw e;
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(body);
+    }
+
+
+    /**
+     * getDepartmentStatistics :
+     *    Return salary statistics (count/sum/min/max/average) per department.
+     *    Statistics are kept in memory and updated on each employee change, so it doesn't scan employees.
+     * @return List<DepartmentSalaryStats>
+     */
+    @ApiOperation("Get salary statistics per department")
+    @GetMapping("/employees/stats/departments")
+    @ApiResponses(value = { @ApiResponse(code = 500, message = "Internal Server Error") })
+    public List<DepartmentSalaryStats> getDepartmentStatistics() {
+        try {
+            return employeeService.getDepartmentStatistics();
+        } catch(Exception e) {
+            log.debug("Exception on getDepartmentStatistics. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get department statistics. Please contact support.");
+        }
+    }
+
+
+    /**
+     * findBySalaryRange :
+     *    Return number and IDs of employees whose salary is in the range (on in-memory snapshot)
+     * @param min
+     * @param max
+     * @param department optional
+     * @param limit max number of IDs in response
+     * @return SalaryRangeResult
+     */
+    @ApiOperation("Find employees by salary range")
+    @GetMapping("/employees/analytics/salary-range")
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 500, message = "Internal Server Error") })
+    public SalaryRangeResult findBySalaryRange(@RequestParam(name="min") int min,
+                                               @RequestParam(name="max") int max,
+                                               @RequestParam(name="department", required=false) String department,
+                                               @RequestParam(name="limit", defaultValue="100") int limit) {
+        try {
+            return employeeService.findBySalaryRange(min, max, department, limit);
+        } catch(IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. " + e.getMessage());
+        } catch(Exception e) {
+            log.debug("Exception on findBySalaryRange. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to find employees. Please contact support.");
+        }
+    }
+
+
+    /**
+     * getSalaryPercentile :
+     *    Return salary at the percentile (e.g. p=90) of all employees or the department (on in-memory snapshot)
+     * @param percentile
+     * @param department optional
+     * @return SalaryPercentile
+     */
+    @ApiOperation("Get salary at the percentile")
+    @GetMapping("/employees/analytics/salary-percentile")
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 404, message = "Not Found"),
+                            @ApiResponse(code = 500, message = "Internal Server Error") })
+    public SalaryPercentile getSalaryPercentile(@RequestParam(name="p") double percentile,
+                                                @RequestParam(name="department", required=false) String department) {
+        try {
+            return employeeService.getSalaryPercentile(percentile, department);
+        } catch(NotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Employee Not Found. Department = " + department);
+        } catch(IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. " + e.getMessage());
+        } catch(Exception e) {
+            log.debug("Exception on getSalaryPercentile. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get salary percentile. Please contact support.");
+        }
+    }
+
+
+    /**
+     * searchEmployees :
+     *    Search employees by name (prefix match first, then fuzzy match for typos) on in-memory index
+     * @param query part of employee name
+     * @param limit max number of matches
+     * @return List<EmployeeNameMatch>
+     */
+    @ApiOperation("Search employees by name")
+    @GetMapping("/employees/search")
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 500, message = "Internal Server Error") })
+    public List<EmployeeNameMatch> searchEmployees(@RequestParam(name="q") String query,
+                                                   @RequestParam(name="limit", defaultValue="10") int limit) {
+        try {
+            return employeeService.searchEmployeesByName(query, limit);
+        } catch(IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. " + e.getMessage());
+        } catch(Exception e) {
+            log.debug("Exception on searchEmployees. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to search employees. Please contact support.");
+        }
+    }
+
+
     /**
      * getEmployee :
-     *     Get Employee by employee ID
+     *     Get Employee by employee ID.
+     *     ETag is made of ID and version of the employee, so 304 is returned without response body if it's not changed.
      * @param employeeId
+     * @param request
      * @return
      */
     @ApiOperation("Get employees by ID")
     @GetMapping("/employees/{employeeId}")
-    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+    @ApiResponses(value = { @ApiResponse(code = 304, message = "Not Modified"),
+                            @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 404, message = "Not Found"),
                             @ApiResponse(code = 500, message = "Internal Server Error") })  
-    public Employee getEmployee(@PathVariable(name="employeeId")Long employeeId) {
+    public EmployeeView getEmployee(@PathVariable(name="employeeId")Long employeeId, WebRequest request) {
         try {
-            return employeeService.getEmployee(employeeId);
-        } catch(NoSuchElementException e) {
+            EmployeeView employee = employeeService.getEmployee(employeeId);
+            if (employee.getVersion() != null && request.checkNotModified(EmployeeETags.of(employee))) {
+                return null;
+            }
+            return employee;
+        } catch(NotFoundException e) {
             log.debug("Employee Not Found. ID = " + employeeId);
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Employee Not Found. ID = " + employeeId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Employee Not Found. ID = " + employeeId);
         } catch(Exception e) {
             log.debug("Exception on getEmployee. Exception : " + e.toString());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get employee. Please contact support.");
@@ -83,6 +276,28 @@ public class EmployeeController {
         return _saveEmployee(employee);
     }
 
+    /**
+     * Register list of new employees at once. Inserts are sent to DB by batch.
+     * @param employees
+     * @return saved employees
+     */
+    @ApiOperation("Register list of new employees")
+    @PostMapping(value = "/employees/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 500, message = "Internal Server Error") })
+    public List<Employee> saveEmployees(@RequestBody List<Employee> employees) {
+        try {
+            List<Employee> savedEmployees = employeeService.saveEmployees(employees);
+            log.info("Employees Saved Successfully : size = " + savedEmployees.size());
+            return savedEmployees;
+        } catch(IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. " + e.getMessage());
+        } catch(Exception e) {
+            log.error("Failed to save Employees. Error : ", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to save Employees. Please contact support.");
+        }
+    }
+
     /**
      * Actual control for saving employee
      * @param employee
@@ -107,6 +322,7 @@ public class EmployeeController {
     @ApiOperation("Delete employee by ID")
     @DeleteMapping("/employees/{employeeId}")
     @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 404, message = "Not Found"),
                             @ApiResponse(code = 500, message = "Internal Server Error") })  
     public void deleteEmployee(@PathVariable(name="employeeId")Long employeeId){
         _deleteEmployee(employeeId);
@@ -120,12 +336,9 @@ public class EmployeeController {
         try {
             employeeService.deleteEmployee(employeeId);
             log.info("Employee Deleted Successfully");    
-        } catch(NoSuchElementException e) {
-            log.debug("Employee Not Found. ID = " + employeeId);
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Employee Not Found. ID = " + employeeId);
-        } catch(EmptyResultDataAccessException e) {
+        } catch(NotFoundException | EmptyResultDataAccessException e) {
             log.debug("Employee Not Found. ID = " + employeeId);
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Employee Not Found. ID = " + employeeId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Employee Not Found. ID = " + employeeId);
         } catch(Exception e) {
             log.debug("Exception on _deleteEmployee. Exception : " + e.toString());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to delete Employee. Please contact support.");
@@ -133,40 +346,136 @@ public class EmployeeController {
     }
 
     /**
-     * Update existing employee's fields by ID
+     * Update existing employee's fields by ID (ID in the body is ignored).
+     * Optional If-Match header (ETag of the employee) makes the update fail with 412 if the employee was changed by others.
      * @param employee
      * @param employeeId
+     * @param ifMatch
+     * @param response
      * @return Employee
      */
     @ApiOperation("Update employee fields by ID")
     @PutMapping("/employees/{employeeId}")
     @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 404, message = "Not Found"),
+                            @ApiResponse(code = 412, message = "Precondition Failed"),
                             @ApiResponse(code = 500, message = "Internal Server Error") })  
     public Employee updateEmployee(@RequestBody Employee employee,
-                                   @PathVariable(name="employeeId")Long employeeId) {
+                                   @PathVariable(name="employeeId")Long employeeId,
+                                   @RequestHeader(name="If-Match", required=false) String ifMatch,
+                                   HttpServletResponse response) {
         try {
-            Employee emp = getEmployee(employeeId);
-
-            // If ID is consistent, just update existing employee record
-            if(emp.getId() == employee.getId()) {
-                log.info("Update Employee : Original Employee=" + emp.toString());
-                return employeeService.updateEmployee(employee);
+            Employee updated = employeeService.updateEmployee(employeeId, employee, EmployeeETags.expectedVersion(ifMatch, employeeId));
+            setETag(response, updated);
+            return updated;
+        } catch(NotFoundException e) {
+            log.info("Update Employee : Employee Not Found. ID=" + employeeId.toString());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Employee Not Found. ID = " + employeeId);
+        } catch(IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. " + e.getMessage());
+        } catch(OptimisticLockingFailureException e) {
+            log.info("Update Employee : Employee was changed. ID=" + employeeId.toString());
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Employee was changed by others. ID = " + employeeId);
+        } catch (Exception e) {
+            log.debug("Exception on updateEmployee. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error on updating employee. Please contact support.");
+        }
 
-            // otherwise delete the existing record and add new employee
-            } else {
-                _deleteEmployee(employeeId);
-                return _saveEmployee(employee);
-            }
+    }
 
-        } catch(NoSuchElementException e) {
-            log.info("Update Employee : Employee Not Found. ID=" + employeeId.toString());
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Employee Not Found. ID = " + employeeId);
 
+    /**
+     * Update only given fields of existing employee (e.g. {"salary":300}).
+     * Only changed columns are written, and nothing is written if values are the same as current ones.
+     * Optional If-Match header works as same as PUT.
+     * @param changes
+     * @param employeeId
+     * @param ifMatch
+     * @param response
+     * @return Employee
+     */
+    @ApiOperation("Update given fields of employee by ID")
+    @PatchMapping("/employees/{employeeId}")
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 404, message = "Not Found"),
+                            @ApiResponse(code = 412, message = "Precondition Failed"),
+                            @ApiResponse(code = 500, message = "Internal Server Error") })
+    public Employee patchEmployee(@RequestBody Employee changes,
+                                  @PathVariable(name="employeeId")Long employeeId,
+                                  @RequestHeader(name="If-Match", required=false) String ifMatch,
+                                  HttpServletResponse response) {
+        try {
+            Employee patched = employeeService.patchEmployee(employeeId, changes, EmployeeETags.expectedVersion(ifMatch, employeeId));
+            setETag(response, patched);
+            return patched;
+        } catch(NotFoundException e) {
+            log.info("Patch Employee : Employee Not Found. ID=" + employeeId.toString());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Employee Not Found. ID = " + employeeId);
+        } catch(IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. " + e.getMessage());
+        } catch(OptimisticLockingFailureException e) {
+            log.info("Patch Employee : Employee was changed. ID=" + employeeId.toString());
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Employee was changed by others. ID = " + employeeId);
         } catch (Exception e) {
-            log.debug("Exception on updateEmployee. Exception : " + e.toString());
+            log.debug("Exception on patchEmployee. Exception : " + e.toString());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error on updating employee. Please contact support.");
         }
+    }
+
+    private static void setETag(HttpServletResponse response, Employee employee) {
+        if (employee != null && employee.getVersion() != null) {
+            response.setHeader(HttpHeaders.ETAG, EmployeeETags.of(employee));
+        }
+    }
+
+
+    /**
+     * Raise salary of all employees in the department by given percent.
+     * All employees are updated by a single UPDATE statement (no request per employee).
+     * It's POST since a repeated raise compounds (not idempotent), so clients and proxies must not retry it.
+     * @param department
+     * @param percent negative value to reduce salary (-100 < percent <= 1000)
+     * @return BulkUpdateResult
+     */
+    @ApiOperation("Raise salary of all employees in the department by percent")
+    @PostMapping("/employees/salary-raise")
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 500, message = "Internal Server Error") })
+    public BulkUpdateResult raiseSalaryByDepartment(@RequestParam(name="department") String department,
+                                                    @RequestParam(name="percent") int percent) {
+        try {
+            int updated = employeeService.raiseSalaryByDepartment(department, percent);
+            log.info("Salary Raised Successfully : department = " + department + ", updated = " + updated);
+            return new BulkUpdateResult(department, updated);
+        } catch(IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. " + e.getMessage());
+        } catch(Exception e) {
+            log.error("Exception on raiseSalaryByDepartment. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to raise salary. Please contact support.");
+        }
+    }
+
 
+    /**
+     * Delete all employees in the department by a single DELETE statement.
+     * @param department
+     * @return BulkUpdateResult
+     */
+    @ApiOperation("Delete all employees in the department")
+    @DeleteMapping(value = "/employees", params = "department")
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Bad Request"),
+                            @ApiResponse(code = 500, message = "Internal Server Error") })
+    public BulkUpdateResult deleteEmployeesByDepartment(@RequestParam(name="department") String department) {
+        try {
+            int deleted = employeeService.deleteEmployeesByDepartment(department);
+            log.info("Employees Deleted Successfully : department = " + department + ", deleted = " + deleted);
+            return new BulkUpdateResult(department, deleted);
+        } catch(IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. " + e.getMessage());
+        } catch(Exception e) {
+            log.error("Exception on deleteEmployeesByDepartment. Exception : " + e.toString());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to delete employees. Please contact support.");
+        }
     }
 
 }
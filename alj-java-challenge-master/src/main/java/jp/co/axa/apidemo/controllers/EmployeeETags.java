@@ -0,0 +1,54 @@
+package jp.co.axa.apidemo.controllers;
+
+import jp.co.axa.apidemo.entities.EmployeeView;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ *  ETags of employee resources. Shared by servlet and reactive controllers so that both serve the same contract.
+ *    - Employee list : "employees-{version of the list}"
+ *    - Employee      : "employee-{id}-{version}"
+ */
+public final class EmployeeETags {
+
+    private EmployeeETags() {
+    }
+
+    /**
+     * @param version version of employee list
+     * @return ETag of employee list
+     */
+    public static String ofEmployees(String version) {
+        return "\"employees-" + version + "\"";
+    }
+
+    /**
+     * @param employee
+     * @return ETag of the employee made of ID and version
+     */
+    public static String of(EmployeeView employee) {
+        return "\"employee-" + employee.getId() + "-" + employee.getVersion() + "\"";
+    }
+
+    /**
+     * Return employee version in If-Match header (null if the header is not given or '*')
+     * @param ifMatch If-Match header
+     * @param employeeId
+     * @return expected version
+     * @throws OptimisticLockingFailureException if the header is not ETag of the employee
+     */
+    public static Long expectedVersion(String ifMatch, Long employeeId) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etag = ifMatch.trim();
+        String prefix = "\"employee-" + employeeId + "-";
+        if (etag.startsWith(prefix) && etag.endsWith("\"") && etag.length() > prefix.length() + 1) {
+            try {
+                return Long.valueOf(etag.substring(prefix.length(), etag.length() - 1));
+            } catch (NumberFormatException e) {
+                // not ETag of this API
+            }
+        }
+        throw new OptimisticLockingFailureException("If-Match doesn't match employee. ID = " + employeeId + ", If-Match = " + ifMatch);
+    }
+}
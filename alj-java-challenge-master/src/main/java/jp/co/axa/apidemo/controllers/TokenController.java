@@ -6,24 +6,56 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.Example;
 import io.swagger.annotations.ExampleProperty;
+import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.RefreshToken;
+import jp.co.axa.apidemo.repositories.AccountRepository;
+import jp.co.axa.apidemo.security.DemoAuthenticationSuccessHandler;
+import jp.co.axa.apidemo.security.DemoToken;
+import jp.co.axa.apidemo.services.RefreshTokenService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Optional;
 
 /**
  *  TokenController class is for swagger UI that provides Token API for authentication.
  *  This API is based on JWT token and need a document for Token API on swagger. 
  *  Therefore token(name, password) is prepared to be the interface of actual authentication.
+ *  Refresh token API (token/refresh) is implemented here.
  */
 
 @Api(tags = "Token")
 @RestController
+@Profile("!reactive")
 @RequestMapping(path = "/api/v1")
 @Slf4j
 public class TokenController {
 
+    public static final String REFRESH_TOKEN_HEADER = "X-Refresh-Token";
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    // Refresh token API answers 404 unless refresh tokens are enabled
+    @Value("${jwt.refresh-token.enabled:false}")
+    private boolean refreshTokenEnabled;
+
+    @Autowired
+    private DemoAuthenticationSuccessHandler authenticationSuccessHandler;
+
     /**
      * This is a fake token interface that is defined only for Swagger UI.
      * This should not be called, because actual token (login) implementation is done by spring security.
@@ -44,4 +76,52 @@ public class TokenController {
         log.info("Login Action by " + name);
         throw new IllegalStateException("Token controller method shouldn't be called. It's implemented by Spring Security filters.");
     }    
+
+    /**
+     * Trade refresh token for a new token and a new refresh token (the given refresh token can't be used again).
+     * Refresh token is sent on X-Refresh-Token header, so it's not written on URLs (access logs, proxies).
+     * Account (name, role and version of the token) is read from DB as on login, but no password check (bcrypt) is done.
+     * @param refreshToken
+     * @return DemoToken
+     */
+    @ApiOperation("Generate Token by refresh token")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "Token Generated Successfully",
+                     examples = @Example({ @ExampleProperty(mediaType = "*/*",
+                                            value = "{\n    \"token\": \"YourToken (including Bearer)\",\n    \"refreshToken\": \"YourNextRefreshToken\"\n}")})),
+        @ApiResponse(code = 400, message = "X-Refresh-Token header is missing"),
+        @ApiResponse(code = 401, message = "Refresh token is invalid, expired, used or revoked"),
+        @ApiResponse(code = 404, message = "Refresh token is not enabled"),
+        @ApiResponse(code = 500, message = "Token generation failure on internal")
+      })
+    @PostMapping(path = "/token/refresh", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DemoToken refresh(@RequestHeader(name = REFRESH_TOKEN_HEADER, required = true) String refreshToken) {
+        if (!refreshTokenEnabled) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Refresh token is not enabled.");
+        }
+        Optional<RefreshToken> refreshed;
+        try {
+            refreshed = refreshTokenService.refresh(refreshToken);
+        } catch(Exception e) {
+            log.error("Failed to refresh token. Error : ", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to refresh token. Please contact support.");
+        }
+        if (!refreshed.isPresent()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token. Please login again.");
+        }
+        Long accountId = refreshed.get().getAccountId();
+        try {
+            Optional<Account> account = accountRepository.findById(accountId);
+            if (!account.isPresent()) {
+                refreshTokenService.revokeAll(accountId);
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token. Please login again.");
+            }
+            return authenticationSuccessHandler.createToken(account.get(), refreshed.get());
+        } catch(ResponseStatusException e) {
+            throw e;
+        } catch(Exception e) {
+            log.error("Failed to refresh token. Error : ", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to refresh token. Please contact support.");
+        }
+    }
 }
@@ -0,0 +1,31 @@
+package jp.co.axa.apidemo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ *  Result of bulk update/delete on employees in a department.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkUpdateResult implements Serializable {
+
+  private static final long serialVersionUID = -7265077939624412406L;
+
+  @ApiModelProperty(value = "Target department", position = 1, example = "technology")
+  @Getter
+  @Setter
+  private String department;
+
+  @ApiModelProperty(value = "Number of updated/deleted employees", position = 2, example = "10")
+  @Getter
+  @Setter
+  private int affected;
+
+}
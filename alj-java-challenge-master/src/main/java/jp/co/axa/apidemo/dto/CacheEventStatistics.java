@@ -0,0 +1,37 @@
+package jp.co.axa.apidemo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ *  Ehcache event statistics of a cache.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheEventStatistics implements Serializable {
+
+  private static final long serialVersionUID = 4630177280745930211L;
+
+  @ApiModelProperty(value = "Cache name", position = 1, example = "employeeCache")
+  @Getter
+  private String cacheName;
+
+  @ApiModelProperty(value = "Number of events by event type (CREATED, EXPIRED, EVICTED)", position = 2)
+  @Getter
+  private Map<String, Long> counts;
+
+  @ApiModelProperty(value = "Events per second by event type in the last sample period", position = 3)
+  @Getter
+  private Map<String, Double> rates;
+
+  @ApiModelProperty(value = "Number of created entries by estimated size in bytes (key is the exclusive upper bound of each bucket, or inf)", position = 4)
+  @Getter
+  private Map<String, Long> entrySizes;
+
+}
@@ -0,0 +1,37 @@
+package jp.co.axa.apidemo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ *  Load and hit statistics of a cache.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatistics implements Serializable {
+
+  private static final long serialVersionUID = -2715331409364718329L;
+
+  @ApiModelProperty(value = "Cache name", position = 1, example = "employeeCache")
+  @Getter
+  private String cacheName;
+
+  @ApiModelProperty(value = "Number of loads from DB on cache miss", position = 2, example = "10")
+  @Getter
+  private long loads;
+
+  @ApiModelProperty(value = "Number of callers that waited for another caller's load instead of loading from DB", position = 3, example = "5")
+  @Getter
+  private long coalescedLoads;
+
+  @ApiModelProperty(value = "Hit statistics of each tier (only when local L1 cache or partitioned cache is enabled)", position = 4)
+  @Getter
+  private List<CacheTierStatistics> tiers;
+
+}
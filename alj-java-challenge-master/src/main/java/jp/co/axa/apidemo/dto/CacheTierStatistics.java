@@ -0,0 +1,38 @@
+package jp.co.axa.apidemo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ *  Hit statistics of a tier of a cache.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheTierStatistics implements Serializable {
+
+  private static final long serialVersionUID = 3081554179528340412L;
+
+  @ApiModelProperty(value = "Tier name", position = 1, example = "L1 (caffeine)")
+  @Getter
+  private String tier;
+
+  @ApiModelProperty(value = "Number of reads that found the key on the tier", position = 2, example = "90")
+  @Getter
+  private long hits;
+
+  @ApiModelProperty(value = "Number of reads that didn't find the key on the tier", position = 3, example = "10")
+  @Getter
+  private long misses;
+
+  @ApiModelProperty(value = "hits / (hits + misses). 0 if the tier has not been read", position = 4, example = "0.9")
+  public double getHitRatio() {
+    long requests = hits + misses;
+    return requests == 0 ? 0.0 : (double) hits / requests;
+  }
+
+}
@@ -0,0 +1,54 @@
+package jp.co.axa.apidemo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ *  Salary statistics (count/sum/min/max/average) of a department.
+ */
+@NoArgsConstructor
+public class DepartmentSalaryStats implements Serializable {
+
+  private static final long serialVersionUID = 4471608927167740291L;
+
+  @ApiModelProperty(value = "Department", position = 1, example = "technology")
+  @Getter
+  private String department;
+
+  @ApiModelProperty(value = "Number of employees", position = 2, example = "10")
+  @Getter
+  private long count;
+
+  @ApiModelProperty(value = "Sum of salary", position = 3, example = "1000")
+  @Getter
+  private long sum;
+
+  @ApiModelProperty(value = "Min salary", position = 4, example = "80")
+  @Getter
+  private int min;
+
+  @ApiModelProperty(value = "Max salary", position = 5, example = "120")
+  @Getter
+  private int max;
+
+  @ApiModelProperty(value = "Average salary", position = 6, example = "100.0")
+  @Getter
+  private double average;
+
+  /**
+   * Constructor that is also used by JPQL constructor expression (so wrapper types)
+   */
+  public DepartmentSalaryStats(String department, Long count, Long sum, Integer min, Integer max) {
+    this.department = department;
+    this.count = count;
+    this.sum = sum;
+    this.min = min;
+    this.max = max;
+    this.average = count == 0 ? 0 : (double) sum / count;
+  }
+
+}
@@ -0,0 +1,36 @@
+package jp.co.axa.apidemo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ *  Employee matched by name search with its score (1.0 for prefix match, less than 1.0 for fuzzy match).
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeNameMatch implements Serializable {
+
+  private static final long serialVersionUID = 8042218865307331672L;
+
+  @ApiModelProperty(value = "Employee's ID", position = 1, example = "10")
+  @Getter
+  @Setter
+  private Long id;
+
+  @ApiModelProperty(value = "Employee's Name", position = 2, example = "Axa")
+  @Getter
+  @Setter
+  private String name;
+
+  @ApiModelProperty(value = "Match score", position = 3, example = "1.0")
+  @Getter
+  @Setter
+  private double score;
+
+}
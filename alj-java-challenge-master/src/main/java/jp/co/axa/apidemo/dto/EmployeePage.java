@@ -0,0 +1,34 @@
+package jp.co.axa.apidemo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import jp.co.axa.apidemo.entities.Employee;
+
+import java.io.Serializable;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ *  One page of employees returned by keyset pagination.
+ *  nextCursor is opaque for client. Pass it as 'cursor' param to get the next page (null on the last page).
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeePage implements Serializable {
+
+  private static final long serialVersionUID = 2290412863174536710L;
+
+  @ApiModelProperty(value = "Employees in this page", position = 1)
+  @Getter
+  @Setter
+  private List<Employee> employees;
+
+  @ApiModelProperty(value = "Cursor for the next page. null if this is the last page", position = 2)
+  @Getter
+  @Setter
+  private String nextCursor;
+
+}
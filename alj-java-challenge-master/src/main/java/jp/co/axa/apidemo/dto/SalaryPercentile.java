@@ -0,0 +1,41 @@
+package jp.co.axa.apidemo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ *  Salary at the percentile (nearest rank) of a department or all employees.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalaryPercentile implements Serializable {
+
+  private static final long serialVersionUID = -2804567340148325539L;
+
+  @ApiModelProperty(value = "Department (null for all departments)", position = 1, example = "technology")
+  @Getter
+  @Setter
+  private String department;
+
+  @ApiModelProperty(value = "Percentile (0 < percentile <= 100)", position = 2, example = "90")
+  @Getter
+  @Setter
+  private double percentile;
+
+  @ApiModelProperty(value = "Salary at the percentile", position = 3, example = "180")
+  @Getter
+  @Setter
+  private int salary;
+
+  @ApiModelProperty(value = "Number of employees used for calculation", position = 4, example = "10")
+  @Getter
+  @Setter
+  private int count;
+
+}
@@ -0,0 +1,46 @@
+package jp.co.axa.apidemo.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ *  Employees whose salary is in the range (inclusive). ids has the first employees (by ID) up to the limit.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalaryRangeResult implements Serializable {
+
+  private static final long serialVersionUID = 6391254007817285147L;
+
+  @ApiModelProperty(value = "Department (null for all departments)", position = 1, example = "technology")
+  @Getter
+  @Setter
+  private String department;
+
+  @ApiModelProperty(value = "Min salary (inclusive)", position = 2, example = "100")
+  @Getter
+  @Setter
+  private int min;
+
+  @ApiModelProperty(value = "Max salary (inclusive)", position = 3, example = "200")
+  @Getter
+  @Setter
+  private int max;
+
+  @ApiModelProperty(value = "Number of employees in the range", position = 4, example = "2")
+  @Getter
+  @Setter
+  private int count;
+
+  @ApiModelProperty(value = "Employee IDs in the range (up to limit)", position = 5)
+  @Getter
+  @Setter
+  private long[] ids;
+
+}
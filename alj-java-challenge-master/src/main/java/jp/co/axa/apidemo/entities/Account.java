@@ -1,5 +1,6 @@
 package jp.co.axa.apidemo.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.annotations.ApiModelProperty;
 
 import lombok.AllArgsConstructor;
@@ -15,6 +16,10 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 
 /**
@@ -27,7 +32,7 @@ import javax.persistence.Table;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-public class Account implements Serializable {
+public class Account implements AccountView, Serializable {
 
   private static final long serialVersionUID = -5419864267567225800L;
 
@@ -36,7 +41,12 @@ public class Account implements Serializable {
   @Id
   @Getter
   @Setter
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  // IDs are allocated by blocks of 50 from account_seq (same as Employee)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_seq")
+  @GenericGenerator(name = "account_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+                    parameters = { @Parameter(name = "sequence_name", value = "account_seq"),
+                                   @Parameter(name = "increment_size", value = "50"),
+                                   @Parameter(name = "optimizer", value = "pooled-lo") })
   private Long id;
   
   // Login Name (name)
@@ -60,6 +70,14 @@ public class Account implements Serializable {
   @Column(name = "admin_flag", nullable = false)
   private Boolean admin;
 
+  // Incremented on each update. Used for ETag (not exposed in JSON)
+  @JsonIgnore
+  @Getter
+  @Setter
+  @Version
+  @Column(name = "version")
+  private Long version;
+
   public static Account of(String name, String password, boolean admin) {
     return Account.builder().name(name).password(password).admin(admin).build();
   }
@@ -0,0 +1,18 @@
+package jp.co.axa.apidemo.entities;
+
+/**
+ *  Read-only view of an API account.
+ *  Implemented by Account entity and by the immutable account kept on caches (CachedAccount).
+ */
+public interface AccountView {
+
+    Long getId();
+
+    String getName();
+
+    String getPassword();
+
+    Boolean getAdmin();
+
+    Long getVersion();
+}
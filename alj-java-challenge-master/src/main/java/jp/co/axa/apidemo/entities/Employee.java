@@ -1,5 +1,6 @@
 package jp.co.axa.apidemo.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.annotations.ApiModelProperty;
 
 import lombok.AllArgsConstructor;
@@ -15,6 +16,11 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  *  Employee Entity that is provided by Axa Java challenge.
@@ -23,9 +29,11 @@ import javax.persistence.Table;
 @Entity
 @Builder
 @Table(name="EMPLOYEE")
+// UPDATE statement has only changed columns (e.g. partial update by PATCH)
+@DynamicUpdate
 @AllArgsConstructor
 @NoArgsConstructor
-public class Employee implements Serializable {
+public class Employee implements EmployeeView, Serializable {
 
 	private static final long serialVersionUID = -3598658114654598982L;
 
@@ -33,7 +41,12 @@ public class Employee implements Serializable {
     @Getter
     @Setter
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    // Pooled-lo sequence allocates IDs by blocks (no DB round trip per insert) and keeps JDBC batch insert available
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+    @GenericGenerator(name = "employee_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+                      parameters = { @Parameter(name = "sequence_name", value = "employee_seq"),
+                                     @Parameter(name = "increment_size", value = "50"),
+                                     @Parameter(name = "optimizer", value = "pooled-lo") })
     private Long id;
 
 	@ApiModelProperty(value = "Employee's Name", required = true, position = 2, example = "Axa")
@@ -54,6 +67,14 @@ public class Employee implements Serializable {
     @Column(name="department", nullable = false)
     private String department;
 
+    // Incremented on each update. Used for ETag (not exposed in JSON)
+    @JsonIgnore
+    @Getter
+    @Setter
+    @Version
+    @Column(name="version")
+    private Long version;
+
 	public static Employee of(String name, Integer salary, String department) {
 		return Employee.builder().name(name).salary(salary).department(department).build();
 	  }
@@ -0,0 +1,19 @@
+package jp.co.axa.apidemo.entities;
+
+/**
+ *  Read-only view of an employee.
+ *  Implemented by Employee entity and by the immutable employee kept on caches (CachedEmployee),
+ *  so a cached employee can be returned to callers as it is.
+ */
+public interface EmployeeView {
+
+    Long getId();
+
+    String getName();
+
+    Integer getSalary();
+
+    String getDepartment();
+
+    Long getVersion();
+}
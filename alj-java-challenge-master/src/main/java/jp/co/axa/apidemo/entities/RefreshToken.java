@@ -0,0 +1,74 @@
+package jp.co.axa.apidemo.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+/**
+ *  Refresh token of an API account. Only SHA-256 of the token is stored (32 bytes, unique index).
+ *  Each refresh marks the token used and issues a new one in the same family. A used token presented again
+ *  (e.g. stolen and used by someone else) revokes the whole family.
+ */
+@Entity
+@Table(name = "refresh_token",
+       indexes = { @Index(name = "refresh_token_hash", columnList = "token_hash", unique = true),
+                   @Index(name = "refresh_token_account", columnList = "account_id") })
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class RefreshToken implements Serializable {
+
+  private static final long serialVersionUID = 4962373358934727614L;
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_token_seq")
+  @GenericGenerator(name = "refresh_token_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+                    parameters = { @Parameter(name = "sequence_name", value = "refresh_token_seq"),
+                                   @Parameter(name = "increment_size", value = "50"),
+                                   @Parameter(name = "optimizer", value = "pooled-lo") })
+  private Long id;
+
+  // SHA-256 of the token
+  @Column(name = "token_hash", nullable = false, length = 32)
+  private byte[] tokenHash;
+
+  @Column(name = "account_id", nullable = false)
+  private Long accountId;
+
+  // Random ID shared by the tokens of a rotation chain
+  @Column(name = "family", nullable = false)
+  private Long family;
+
+  // Epoch milliseconds
+  @Column(name = "expires_at", nullable = false)
+  private Long expiresAt;
+
+  @Column(name = "used", nullable = false)
+  private Boolean used;
+
+  // Token itself. Given to the client only when it's issued, never stored
+  @Transient
+  private String token;
+
+  @Override
+  public String toString() {
+    return String.format("ID=%s, AccountID=%s, Family=%s, Used=%s", id, accountId, family, used);
+  }
+}
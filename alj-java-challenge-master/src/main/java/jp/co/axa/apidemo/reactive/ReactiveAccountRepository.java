@@ -0,0 +1,46 @@
+package jp.co.axa.apidemo.reactive;
+
+import io.r2dbc.spi.Row;
+import jp.co.axa.apidemo.entities.Account;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ *  Non-blocking repository of ACCOUNT table by R2DBC (reactive mode). Only lookups for authentication.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveAccountRepository {
+
+    private static final String COLUMNS = "id, name, password, admin_flag, version";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Mono<Account> findById(Long id) {
+        return databaseClient.execute("SELECT " + COLUMNS + " FROM account WHERE id = :id")
+                             .bind("id", id)
+                             .map(ReactiveAccountRepository::toAccount)
+                             .one();
+    }
+
+    public Mono<Account> findFirstByName(String name) {
+        return databaseClient.execute("SELECT " + COLUMNS + " FROM account WHERE name = :name ORDER BY id LIMIT 1")
+                             .bind("name", name)
+                             .map(ReactiveAccountRepository::toAccount)
+                             .one();
+    }
+
+    private static Account toAccount(Row row) {
+        return Account.builder()
+                      .id(row.get("id", Long.class))
+                      .name(row.get("name", String.class))
+                      .password(row.get("password", String.class))
+                      .admin(row.get("admin_flag", Boolean.class))
+                      .version(row.get("version", Long.class))
+                      .build();
+    }
+}
@@ -0,0 +1,66 @@
+package jp.co.axa.apidemo.reactive;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.h2.H2ConnectionOption;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+
+/**
+ *  Config of reactive mode (profile 'reactive').
+ *  Employee API is served by WebFlux on Netty and accesses H2 by R2DBC, so no thread is blocked while waiting for DB.
+ *  R2DBC connects to the same in-memory DB as JPA, so schema and initial data (sql/data.sql) are shared.
+ */
+@Configuration
+@Profile("reactive")
+@Slf4j
+public class ReactiveConfig {
+
+    // In-memory H2 database name (same as spring.datasource.url)
+    @Value("${reactive.r2dbc.database:testdb}")
+    private String database;
+
+    @Value("${spring.datasource.username:sa}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${reactive.r2dbc.pool.max-size:10}")
+    private int maxPoolSize;
+
+    /**
+     * Run on Netty even if Tomcat is in classpath
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory() {
+        log.info("R2DBC connection pool : database = " + database + ", max size = " + maxPoolSize);
+        H2ConnectionFactory h2 = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .inMemory(database)
+                .property(H2ConnectionOption.DB_CLOSE_DELAY, "-1")
+                .username(username)
+                .password(password)
+                .build());
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(h2)
+                .maxSize(maxPoolSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
@@ -0,0 +1,90 @@
+package jp.co.axa.apidemo.reactive;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import jp.co.axa.apidemo.security.DemoLoginUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.Objects;
+
+/**
+ *  ReactiveDemoTokenFilter :
+ *    Reactive version of DemoTokenFilter. It verifies bearer token in the request and looks up the account by R2DBC,
+ *    then passes the login user to following filters through reactor context (not thread local).
+ *    If token is either expired or invalid, it returns '401 Unauthorized' without invoking the following filters.
+ */
+@Slf4j
+public class ReactiveDemoTokenFilter implements WebFilter {
+
+  final private ReactiveAccountRepository accountRepository;
+  final private JWTVerifier verifier;
+
+  public ReactiveDemoTokenFilter(ReactiveAccountRepository accountRepository, String secretKey) {
+    Objects.requireNonNull(secretKey, "secret key must be not null");
+    this.accountRepository = accountRepository;
+    // Verifier is thread safe, so it's built once
+    this.verifier = JWT.require(Algorithm.HMAC512(secretKey)).build();
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    String token = resolveToken(exchange.getRequest());
+    if (token == null) {
+      return chain.filter(exchange);
+    }
+
+    Long accountId;
+    try {
+      DecodedJWT jwt = verifier.verify(token);
+      accountId = Long.valueOf(jwt.getSubject());
+    } catch (TokenExpiredException e) {
+      log.error("Token Expired : ", e);
+      return unauthorized(exchange);
+    } catch (JWTVerificationException | NumberFormatException e) {
+      log.error("Token Error on verifyToken : ", e);
+      return unauthorized(exchange);
+    }
+
+    // Unknown account goes on without authentication (same as servlet mode)
+    return accountRepository.findById(accountId)
+                            .map(account -> {
+                              DemoLoginUser demoLoginUser = new DemoLoginUser(account);
+                              return ReactiveSecurityContextHolder.withAuthentication(
+                                  new UsernamePasswordAuthenticationToken(demoLoginUser, null, demoLoginUser.getAuthorities()));
+                            })
+                            .defaultIfEmpty(Context.empty())
+                            .flatMap(context -> chain.filter(exchange).subscriberContext(context));
+  }
+
+  /**
+   * Take token from request without prefix "Bearer "
+   * @param request
+   * @return token string
+   */
+  private String resolveToken(ServerHttpRequest request) {
+    String token = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+    if (token == null || !token.startsWith("Bearer ")) {
+      return null;
+    }
+    return token.substring(7);
+  }
+
+  private Mono<Void> unauthorized(ServerWebExchange exchange) {
+    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+    return exchange.getResponse().setComplete();
+  }
+}
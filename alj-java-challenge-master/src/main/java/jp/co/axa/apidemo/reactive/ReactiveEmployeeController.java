@@ -0,0 +1,145 @@
+package jp.co.axa.apidemo.reactive;
+
+import jp.co.axa.apidemo.controllers.EmployeeETags;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+
+/**
+ *  Employee API of reactive mode (profile 'reactive').
+ *  Same paths, parameters, ETags and error statuses as EmployeeController, handled by WebFlux on Netty.
+ *  Only CRUD endpoints are provided. Analytics, search, bulk and export endpoints are served in servlet mode only.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping(path="/api/v1", produces = MediaType.APPLICATION_JSON_VALUE)
+@Slf4j
+public class ReactiveEmployeeController {
+
+    @Autowired
+    private ReactiveEmployeeService employeeService;
+
+    /**
+     * Return the list of employees. 304 is returned without reading DB if ETag (version of the list) matches.
+     * @return employees
+     */
+    @GetMapping("/employees")
+    public ResponseEntity<Flux<Employee>> getEmployees() {
+        Flux<Employee> employees = employeeService.retrieveEmployees()
+                .onErrorMap(e -> error(e, "Failed to get all employees. Please contact support.", null));
+        return ResponseEntity.ok()
+                             .eTag(EmployeeETags.ofEmployees(employeeService.getEmployeesVersion()))
+                             .body(employees);
+    }
+
+    /**
+     * Get Employee by employee ID. 304 is returned if ETag of the employee matches.
+     * @param employeeId
+     * @return employee
+     */
+    @GetMapping("/employees/{employeeId}")
+    public Mono<ResponseEntity<Employee>> getEmployee(@PathVariable(name="employeeId")Long employeeId) {
+        return employeeService.getEmployee(employeeId)
+                              .map(ReactiveEmployeeController::withETag)
+                              .onErrorMap(e -> error(e, "Failed to get employee. Please contact support.", employeeId));
+    }
+
+    /**
+     * Register a new employee (form parameters as same as servlet mode)
+     * @param employee
+     * @return employee
+     */
+    @PostMapping("/employees")
+    public Mono<Employee> saveEmployee(Employee employee) {
+        return employeeService.saveEmployee(employee)
+                              .doOnNext(saved -> log.info("Employee Saved Successfully"))
+                              .onErrorMap(IllegalArgumentException.class,
+                                          e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. Please validate your input and try again."))
+                              .onErrorMap(e -> !(e instanceof ResponseStatusException),
+                                          e -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to save Employee. Please contact support."));
+    }
+
+    /**
+     * Delete existing employee by ID
+     * @param employeeId
+     */
+    @DeleteMapping("/employees/{employeeId}")
+    public Mono<Void> deleteEmployee(@PathVariable(name="employeeId")Long employeeId) {
+        return employeeService.deleteEmployee(employeeId)
+                              .doOnSuccess(deleted -> log.info("Employee Deleted Successfully"))
+                              .onErrorMap(e -> error(e, "Failed to delete Employee. Please contact support.", employeeId));
+    }
+
+    /**
+     * Update existing employee's fields by ID. Optional If-Match header makes it fail with 412 if the employee was changed.
+     * @param employee
+     * @param employeeId
+     * @param ifMatch
+     * @return employee
+     */
+    @PutMapping("/employees/{employeeId}")
+    public Mono<ResponseEntity<Employee>> updateEmployee(@RequestBody Employee employee,
+                                                         @PathVariable(name="employeeId")Long employeeId,
+                                                         @RequestHeader(name="If-Match", required=false) String ifMatch) {
+        return Mono.defer(() -> employeeService.updateEmployee(employeeId, employee, EmployeeETags.expectedVersion(ifMatch, employeeId)))
+                   .map(ReactiveEmployeeController::withETag)
+                   .onErrorMap(e -> error(e, "Error on updating employee. Please contact support.", employeeId));
+    }
+
+    /**
+     * Update only given fields of existing employee. If-Match header works as same as PUT.
+     * @param changes
+     * @param employeeId
+     * @param ifMatch
+     * @return employee
+     */
+    @PatchMapping("/employees/{employeeId}")
+    public Mono<ResponseEntity<Employee>> patchEmployee(@RequestBody Employee changes,
+                                                        @PathVariable(name="employeeId")Long employeeId,
+                                                        @RequestHeader(name="If-Match", required=false) String ifMatch) {
+        return Mono.defer(() -> employeeService.patchEmployee(employeeId, changes, EmployeeETags.expectedVersion(ifMatch, employeeId)))
+                   .map(ReactiveEmployeeController::withETag)
+                   .onErrorMap(e -> error(e, "Error on updating employee. Please contact support.", employeeId));
+    }
+
+    private static ResponseEntity<Employee> withETag(Employee employee) {
+        return ResponseEntity.ok().eTag(EmployeeETags.of(employee)).body(employee);
+    }
+
+    /**
+     * Map service error to response status as same as EmployeeController
+     * @param e
+     * @param message message of internal server error
+     * @param employeeId
+     * @return ResponseStatusException
+     */
+    private static ResponseStatusException error(Throwable e, String message, Long employeeId) {
+        if (e instanceof ResponseStatusException) {
+            return (ResponseStatusException) e;
+        }
+        if (e instanceof NotFoundException) {
+            log.debug("Employee Not Found. ID = " + employeeId);
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Employee Not Found. ID = " + employeeId);
+        }
+        if (e instanceof IllegalArgumentException) {
+            return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Illegal Argument error. " + e.getMessage());
+        }
+        if (e instanceof OptimisticLockingFailureException) {
+            log.info("Employee was changed. ID=" + employeeId);
+            return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Employee was changed by others. ID = " + employeeId);
+        }
+        log.debug("Exception on employee API. Exception : " + e.toString());
+        return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, message);
+    }
+}
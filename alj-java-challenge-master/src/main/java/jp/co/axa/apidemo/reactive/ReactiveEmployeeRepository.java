@@ -0,0 +1,103 @@
+package jp.co.axa.apidemo.reactive;
+
+import io.r2dbc.spi.Row;
+import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ *  Non-blocking repository of EMPLOYEE table by R2DBC (reactive mode).
+ *  SQL is written by hand as JPA mapping is not available in R2DBC.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveEmployeeRepository {
+
+    private static final String COLUMNS = "id, name, salary, department, version";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Flux<Employee> findAll() {
+        return databaseClient.execute("SELECT " + COLUMNS + " FROM employee ORDER BY id")
+                             .map(ReactiveEmployeeRepository::toEmployee)
+                             .all();
+    }
+
+    public Mono<Employee> findById(Long id) {
+        return databaseClient.execute("SELECT " + COLUMNS + " FROM employee WHERE id = :id")
+                             .bind("id", id)
+                             .map(ReactiveEmployeeRepository::toEmployee)
+                             .one();
+    }
+
+    /**
+     * Insert new employee. ID is taken from employee_seq.
+     * JPA allocates IDs by blocks of the sequence (pooled-lo), and the value taken here is the start of a block
+     * that JPA never uses, so IDs don't conflict between both modes.
+     * @param employee
+     * @return inserted employee with ID and version
+     */
+    public Mono<Employee> insert(Employee employee) {
+        return databaseClient.execute("SELECT NEXT VALUE FOR employee_seq")
+                             .map(row -> row.get(0, Long.class))
+                             .one()
+                             .flatMap(id -> databaseClient.execute("INSERT INTO employee (" + COLUMNS + ")"
+                                                                   + " VALUES (:id, :name, :salary, :department, 0)")
+                                                          .bind("id", id)
+                                                          .bind("name", employee.getName())
+                                                          .bind("salary", employee.getSalary())
+                                                          .bind("department", employee.getDepartment())
+                                                          .fetch()
+                                                          .rowsUpdated()
+                                                          .thenReturn(Employee.builder()
+                                                                              .id(id)
+                                                                              .name(employee.getName())
+                                                                              .salary(employee.getSalary())
+                                                                              .department(employee.getDepartment())
+                                                                              .version(0L)
+                                                                              .build()));
+    }
+
+    /**
+     * Update all fields of the employee if its version is not changed, and increment the version
+     * @param employee new values with the version that was loaded
+     * @return number of updated rows (0 if the employee was changed or deleted)
+     */
+    public Mono<Integer> update(Employee employee) {
+        return databaseClient.execute("UPDATE employee SET name = :name, salary = :salary, department = :department,"
+                                      + " version = version + 1 WHERE id = :id AND version = :version")
+                             .bind("name", employee.getName())
+                             .bind("salary", employee.getSalary())
+                             .bind("department", employee.getDepartment())
+                             .bind("id", employee.getId())
+                             .bind("version", employee.getVersion())
+                             .fetch()
+                             .rowsUpdated();
+    }
+
+    /**
+     * @param id
+     * @return number of deleted rows
+     */
+    public Mono<Integer> deleteById(Long id) {
+        return databaseClient.execute("DELETE FROM employee WHERE id = :id")
+                             .bind("id", id)
+                             .fetch()
+                             .rowsUpdated();
+    }
+
+    private static Employee toEmployee(Row row) {
+        return Employee.builder()
+                       .id(row.get("id", Long.class))
+                       .name(row.get("name", String.class))
+                       .salary(row.get("salary", Integer.class))
+                       .department(row.get("department", String.class))
+                       .version(row.get("version", Long.class))
+                       .build();
+    }
+}
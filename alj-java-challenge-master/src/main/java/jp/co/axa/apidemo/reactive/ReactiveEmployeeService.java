@@ -0,0 +1,155 @@
+package jp.co.axa.apidemo.reactive;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Employee service of reactive mode. Same rules as EmployeeServiceImpl, but nothing blocks the calling thread.
+ *    - Missing employee        : NotFoundException
+ *    - Invalid input           : IllegalArgumentException
+ *    - Version doesn't match   : OptimisticLockingFailureException
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactiveEmployeeService {
+
+    @Autowired
+    private ReactiveEmployeeRepository employeeRepository;
+
+    private final long startTime = System.currentTimeMillis();
+
+    // Incremented on each change made in reactive mode (version of employee list)
+    private final AtomicLong changeCount = new AtomicLong();
+
+    public Flux<Employee> retrieveEmployees() {
+        return employeeRepository.findAll();
+    }
+
+    /**
+     * @return current version of employee list
+     */
+    public String getEmployeesVersion() {
+        return startTime + "-" + changeCount.get();
+    }
+
+    public Mono<Employee> getEmployee(Long employeeId) {
+        return employeeRepository.findById(employeeId)
+                                 .switchIfEmpty(Mono.error(() -> new NotFoundException("Employee Not Found. ID = " + employeeId)));
+    }
+
+    /**
+     * Register employee. If its ID exists, all fields of the existing employee are replaced (same as servlet mode),
+     * otherwise it's registered with a new ID.
+     * @param employee
+     * @return saved employee
+     */
+    public Mono<Employee> saveEmployee(Employee employee) {
+        if (employee == null || employee.getName() == null || employee.getSalary() == null || employee.getDepartment() == null) {
+            return Mono.error(new IllegalArgumentException("name, salary and department are required"));
+        }
+        log.info("Saving Employee : " + employee.toString());
+        Mono<Employee> existing = employee.getId() == null ? Mono.empty() : employeeRepository.findById(employee.getId());
+        return existing.flatMap(current -> applyChanges(current, employee, null))
+                       .switchIfEmpty(Mono.defer(() -> employeeRepository.insert(employee)
+                                                                         .doOnNext(saved -> changeCount.incrementAndGet())));
+    }
+
+    public Mono<Void> deleteEmployee(Long employeeId) {
+        log.info("Delete Employee by ID : ID = " + employeeId);
+        return employeeRepository.deleteById(employeeId)
+                                 .flatMap(deleted -> {
+                                     if (deleted == 0) {
+                                         return Mono.error(new NotFoundException("Employee Not Found. ID = " + employeeId));
+                                     }
+                                     changeCount.incrementAndGet();
+                                     return Mono.empty();
+                                 });
+    }
+
+    /**
+     * Replace all fields of the employee (ID in the body is ignored)
+     * @param employeeId
+     * @param employee new values (name, salary and department are required)
+     * @param expectedVersion version the client has (from If-Match), or null to update any version
+     * @return updated employee
+     */
+    public Mono<Employee> updateEmployee(Long employeeId, Employee employee, Long expectedVersion) {
+        if (employee == null || employee.getName() == null || employee.getSalary() == null || employee.getDepartment() == null) {
+            return Mono.error(new IllegalArgumentException("name, salary and department are required"));
+        }
+        log.info("Updating Employee : ID = " + employeeId);
+        return getEmployee(employeeId).flatMap(current -> applyChanges(current, employee, expectedVersion));
+    }
+
+    /**
+     * Update only given (non-null) fields of the employee
+     * @param employeeId
+     * @param changes fields to change (null for unchanged)
+     * @param expectedVersion version the client has (from If-Match), or null to update any version
+     * @return updated employee
+     */
+    public Mono<Employee> patchEmployee(Long employeeId, Employee changes, Long expectedVersion) {
+        if (changes == null) {
+            return Mono.error(new IllegalArgumentException("Fields to change are required"));
+        }
+        log.info("Patching Employee : ID = " + employeeId);
+        return getEmployee(employeeId).flatMap(current -> applyChanges(current, changes, expectedVersion));
+    }
+
+    /**
+     * Apply changes on the loaded employee and write them by one versioned UPDATE.
+     * Nothing is written if values are the same as current ones.
+     */
+    private Mono<Employee> applyChanges(Employee current, Employee changes, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            return Mono.error(new OptimisticLockingFailureException("Employee was changed. ID = " + current.getId()
+                                                                    + ", version = " + current.getVersion()));
+        }
+
+        boolean changed = false;
+        Employee updated = Employee.builder()
+                                   .id(current.getId())
+                                   .name(current.getName())
+                                   .salary(current.getSalary())
+                                   .department(current.getDepartment())
+                                   .version(current.getVersion())
+                                   .build();
+        if (changes.getName() != null && !changes.getName().equals(current.getName())) {
+            updated.setName(changes.getName());
+            changed = true;
+        }
+        if (changes.getSalary() != null && !changes.getSalary().equals(current.getSalary())) {
+            updated.setSalary(changes.getSalary());
+            changed = true;
+        }
+        if (changes.getDepartment() != null && !changes.getDepartment().equals(current.getDepartment())) {
+            updated.setDepartment(changes.getDepartment());
+            changed = true;
+        }
+        if (!changed) {
+            log.info("Employee is not changed : ID = " + current.getId());
+            return Mono.just(current);
+        }
+
+        return employeeRepository.update(updated)
+                                 .flatMap(count -> {
+                                     if (count == 0) {
+                                         return Mono.error(new OptimisticLockingFailureException(
+                                                 "Employee was changed. ID = " + current.getId()));
+                                     }
+                                     changeCount.incrementAndGet();
+                                     updated.setVersion(current.getVersion() + 1);
+                                     return Mono.just(updated);
+                                 });
+    }
+}
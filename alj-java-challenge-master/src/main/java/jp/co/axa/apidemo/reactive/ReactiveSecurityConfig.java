@@ -0,0 +1,144 @@
+package jp.co.axa.apidemo.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.security.DemoAuthenticationSuccessHandler;
+import jp.co.axa.apidemo.security.DemoLoginUser;
+import jp.co.axa.apidemo.security.DemoToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authorization.HttpStatusServerAccessDeniedHandler;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ *  Security Config of reactive mode (profile 'reactive'). Same rules as DemoSecurityConfig.
+ *    - Token API (POST /api/v1/token with 'name' and 'password') returns JWT token, or 403 on failure
+ *    - Bearer token is verified by ReactiveDemoTokenFilter
+ *    - Only admin user has access to account API, and other APIs require authentication (401 without token)
+ */
+@Configuration
+@EnableWebFluxSecurity
+@Profile("reactive")
+@Slf4j
+public class ReactiveSecurityConfig {
+
+    @Autowired
+    private ReactiveAccountRepository accountRepository;
+
+    // API path (like /api/v1/)
+    @Value("${axa.java.challenge.api.path}")
+    private String apiPath = "";
+
+    // secret key that is used in hash algorithm
+    @Value("${security.admin.key:secret}")
+    private String secretKey = "secretkey";
+
+    // Token Expiration Time
+    @Value("${jwt.token.expiration.period}")
+    private Long expirationTime = 10L;
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        log.info("API Path (reactive) : " + apiPath + "token");
+
+        // @formatter:off
+        return http
+            .authorizeExchange()
+                .pathMatchers(apiPath + "token").permitAll()
+                .pathMatchers(apiPath + "account/**").hasRole("ADMIN")
+                .anyExchange().authenticated()
+            .and()
+
+            .exceptionHandling()
+                .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED))
+                .accessDeniedHandler(new HttpStatusServerAccessDeniedHandler(HttpStatus.FORBIDDEN))
+            .and()
+
+            // Token API and bearer token authentication
+            .addFilterAt(loginFilter(), SecurityWebFiltersOrder.AUTHENTICATION)
+            .addFilterAt(new ReactiveDemoTokenFilter(accountRepository, secretKey), SecurityWebFiltersOrder.AUTHENTICATION)
+
+            // API is using JWT token authentication (stateless, no CSRF, no login form)
+            .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+            .csrf().disable()
+            .httpBasic().disable()
+            .formLogin().disable()
+            .logout().disable()
+            .build();
+        // @formatter:on
+    }
+
+    /**
+     * Account lookup for login by R2DBC
+     */
+    @Bean
+    public ReactiveUserDetailsService reactiveUserDetailsService() {
+        return name -> accountRepository.findFirstByName(name).map(DemoLoginUser::new);
+    }
+
+    /**
+     * Login filter of token API. It authenticates 'name' and 'password' form parameters and returns token as JSON
+     */
+    private AuthenticationWebFilter loginFilter() {
+        UserDetailsRepositoryReactiveAuthenticationManager authenticationManager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(reactiveUserDetailsService());
+        authenticationManager.setPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        DemoAuthenticationSuccessHandler tokenGenerator = new DemoAuthenticationSuccessHandler(secretKey, expirationTime);
+
+        AuthenticationWebFilter filter = new AuthenticationWebFilter(authenticationManager);
+        filter.setRequiresAuthenticationMatcher(ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, apiPath + "token"));
+        filter.setServerAuthenticationConverter(exchange -> exchange.getFormData()
+                .map(form -> new UsernamePasswordAuthenticationToken(form.getFirst("name"), form.getFirst("password"))));
+        filter.setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+        filter.setAuthenticationSuccessHandler((webFilterExchange, auth) -> {
+            DemoLoginUser loginUser = (DemoLoginUser) auth.getPrincipal();
+            String token = tokenGenerator.generateToken(loginUser.getAccount());
+            return writeToken(webFilterExchange.getExchange().getResponse(), token);
+        });
+        filter.setAuthenticationFailureHandler((webFilterExchange, exception) -> {
+            log.debug("Client authentication Failure : " + exception.getMessage());
+            webFilterExchange.getExchange().getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+            return webFilterExchange.getExchange().getResponse().setComplete();
+        });
+        return filter;
+    }
+
+    /**
+     * Write token in response body as JSON (same as servlet mode)
+     */
+    private static Mono<Void> writeToken(ServerHttpResponse response, String token) {
+        try {
+            byte[] json = new ObjectMapper().writeValueAsString(new DemoToken(String.format("Bearer %s", token)))
+                                            .getBytes(StandardCharsets.UTF_8);
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            DataBuffer buffer = response.bufferFactory().wrap(json);
+            return response.writeWith(Mono.just(buffer));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+}
@@ -2,11 +2,30 @@ package jp.co.axa.apidemo.repositories;
 
 import jp.co.axa.apidemo.entities.Account;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findFirstByName(String name);
+
+    @Query("select a.id from Account a order by a.id")
+    List<Long> findAllIds();
+
+    /**
+     * Version of the account (0 if not versioned yet), or null if the account doesn't exist
+     */
+    @Query("select coalesce(a.version, 0L) from Account a where a.id = :id")
+    Long findVersionById(@Param("id") Long id);
+
+    /**
+     * Version of all account data as "count:max ID:sum of versions:sum of ID * (version + 1)"
+     */
+    @Query("select concat(str(count(a)), ':', str(coalesce(max(a.id), 0)), ':', str(coalesce(sum(a.version), 0)), ':',"
+           + " str(coalesce(sum(a.id * (a.version + 1)), 0))) from Account a")
+    String findDataVersion();
 }
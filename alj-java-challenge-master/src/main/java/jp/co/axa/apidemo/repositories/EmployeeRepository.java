@@ -1,9 +1,118 @@
 package jp.co.axa.apidemo.repositories;
 
+import jp.co.axa.apidemo.dto.DepartmentSalaryStats;
 import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface EmployeeRepository extends JpaRepository<Employee,Long> {
+
+    /**
+     * Keyset page ordered by ID. Only rows after the given ID are read, so the cost does not grow with page depth.
+     * Pageable is only used for the LIMIT (no count query is issued when returning List)
+     */
+    @Query("select e from Employee e where e.id > :afterId order by e.id")
+    List<Employee> findPageOrderById(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Keyset page ordered by (name, ID). ID is the tie breaker for employees with the same name.
+     */
+    @Query("select e from Employee e where e.name > :afterName or (e.name = :afterName and e.id > :afterId) order by e.name, e.id")
+    List<Employee> findPageOrderByName(@Param("afterName") String afterName, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Keyset page ordered by (salary, ID). ID is the tie breaker for employees with the same salary.
+     */
+    @Query("select e from Employee e where e.salary > :afterSalary or (e.salary = :afterSalary and e.id > :afterId) order by e.salary, e.id")
+    List<Employee> findPageOrderBySalary(@Param("afterSalary") Integer afterSalary, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Stream all employees ordered by ID from a forward-only cursor. Rows are fetched from DB by 'fetch size' chunks.
+     * It has to be consumed (and closed) in a transaction.
+     */
+    @QueryHints(value = { @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+                          @QueryHint(name = HINT_READONLY, value = "true"),
+                          @QueryHint(name = HINT_CACHEABLE, value = "false") })
+    @Query("select e from Employee e order by e.id")
+    Stream<Employee> streamAllOrderById();
+
+    /**
+     * Stream (id, salary, department) of all employees ordered by ID without loading entities.
+     * It has to be consumed (and closed) in a transaction.
+     */
+    @QueryHints(value = { @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+                          @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("select e.id, e.salary, e.department from Employee e order by e.id")
+    Stream<Object[]> streamSalaryColumns();
+
+    /**
+     * Stream (id, name) of all employees without loading entities.
+     * It has to be consumed (and closed) in a transaction.
+     */
+    @QueryHints(value = { @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+                          @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("select e.id, e.name from Employee e")
+    Stream<Object[]> streamNames();
+
+    @Query("select e.id from Employee e order by e.id")
+    List<Long> findAllIds();
+
+    /**
+     * Version of all employee data as "count:max ID:sum of versions:sum of ID * (version + 1)".
+     * It changes on insert, delete and versioned update (including bulk salary raise) of employees.
+     */
+    @Query("select concat(str(count(e)), ':', str(coalesce(max(e.id), 0)), ':', str(coalesce(sum(e.version), 0)), ':',"
+           + " str(coalesce(sum(e.id * (e.version + 1)), 0))) from Employee e")
+    String findDataVersion();
+
+    /**
+     * IDs of employees in the department. Rows are locked (select for update) until the end of the transaction,
+     * so they can't be changed by others before a bulk update/delete of the department
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e.id from Employee e where e.department = :department")
+    List<Long> findIdsByDepartment(@Param("department") String department);
+
+    /**
+     * Raise salary of all employees in the department by given percent in a single UPDATE statement.
+     * Salary is integer, so the result is rounded down. It's computed in BIGINT, so the product doesn't overflow
+     * (the caller checks that the results fit in integer). Version of updated employees is incremented as well.
+     * @return number of updated employees
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update versioned Employee e set e.salary = cast(e.salary as long) * (100 + :percent) / 100"
+           + " where e.department = :department")
+    int raiseSalaryByDepartment(@Param("department") String department, @Param("percent") int percent);
+
+    /**
+     * Delete all employees in the department in a single DELETE statement
+     * @return number of deleted employees
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Employee e where e.department = :department")
+    int deleteByDepartment(@Param("department") String department);
+
+    @Query("select new jp.co.axa.apidemo.dto.DepartmentSalaryStats(e.department, count(e), sum(e.salary), min(e.salary), max(e.salary))"
+           + " from Employee e group by e.department")
+    List<DepartmentSalaryStats> aggregateSalaryByDepartment();
+
+    @Query("select new jp.co.axa.apidemo.dto.DepartmentSalaryStats(e.department, count(e), sum(e.salary), min(e.salary), max(e.salary))"
+           + " from Employee e where e.department = :department group by e.department")
+    List<DepartmentSalaryStats> aggregateSalaryOfDepartment(@Param("department") String department);
 }
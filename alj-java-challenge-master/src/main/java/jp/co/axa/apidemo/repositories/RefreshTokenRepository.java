@@ -0,0 +1,40 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ *  Bulk updates/deletes flush pending changes of the persistence context before they run, because they clear it
+ *  afterwards (e.g. revoking tokens in the same transaction as an account update/delete doesn't drop the change)
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
+
+    /**
+     * Mark the token used, only if it's not used yet. Concurrent refreshes by the same token update it only once.
+     * @return 1 if marked, 0 if the token was already used or has been revoked
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update RefreshToken t set t.used = true where t.id = :id and t.used = false")
+    int markUsed(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from RefreshToken t where t.family = :family")
+    int deleteByFamily(@Param("family") Long family);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from RefreshToken t where t.accountId = :accountId")
+    int deleteByAccountId(@Param("accountId") Long accountId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from RefreshToken t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") long now);
+}
@@ -0,0 +1,74 @@
+package jp.co.axa.apidemo.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jp.co.axa.apidemo.repositories.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ *  In-memory table of account versions used to check tokens in stateless mode (security.token.stateless).
+ *  A token is valid only while the version of its account is the one when the token was issued, so any change of
+ *  the account (password, admin flag etc) or its deletion revokes the tokens issued before.
+ *    - AccountServiceImpl updates the table on each save/delete
+ *    - Accounts not in the table are read from DB once. Entries expire after a TTL, so changes made by other nodes
+ *      are seen after it
+ */
+@Component
+public class AccountVersionTable {
+
+    // Version of accounts that don't exist
+    private static final long DELETED = -1L;
+
+    private final AccountRepository accountRepository;
+    private final LoadingCache<Long, Long> versions;
+
+    /**
+     * @param accountRepository
+     * @param ttl seconds to keep a version before reading it from DB again
+     * @param maximumSize max number of accounts kept
+     */
+    @Autowired
+    public AccountVersionTable(AccountRepository accountRepository,
+                               @Value("${security.token.account-version.ttl:60}") long ttl,
+                               @Value("${security.token.account-version.maximum-size:100000}") long maximumSize) {
+        this.accountRepository = accountRepository;
+        this.versions = Caffeine.newBuilder()
+                                .expireAfterWrite(Duration.ofSeconds(ttl))
+                                .maximumSize(maximumSize)
+                                .build(this::loadVersion);
+    }
+
+    private Long loadVersion(Long accountId) {
+        Long version = accountRepository.findVersionById(accountId);
+        return version == null ? DELETED : version;
+    }
+
+    /**
+     * @param accountId
+     * @param version version of the account when the token was issued
+     * @return true if the account exists and has not been changed since then
+     */
+    public boolean isCurrent(Long accountId, long version) {
+        Long current = versions.get(accountId);
+        return current != null && current != DELETED && current == version;
+    }
+
+    /**
+     * @param accountId saved account
+     * @param version version after save
+     */
+    public void updated(Long accountId, Long version) {
+        versions.put(accountId, version == null ? 0L : version);
+    }
+
+    /**
+     * @param accountId deleted account
+     */
+    public void deleted(Long accountId) {
+        versions.put(accountId, DELETED);
+    }
+}
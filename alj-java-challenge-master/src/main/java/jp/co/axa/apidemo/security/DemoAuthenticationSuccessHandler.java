@@ -3,6 +3,9 @@ package jp.co.axa.apidemo.security;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.entities.AccountView;
+import jp.co.axa.apidemo.entities.RefreshToken;
+import jp.co.axa.apidemo.services.RefreshTokenService;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -27,13 +30,31 @@ import javax.servlet.http.HttpSession;
 @Slf4j
 public class DemoAuthenticationSuccessHandler implements AuthenticationSuccessHandler {
 
+  // Claims used to build the login user without DB access (DemoTokenFilter in stateless mode)
+  static final String NAME_CLAIM = "name";
+  static final String ROLE_CLAIM = "role";
+  static final String VERSION_CLAIM = "ver";
+  static final String ADMIN_ROLE = "ADMIN";
+  static final String USER_ROLE = "USER";
+
   final private Algorithm algorithm;
   final private Long expirationTime;
+  final private RefreshTokenService refreshTokenService;
 
   public DemoAuthenticationSuccessHandler(String secretKey, Long expirationTime) {
+    this(secretKey, expirationTime, null);
+  }
+
+  /**
+   * @param secretKey
+   * @param expirationTime minutes
+   * @param refreshTokenService issues a refresh token with each token if not null
+   */
+  public DemoAuthenticationSuccessHandler(String secretKey, Long expirationTime, RefreshTokenService refreshTokenService) {
     Objects.requireNonNull(secretKey, "secret key must be not null");
     this.algorithm = Algorithm.HMAC512(secretKey);
     this.expirationTime = TimeUnit.MINUTES.toMillis(expirationTime);
+    this.refreshTokenService = refreshTokenService;
   }
 
   /**
@@ -51,18 +72,34 @@ public class DemoAuthenticationSuccessHandler implements AuthenticationSuccessHa
       log.info("Response has already been committed.");
       return;
     }
-    setToken(response, generateToken(auth));
+    DemoLoginUser loginUser = (DemoLoginUser) auth.getPrincipal();
+    setToken(response, createToken(loginUser.getAccount(),
+                                   refreshTokenService == null ? null : refreshTokenService.issue(loginUser.getAccount().getId())));
     response.setStatus(HttpStatus.OK.value());
     clearAuthenticationAttributes(request);
   }
 
   /**
-   * Generate token using JWT
-   * @param auth
-   * @return
+   * Create token response of the account
+   * @param account
+   * @param refreshToken refresh token issued with the token (nullable)
+   * @return DemoToken with bearer token (and refresh token)
    */
-  private String generateToken(Authentication auth) {
-    DemoLoginUser loginUser = (DemoLoginUser) auth.getPrincipal();
+  public DemoToken createToken(AccountView account, RefreshToken refreshToken) {
+    DemoToken demoToken = new DemoToken(String.format("Bearer %s", generateToken(account)));
+    if (refreshToken != null) {
+      demoToken.setRefreshToken(refreshToken.getToken());
+    }
+    return demoToken;
+  }
+
+  /**
+   * Generate token of the account using JWT (also used by token API in reactive mode).
+   * Name, role and version of the account are embedded as claims.
+   * @param account
+   * @return token
+   */
+  public String generateToken(AccountView account) {
     Date issuedAt = new Date();
     Date notBefore = new Date(issuedAt.getTime());
     Date expiresAt = new Date(issuedAt.getTime() + expirationTime);
@@ -70,9 +107,12 @@ public class DemoAuthenticationSuccessHandler implements AuthenticationSuccessHa
         .withIssuedAt(issuedAt)
         .withNotBefore(notBefore)
         .withExpiresAt(expiresAt)
-        .withSubject(loginUser.getAccount().getId().toString())
+        .withSubject(account.getId().toString())
+        .withClaim(NAME_CLAIM, account.getName())
+        .withClaim(ROLE_CLAIM, Boolean.TRUE.equals(account.getAdmin()) ? ADMIN_ROLE : USER_ROLE)
+        .withClaim(VERSION_CLAIM, account.getVersion() == null ? 0L : account.getVersion())
         .sign(this.algorithm);
-    log.debug("Generated token for User={}", loginUser.getAccount().getName());
+    log.debug("Generated token for User={}", account.getName());
     return token;
   }
 
@@ -80,13 +120,9 @@ public class DemoAuthenticationSuccessHandler implements AuthenticationSuccessHa
   /**
    * Set token in response body (not header) as JSON
    * @param response
-   * @param token
+   * @param demoToken
    */
-  private void setToken(HttpServletResponse response, String token) {
-    String bearerToken = String.format("Bearer %s", token);
-
-    DemoToken demoToken = new DemoToken(bearerToken);
-
+  private void setToken(HttpServletResponse response, DemoToken demoToken) {
     try {
       // write toekn data as JSON in response content
       PrintWriter out = response.getWriter();
@@ -27,6 +27,18 @@ public class DemoLoginUser extends org.springframework.security.core.userdetails
         this.account = account;
     }
 
+    /**
+     * Login user built from verified token claims (stateless mode). It has no password.
+     * @param accountId
+     * @param name
+     * @param admin
+     * @param version version of the account when the token was issued
+     * @return DemoLoginUser
+     */
+    public static DemoLoginUser of(Long accountId, String name, boolean admin, Long version) {
+        return new DemoLoginUser(Account.builder().id(accountId).name(name).password("").admin(admin).version(version).build());
+    }
+
     // Role prefix has to be "ROLE_" as it's appended when hasRole is called (in security/DemoSecurityConfig.java)
     private static final List<GrantedAuthority> USER_ROLES = AuthorityUtils.createAuthorityList("ROLE_USER");
     private static final List<GrantedAuthority> ADMIN_ROLES = AuthorityUtils.createAuthorityList("ROLE_ADMIN", "ROLE_USER");
@@ -1,9 +1,14 @@
 package jp.co.axa.apidemo.security;
 
+import jp.co.axa.apidemo.bulkhead.Bulkhead;
+import jp.co.axa.apidemo.bulkhead.BulkheadLoginFilter;
 import jp.co.axa.apidemo.repositories.AccountRepository;
 import jp.co.axa.apidemo.services.DemoUserDetailsService;
+import jp.co.axa.apidemo.services.RefreshTokenService;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.config.annotation.ObjectPostProcessor;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
@@ -13,7 +18,9 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
  
 import org.springframework.beans.factory.annotation.Value;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -22,10 +29,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.access.AccessDeniedHandler;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
-import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.logout.HttpStatusReturningLogoutSuccessHandler;
 import org.springframework.security.web.authentication.logout.LogoutSuccessHandler;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.filter.GenericFilterBean;
 
 
@@ -37,6 +44,7 @@ import org.springframework.web.filter.GenericFilterBean;
 
 @Configuration
 @EnableWebSecurity
+@Profile("!reactive")
 @Slf4j
 public class DemoSecurityConfig extends WebSecurityConfigurerAdapter {
 
@@ -55,6 +63,29 @@ public class DemoSecurityConfig extends WebSecurityConfigurerAdapter {
     @Value("${jwt.token.expiration.period}")
     private Long expirationTime = 10L;
 
+    // Build login user from token claims without DB access (accounts are checked on AccountVersionTable)
+    @Value("${security.token.stateless:false}")
+    private boolean statelessToken;
+
+    @Autowired
+    private ObjectProvider<AccountVersionTable> accountVersionTable;
+
+    // Max number of verified tokens kept to skip verification of repeated tokens
+    @Value("${security.token.cache.maximum-size:10000}")
+    private long verifiedTokenCacheSize;
+
+    // Issue refresh token with token (token API)
+    @Value("${jwt.refresh-token.enabled:false}")
+    private boolean refreshTokenEnabled;
+
+    @Autowired
+    private ObjectProvider<RefreshTokenService> refreshTokenService;
+
+    // Run login on its own bulkhead (if bulkhead.enabled is true)
+    @Autowired
+    @Qualifier("loginBulkhead")
+    private ObjectProvider<Bulkhead> loginBulkhead;
+
 
     // Specify URLs that should be permitted in authentication
     private static final String[] AUTH_WHITELIST = {
@@ -101,11 +132,13 @@ public class DemoSecurityConfig extends WebSecurityConfigurerAdapter {
         // @formatter:off
         http
             // Authentication URL configuration
-            //  - URL in AUTH_WHITELIST should be all permitted
-            //  - Only admin user has access to '/api/v1/user/**'
+            //  - URL in AUTH_WHITELIST and refresh token API (client has no valid token) should be all permitted
+            //  - Only admin user has access to '/api/v1/user/**' and '/api/v1/cache/**'
             .authorizeRequests()
                 .mvcMatchers(AUTH_WHITELIST).permitAll()
+                .antMatchers(apiPath+"token/refresh").permitAll()
                 .antMatchers(apiPath+"account/**").hasRole("ADMIN")
+                .antMatchers(apiPath+"cache/**").hasRole("ADMIN")
                 .anyRequest()
                     .authenticated()
             .and()
@@ -153,6 +186,20 @@ public class DemoSecurityConfig extends WebSecurityConfigurerAdapter {
             ;
 
         // @formatter:on
+
+        // Login filter (formLogin) is run on login bulkhead, so password checks don't use request threads
+        Bulkhead bulkhead = loginBulkhead.getIfAvailable();
+        if (bulkhead != null) {
+            BulkheadLoginFilter bulkheadLoginFilter = new BulkheadLoginFilter(new AntPathRequestMatcher(apiPath+"token", "POST"), bulkhead);
+            http.formLogin().withObjectPostProcessor(new ObjectPostProcessor<UsernamePasswordAuthenticationFilter>() {
+                @Override
+                public <O extends UsernamePasswordAuthenticationFilter> O postProcess(O loginFilter) {
+                    bulkheadLoginFilter.setLoginFilter(loginFilter);
+                    return loginFilter;
+                }
+            });
+            http.addFilterBefore(bulkheadLoginFilter, UsernamePasswordAuthenticationFilter.class);
+        }
     }
 
     @Autowired
@@ -173,7 +220,8 @@ public class DemoSecurityConfig extends WebSecurityConfigurerAdapter {
     }
 
     private GenericFilterBean tokenFilter() {
-        return new DemoTokenFilter(accountRepository, secretKey);
+        return new DemoTokenFilter(accountRepository, secretKey, statelessToken ? accountVersionTable.getIfAvailable() : null,
+                                   verifiedTokenCacheSize);
     }
 
     private AuthenticationEntryPoint authenticationEntryPoint() {
@@ -184,8 +232,14 @@ public class DemoSecurityConfig extends WebSecurityConfigurerAdapter {
         return new DemoAccessDeniedHandler();
     }
 
-    private AuthenticationSuccessHandler authenticationSuccessHandler() {
-        return new DemoAuthenticationSuccessHandler(secretKey, expirationTime);
+    /**
+     * Handler that issues token on login. It's also used by refresh token API (TokenController)
+     * @return DemoAuthenticationSuccessHandler
+     */
+    @Bean
+    public DemoAuthenticationSuccessHandler authenticationSuccessHandler() {
+        return new DemoAuthenticationSuccessHandler(secretKey, expirationTime,
+                                                    refreshTokenEnabled ? refreshTokenService.getIfAvailable() : null);
     }
 
     private AuthenticationFailureHandler authenticationFailureHandler() {
@@ -1,5 +1,7 @@
 package jp.co.axa.apidemo.security;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.io.Serializable;
 
 import lombok.AllArgsConstructor;
@@ -20,4 +22,14 @@ public class DemoToken implements Serializable {
   @Setter
   private String token;
 
+  // Refresh token to get a new token without login (not set if refresh token is disabled)
+  @Getter
+  @Setter
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String refreshToken;
+
+  public DemoToken(String token) {
+    this.token = token;
+  }
+
 }
@@ -5,7 +5,11 @@ import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import jp.co.axa.apidemo.repositories.AccountRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -20,27 +24,94 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  *  DemoTokenFilter :
  *    This class does the authentication verification when client sends a request with bearer token
  *    that is registered in Token API. 
  *    If client token is either expired or unauthorized, it returns error with '401 Unauthorized' status code.
+ *    In stateless mode (with AccountVersionTable), the login user is built from the name/role/version claims of the
+ *    verified token, and the account is checked only on the in-memory version table (no DB access per request).
+ *    Tokens without these claims are checked on DB as before.
  */
 @Slf4j
 public class DemoTokenFilter extends GenericFilterBean {
 
+  // Max number of login users kept for stateless mode
+  private static final long MAX_LOGIN_USERS = 10_000;
+
+  // Default max number of verified tokens kept
+  private static final long DEFAULT_MAX_VERIFIED_TOKENS = 10_000;
+
+  // SHA-256 per thread, to take the cache key of tokens
+  private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  });
+
   final private AccountRepository accountRepository;
-  final private Algorithm algorithm;
+  final private JWTVerifier verifier;
+  final private AccountVersionTable accountVersions;
+
+  // Account ID -> login user built from claims, reused while the claims are the same
+  final private Cache<Long, DemoLoginUser> loginUsers;
+
+  // SHA-256 of token -> verified token. Each entry expires at the expiry of the token
+  final private Cache<ByteBuffer, DecodedJWT> verifiedTokens;
 
   /**
    *  DemoTokenFilter constructor that takes secret key, then set up HMAC512 algorithm
    */
   public DemoTokenFilter(AccountRepository accountRepository, String secretKey) {
+    this(accountRepository, secretKey, null);
+  }
+
+  /**
+   *  DemoTokenFilter constructor for stateless mode if accountVersions is not null
+   */
+  public DemoTokenFilter(AccountRepository accountRepository, String secretKey, AccountVersionTable accountVersions) {
+    this(accountRepository, secretKey, accountVersions, DEFAULT_MAX_VERIFIED_TOKENS);
+  }
+
+  /**
+   *  DemoTokenFilter constructor that also takes max number of verified tokens kept (0 to verify every request)
+   */
+  public DemoTokenFilter(AccountRepository accountRepository, String secretKey, AccountVersionTable accountVersions,
+                         long maxVerifiedTokens) {
     Objects.requireNonNull(secretKey, "secret key must be not null");
     this.accountRepository = accountRepository;
-    this.algorithm = Algorithm.HMAC512(secretKey);
+    // Verifier is immutable and thread-safe, so it's shared by all requests
+    this.verifier = JWT.require(Algorithm.HMAC512(secretKey)).build();
+    this.accountVersions = accountVersions;
+    this.loginUsers = Caffeine.newBuilder().maximumSize(MAX_LOGIN_USERS).build();
+    this.verifiedTokens = Caffeine.newBuilder()
+                                  .maximumSize(maxVerifiedTokens)
+                                  .expireAfter(new Expiry<ByteBuffer, DecodedJWT>() {
+                                    @Override
+                                    public long expireAfterCreate(ByteBuffer key, DecodedJWT jwt, long currentTime) {
+                                      return untilExpiry(jwt);
+                                    }
+
+                                    @Override
+                                    public long expireAfterUpdate(ByteBuffer key, DecodedJWT jwt, long currentTime, long currentDuration) {
+                                      return untilExpiry(jwt);
+                                    }
+
+                                    @Override
+                                    public long expireAfterRead(ByteBuffer key, DecodedJWT jwt, long currentTime, long currentDuration) {
+                                      return currentDuration;
+                                    }
+                                  })
+                                  .build();
   }
 
 
@@ -101,13 +172,31 @@ public class DemoTokenFilter extends GenericFilterBean {
 
 
   /**
-   * Return DecodedJWT from given token. DecodedJWT has user info for authentication
+   * Return DecodedJWT from given token. DecodedJWT has user info for authentication.
+   * Tokens verified before are taken from the cache (until they expire) without decode and signature verification.
+   * Only verified tokens with expiry are kept.
    * @param token
    * @return decoded jwt
    */
-  private DecodedJWT verifyToken(String token) {
-    JWTVerifier verifier = JWT.require(algorithm).build();
-    return verifier.verify(token);
+  DecodedJWT verifyToken(String token) {
+    ByteBuffer key = ByteBuffer.wrap(SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+    DecodedJWT jwt = verifiedTokens.getIfPresent(key);
+    if (jwt != null) {
+      return jwt;
+    }
+    jwt = verifier.verify(token);
+    if (jwt.getExpiresAt() != null) {
+      verifiedTokens.put(key, jwt);
+    }
+    return jwt;
+  }
+
+  /**
+   * @return nanoseconds until the expiry of the token
+   */
+  private static long untilExpiry(DecodedJWT jwt) {
+    long millis = jwt.getExpiresAt().getTime() - System.currentTimeMillis();
+    return TimeUnit.MILLISECONDS.toNanos(Math.max(millis, 0));
   }
 
 
@@ -117,10 +206,39 @@ public class DemoTokenFilter extends GenericFilterBean {
    */
   private void authentication(DecodedJWT jwt) {
     Long accountId = Long.valueOf(jwt.getSubject());
-    accountRepository.findById(accountId).ifPresent(user -> {
-      DemoLoginUser demoLoginUser = new DemoLoginUser(user);
-      SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(demoLoginUser, null, demoLoginUser.getAuthorities()));
-    });
+    if (accountVersions != null) {
+      Claim name = jwt.getClaim(DemoAuthenticationSuccessHandler.NAME_CLAIM);
+      Claim role = jwt.getClaim(DemoAuthenticationSuccessHandler.ROLE_CLAIM);
+      Claim version = jwt.getClaim(DemoAuthenticationSuccessHandler.VERSION_CLAIM);
+      if (!name.isNull() && !role.isNull() && !version.isNull()) {
+        // Account changed or deleted after the token was issued
+        if (!accountVersions.isCurrent(accountId, version.asLong())) {
+          log.debug("Token of old account version : ID = " + accountId);
+          return;
+        }
+        setAuthentication(loginUser(accountId, name.asString(),
+                                    DemoAuthenticationSuccessHandler.ADMIN_ROLE.equals(role.asString()), version.asLong()));
+        return;
+      }
+    }
+    accountRepository.findById(accountId).ifPresent(user -> setAuthentication(new DemoLoginUser(user)));
+  }
+
+  /**
+   * Return the login user of the claims (the same instance while the account is not changed)
+   */
+  private DemoLoginUser loginUser(Long accountId, String name, boolean admin, Long version) {
+    DemoLoginUser loginUser = loginUsers.getIfPresent(accountId);
+    if (loginUser == null || !version.equals(loginUser.getAccount().getVersion())
+        || !name.equals(loginUser.getUsername()) || admin != loginUser.getAccount().getAdmin()) {
+      loginUser = DemoLoginUser.of(accountId, name, admin, version);
+      loginUsers.put(accountId, loginUser);
+    }
+    return loginUser;
+  }
+
+  private void setAuthentication(DemoLoginUser demoLoginUser) {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(demoLoginUser, null, demoLoginUser.getAuthorities()));
   }
 
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package jp.co.axa.apidemo.services;
 
 import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.AccountView;
 
 import java.util.List;
 
@@ -9,9 +10,11 @@ import java.util.List;
  */
 public interface AccountService {
 
-    public List<Account> retrieveAccounts();
+    public List<AccountView> retrieveAccounts();
 
-    Account findById(Long accountId);
+    public String getAccountsVersion();
+
+    AccountView findById(Long accountId);
 
     public Account saveAccount(Account account);
 
@@ -0,0 +1,51 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.Employee;
+
+import java.util.List;
+
+/**
+ *  Listener that is notified by EmployeeService after employee changes are committed.
+ *  It's used to keep in-memory data (statistics, indexes etc) in sync with DB without reloading.
+ *  All methods are optional.
+ */
+public interface EmployeeChangeListener {
+
+    /**
+     * New employee is saved
+     * @param employee saved employee
+     */
+    default void onEmployeeSaved(Employee employee) {
+    }
+
+    /**
+     * Existing employee is updated
+     * @param before employee before update
+     * @param after employee after update
+     */
+    default void onEmployeeUpdated(Employee before, Employee after) {
+    }
+
+    /**
+     * Employee is deleted
+     * @param employee deleted employee
+     */
+    default void onEmployeeDeleted(Employee employee) {
+    }
+
+    /**
+     * Employees in the department are updated by bulk operation (e.g. salary raise)
+     * @param department
+     * @param employeeIds updated employee IDs
+     */
+    default void onDepartmentUpdated(String department, List<Long> employeeIds) {
+    }
+
+    /**
+     * Employees in the department are deleted by bulk operation
+     * @param department
+     * @param employeeIds deleted employee IDs
+     */
+    default void onDepartmentDeleted(String department, List<Long> employeeIds) {
+    }
+}
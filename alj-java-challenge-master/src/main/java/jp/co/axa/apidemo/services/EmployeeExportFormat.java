@@ -0,0 +1,29 @@
+package jp.co.axa.apidemo.services;
+
+/**
+ *  Output formats of employee export and their content types.
+ */
+public enum EmployeeExportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    EmployeeExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Resolve export format from request parameter (case insensitive)
+     * @param value
+     * @return EmployeeExportFormat
+     * @throws IllegalArgumentException if value is not supported
+     */
+    public static EmployeeExportFormat of(String value) {
+        return EmployeeExportFormat.valueOf(value.trim().toUpperCase());
+    }
+}
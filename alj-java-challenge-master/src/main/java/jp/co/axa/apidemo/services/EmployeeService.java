@@ -1,7 +1,15 @@
 package jp.co.axa.apidemo.services;
 
+import jp.co.axa.apidemo.dto.DepartmentSalaryStats;
+import jp.co.axa.apidemo.dto.EmployeeNameMatch;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.SalaryPercentile;
+import jp.co.axa.apidemo.dto.SalaryRangeResult;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.entities.EmployeeView;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -9,13 +17,35 @@ import java.util.List;
  */
 public interface EmployeeService {
 
-    public List<Employee> retrieveEmployees();
+    public List<EmployeeView> retrieveEmployees();
 
-    public Employee getEmployee(Long employeeId);
+    public String getEmployeesVersion();
+
+    public EmployeePage retrieveEmployeePage(EmployeeSortKey sortKey, Long afterId, String cursor, int limit);
+
+    public long exportEmployees(EmployeeExportFormat format, OutputStream out) throws IOException;
+
+    public EmployeeView getEmployee(Long employeeId);
 
     public Employee saveEmployee(Employee employee);
 
+    public List<Employee> saveEmployees(List<Employee> employees);
+
     public void deleteEmployee(Long employeeId);
 
-    public Employee updateEmployee(Employee employee);
+    public Employee updateEmployee(Long employeeId, Employee employee, Long expectedVersion);
+
+    public Employee patchEmployee(Long employeeId, Employee changes, Long expectedVersion);
+
+    public int raiseSalaryByDepartment(String department, int percent);
+
+    public int deleteEmployeesByDepartment(String department);
+
+    public List<DepartmentSalaryStats> getDepartmentStatistics();
+
+    public SalaryRangeResult findBySalaryRange(int min, int max, String department, int limit);
+
+    public SalaryPercentile getSalaryPercentile(double percentile, String department);
+
+    public List<EmployeeNameMatch> searchEmployeesByName(String query, int limit);
 }
@@ -0,0 +1,21 @@
+package jp.co.axa.apidemo.services;
+
+/**
+ *  Sort keys that are supported by keyset pagination of employees.
+ *  Every key is combined with employee ID so that the order is unique.
+ */
+public enum EmployeeSortKey {
+    ID,
+    NAME,
+    SALARY;
+
+    /**
+     * Resolve sort key from request parameter (case insensitive)
+     * @param value
+     * @return EmployeeSortKey
+     * @throws IllegalArgumentException if value is not supported
+     */
+    public static EmployeeSortKey of(String value) {
+        return EmployeeSortKey.valueOf(value.trim().toUpperCase());
+    }
+}
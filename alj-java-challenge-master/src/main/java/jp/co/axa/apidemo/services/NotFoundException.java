@@ -0,0 +1,21 @@
+package jp.co.axa.apidemo.services;
+
+import java.util.NoSuchElementException;
+
+/**
+ *  Employee or account of the requested ID doesn't exist.
+ *  It's an expected result (e.g. lookups of unknown IDs by scanners), so no stack trace is taken.
+ */
+public class NotFoundException extends NoSuchElementException {
+
+    private static final long serialVersionUID = -6101364318412375528L;
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
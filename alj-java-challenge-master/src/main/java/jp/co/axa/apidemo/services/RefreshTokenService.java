@@ -0,0 +1,28 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.RefreshToken;
+
+import java.util.Optional;
+
+/**
+ * RefreshTokenService interface
+ */
+public interface RefreshTokenService {
+
+    /**
+     * @param accountId
+     * @return new refresh token (token is set)
+     */
+    RefreshToken issue(Long accountId);
+
+    /**
+     * Trade the refresh token for a new one (rotation)
+     * @param token
+     * @return new refresh token of the same account (token is set), or empty if the token is invalid, expired, used or revoked
+     */
+    Optional<RefreshToken> refresh(String token);
+
+    void revokeAll(Long accountId);
+
+    int purgeExpired();
+}
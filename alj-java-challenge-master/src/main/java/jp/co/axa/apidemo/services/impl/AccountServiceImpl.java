@@ -1,20 +1,34 @@
 package jp.co.axa.apidemo.services.impl;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
 
+import jp.co.axa.apidemo.cache.CachedAccount;
+import jp.co.axa.apidemo.cache.MissingIdCache;
+import jp.co.axa.apidemo.cache.RefreshAheadCacheManager;
+import jp.co.axa.apidemo.cache.VersionedListCache;
 import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.AccountView;
 import jp.co.axa.apidemo.repositories.AccountRepository;
+import jp.co.axa.apidemo.security.AccountVersionTable;
 import jp.co.axa.apidemo.services.AccountService;
+import jp.co.axa.apidemo.services.NotFoundException;
+import jp.co.axa.apidemo.services.RefreshTokenService;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -29,75 +43,221 @@ public class AccountServiceImpl implements AccountService {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private AccountVersionTable accountVersionTable;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     private PasswordEncoder encoder;
 
+    // Version of account list (start time and number of changes). Used as ETag of the list
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicLong changes = new AtomicLong();
+
+    // List of all accounts (immutable, without password) on [allAccountCache]. It's patched by each save/delete
+    private final VersionedListCache<AccountView> accountListCache = new VersionedListCache<>(
+            () -> cacheManager == null ? null : cacheManager.getCache("allAccountCache"),
+            AccountView::getId, AccountView::getVersion);
+
+    // IDs known not to exist (negative cache and Bloom filter of existing IDs), so lookups of them don't reach DB
+    private final MissingIdCache missingAccounts = new MissingIdCache("account", Duration.ofSeconds(5), 10_000, 0.01);
+
     public AccountServiceImpl() {
         this.encoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
     }
 
     /**
-     * Load list of API accounts and return
-     * @return List<Account>
+     * Load list of API accounts and return (ordered by ID)
+     * @return List<AccountView> (read-only list of immutable accounts without password)
      */
-    @Cacheable(cacheNames="allAccountCache")
     @Override
-    public List<Account> retrieveAccounts() {
+    public List<AccountView> retrieveAccounts() {
+        return accountListCache.get(this::loadAccounts);
+    }
+
+    private List<AccountView> loadAccounts() {
         List<Account> accounts = accountRepository.findAll();
 
-        // Delete password on all accounts
+        // Copy accounts without password
+        List<AccountView> views = new ArrayList<>(accounts.size());
         for(Account account : accounts) {
-            account.setPassword("");
             log.info("Retrieve Account : " + account.toString());
+            views.add(CachedAccount.of(account));
         }
-        return accounts;
+        return views;
     }
 
     /**
-     * Load Account by name and return
+     * Register loaders that reload [accountCache] and [allAccountCache] before expiry (if refresh-ahead is enabled)
+     */
+    @PostConstruct
+    public void registerRefreshLoaders() {
+        RefreshAheadCacheManager.registerLoader(cacheManager, "accountCache",
+                key -> accountRepository.findById((Long) key).map(CachedAccount::of).orElse(null));
+        RefreshAheadCacheManager.registerLoader(cacheManager, "allAccountCache",
+                key -> accountListCache.reload(this::loadAccounts));
+    }
+
+    /**
+     * Return version of account list. It's changed on each account save/delete.
+     * @return version string (used as ETag)
+     */
+    @Override
+    public String getAccountsVersion() {
+        return startTime + "-" + changes.get();
+    }
+
+    /**
+     * Load Account by ID from [accountCache] and return.
+     * IDs known not to exist are answered before the cache. IDs not on the Bloom filter (e.g. created on another node)
+     * are confirmed by an existence check on DB.
+     * Concurrent cache misses of the same ID wait for one DB load (sync).
+     * Cached account is immutable and has no password, so a cache hit returns the cached instance without copy.
      * @param accountId
-     * @return Account
+     * @return AccountView (immutable, password is empty)
+     * @throws NotFoundException if the account doesn't exist
      */
-    @Cacheable(cacheNames="accountCache", key="#accountId")
     @Override
-    public Account findById(Long accountId) {
-        log.info("Finding name by " + accountId);
+    public AccountView findById(Long accountId) {
         Objects.requireNonNull(accountId, "accountId must be not null");
+        if (missingAccounts.isMissing(accountId, accountRepository::existsById)) {
+            throw new NotFoundException("Account Not Found. ID = " + accountId);
+        }
+        Cache accountCache = cacheManager == null ? null : cacheManager.getCache("accountCache");
+        if (accountCache == null) {
+            return loadAccount(accountId);
+        }
+        try {
+            return accountCache.get(accountId, () -> loadAccount(accountId));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private AccountView loadAccount(Long accountId) {
+        log.info("Finding name by " + accountId);
         Optional<Account> account = accountRepository.findById(accountId);
+        if (!account.isPresent()) {
+            missingAccounts.markMissing(accountId);
+            throw new NotFoundException("Account Not Found. ID = " + accountId);
+        }
+        return CachedAccount.of(account.get());
+    }
 
-        // Hide password
-        Account returnAccount = account.get();
-        returnAccount.setPassword("");
-        return returnAccount;
+    /**
+     * Rebuild the Bloom filter of existing account IDs (drops deleted IDs). Initial build is done on startup.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${cache.id-filter.rebuild-period:600000}")
+    public void rebuildAccountIdFilter() {
+        missingAccounts.rebuild(accountRepository::findAllIds);
     }
 
     /**
      * Save Account and return Account if success.
-     * account has raw password and it is encoded before storing to DB
-     * cache on [accountCache] and delete all cache on [allAccountCache]
+     * account has raw password and it is encoded before storing to DB.
+     * New version of the account is set on AccountVersionTable after commit, so tokens issued before the change
+     * are rejected.
+     * Refresh tokens of an updated account are revoked
+     * cache immutable copy (without password) on [accountCache] and replace it in the list on [allAccountCache]
+     * after commit
      * @param Account
      * @return Account
      */
 //    @CachePut(key="#result.id")
-    @Caching(put = {@CachePut(cacheNames="accountCache", key="#result.id")},
-             evict = {@CacheEvict(cacheNames="allAccountCache", allEntries = true)})
+    @Transactional
     @Override
     public Account saveAccount(Account acccount) {
         log.info("Saving Account : " + acccount.toString());
         acccount.setPassword(this.encoder.encode(acccount.getPassword()));
-        return accountRepository.save(acccount);
+        // Account in request has no version. Take the stored one to update existing account
+        if (acccount.getId() != null && acccount.getVersion() == null) {
+            Optional<Account> stored = accountRepository.findById(acccount.getId());
+            if (stored.isPresent()) {
+                acccount.setVersion(stored.get().getVersion());
+            } else {
+                acccount.setId(null);
+            }
+        }
+        boolean update = acccount.getId() != null;
+        Account saved = accountRepository.save(acccount);
+        if (update) {
+            // Flush the update here, so that the version table and the cached account have the incremented version,
+            // and the bulk delete of refresh tokens (which clears the persistence context) doesn't drop it
+            accountRepository.flush();
+        }
+        // Password is set on each save. Clients of the account login again
+        if (update && refreshTokenService != null) {
+            refreshTokenService.revokeAll(saved.getId());
+        }
+        missingAccounts.add(saved.getId());
+        runAfterCommit(() -> {
+            changes.incrementAndGet();
+            if (accountVersionTable != null) {
+                accountVersionTable.updated(saved.getId(), saved.getVersion());
+            }
+            CachedAccount cached = CachedAccount.of(saved);
+            Cache accountCache = cacheManager == null ? null : cacheManager.getCache("accountCache");
+            if (accountCache != null) {
+                accountCache.put(cached.getId(), cached);
+            }
+            accountListCache.upsert(cached);
+        });
+        return saved;
     }
 
     /**
      * Delete Account by ID
-     * cache on both [accountCache] and [allAccountCache] are remoed
+     * cache on [accountCache] is removed and the account is removed from the list on [allAccountCache] after commit.
+     * Tokens of the account are rejected after commit (AccountVersionTable), and its refresh tokens are revoked
      * @param accountId
      */
-    @Caching(evict = {@CacheEvict(cacheNames="accountCache", key="#accountId"),
-                      @CacheEvict(cacheNames="allAccountCache", allEntries = true)})
+    @Transactional
     @Override
     public void deleteAccount(Long accountId) {
         log.info("Delete Account by ID : ID =" + accountId.toString());
         accountRepository.deleteById(accountId);
+        // Flush the delete before refresh tokens are revoked by bulk delete, which clears the persistence context
+        accountRepository.flush();
+        missingAccounts.markMissing(accountId);
+        if (refreshTokenService != null) {
+            refreshTokenService.revokeAll(accountId);
+        }
+        runAfterCommit(() -> {
+            changes.incrementAndGet();
+            if (accountVersionTable != null) {
+                accountVersionTable.deleted(accountId);
+            }
+            Cache accountCache = cacheManager == null ? null : cacheManager.getCache("accountCache");
+            if (accountCache != null) {
+                accountCache.evict(accountId);
+            }
+            accountListCache.remove(accountId);
+        });
+    }
+
+    /**
+     * Run the action after commit of current transaction (or now if there is no transaction),
+     * so that the version of the list and caches don't show changes that may be rolled back
+     * @param action
+     */
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
 }
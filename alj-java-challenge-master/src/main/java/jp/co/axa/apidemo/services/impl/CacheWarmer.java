@@ -0,0 +1,235 @@
+package jp.co.axa.apidemo.services.impl;
+
+import jp.co.axa.apidemo.cache.CachedAccount;
+import jp.co.axa.apidemo.cache.CachedEmployee;
+import jp.co.axa.apidemo.cache.PartitionedCacheManager;
+import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.AccountRepository;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ *  Warms up employeeCache and accountCache on startup, before the web server starts to accept requests
+ *  (Spring Boot 2.2 starts the server after all lifecycle beans are started).
+ *    - Persistent mode (cache.persistent.enabled) : entries restored from the persistent disk tier of Ehcache are kept
+ *      only if the data version (row count, max ID and versions of the table) is the same as the one saved on the last
+ *      clean shutdown. Otherwise the cache is cleared.
+ *    - Preload (cache.preload.enabled) : entities not in the cache yet are read from DB by ID batches in parallel.
+ */
+@Component
+@Profile("!reactive")
+@Slf4j
+public class CacheWarmer implements SmartLifecycle {
+
+    private static final String EMPLOYEE_CACHE = "employeeCache";
+    private static final String ACCOUNT_CACHE = "accountCache";
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${cache.persistent.enabled:false}")
+    private boolean persistentEnabled;
+
+    @Value("${cache.persistent.data-version-file:cache/data-version.properties}")
+    private String dataVersionFile;
+
+    @Value("${cache.preload.enabled:false}")
+    private boolean preloadEnabled;
+
+    @Value("${cache.preload.batch-size:500}")
+    private int preloadBatchSize;
+
+    @Value("${cache.preload.threads:4}")
+    private int preloadThreads;
+
+    @Value("${cache.preload.timeout:60}")
+    private long preloadTimeout;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        if (persistentEnabled) {
+            checkDataVersion();
+        }
+        if (preloadEnabled) {
+            preload();
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (persistentEnabled) {
+            saveDataVersion();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after lifecycle beans of the default phase
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Clear the caches restored from disk if DB was changed after they were persisted.
+     * The saved version is removed after the check, so the disk tier isn't trusted after a crash.
+     */
+    void checkDataVersion() {
+        Path path = Paths.get(dataVersionFile);
+        Properties saved = new Properties();
+        if (Files.exists(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                saved.load(in);
+                Files.delete(path);
+            } catch (IOException e) {
+                log.warn("Failed to read cache data version : " + path, e);
+                saved.clear();
+            }
+        }
+        clearIfChanged(EMPLOYEE_CACHE, saved.getProperty(EMPLOYEE_CACHE), employeeRepository.findDataVersion());
+        clearIfChanged(ACCOUNT_CACHE, saved.getProperty(ACCOUNT_CACHE), accountRepository.findDataVersion());
+    }
+
+    private void clearIfChanged(String cacheName, String savedVersion, String dataVersion) {
+        // Only the partition of this node is persisted, so partitions of other nodes are kept
+        PartitionedCacheManager partitioned = PartitionedCacheManager.find(cacheManager);
+        Cache cache = (partitioned == null ? cacheManager : partitioned.getTarget()).getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        if (dataVersion.equals(savedVersion)) {
+            log.info("Persistent " + cacheName + " is reused : data version = " + dataVersion);
+        } else {
+            cache.clear();
+            log.info("Persistent " + cacheName + " is cleared : saved version = " + savedVersion
+                     + ", data version = " + dataVersion);
+        }
+    }
+
+    /**
+     * Save the data version with which the persisted caches are consistent (on clean shutdown, after requests are done)
+     */
+    void saveDataVersion() {
+        Path path = Paths.get(dataVersionFile);
+        Properties versions = new Properties();
+        versions.setProperty(EMPLOYEE_CACHE, employeeRepository.findDataVersion());
+        versions.setProperty(ACCOUNT_CACHE, accountRepository.findDataVersion());
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(path)) {
+                versions.store(out, "Data version of persistent caches");
+            }
+        } catch (IOException e) {
+            log.warn("Failed to save cache data version : " + path, e);
+        }
+    }
+
+    /**
+     * Fill employeeCache and accountCache from DB. Startup goes on (with a partially filled cache) on failure or timeout.
+     */
+    void preload() {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(preloadThreads, 1),
+                                                                new CustomizableThreadFactory("cache-preload-"));
+        try {
+            preload(executor, EMPLOYEE_CACHE, employeeRepository.findAllIds(),
+                    employeeRepository::findAllById, Employee::getId, CachedEmployee::of);
+            preload(executor, ACCOUNT_CACHE, accountRepository.findAllIds(),
+                    accountRepository::findAllById, Account::getId, CachedAccount::of);
+        } catch (TimeoutException e) {
+            log.warn("Cache preload timed out after " + preloadTimeout + "s");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Load entities of each ID batch that are not cached yet and put them on the cache
+     * @param executor
+     * @param cacheName
+     * @param ids all IDs in DB
+     * @param loader reads entities of given IDs
+     * @param idOf cache key of entity
+     * @param toCached cached value of entity
+     */
+    private <T> void preload(ExecutorService executor, String cacheName, List<Long> ids,
+                             Function<List<Long>, List<T>> loader, Function<T, Long> idOf,
+                             Function<T, Object> toCached) throws InterruptedException, TimeoutException {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int batchSize = Math.max(preloadBatchSize, 1);
+        AtomicInteger loaded = new AtomicInteger();
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            batches.add(executor.submit(() -> {
+                List<Long> missing = batch.stream().filter(id -> cache.get(id) == null).collect(Collectors.toList());
+                if (!missing.isEmpty()) {
+                    for (T entity : loader.apply(missing)) {
+                        cache.put(idOf.apply(entity), toCached.apply(entity));
+                        loaded.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        long deadline = start + TimeUnit.SECONDS.toMillis(preloadTimeout);
+        for (Future<?> batch : batches) {
+            try {
+                batch.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                log.warn("Failed to preload a batch of " + cacheName, e.getCause());
+            }
+        }
+        log.info("Preloaded " + cacheName + " : loaded = " + loaded.get() + ", ids = " + ids.size()
+                 + ", time = " + (System.currentTimeMillis() - start) + "ms");
+    }
+}
@@ -0,0 +1,203 @@
+package jp.co.axa.apidemo.services.impl;
+
+import jp.co.axa.apidemo.dto.DepartmentSalaryStats;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.EmployeeChangeListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  Salary statistics per department that are kept in memory.
+ *  Employee changes are applied as add/remove deltas, so reading statistics is O(departments).
+ *  Min/max can't be restored on removal, so they are reloaded from DB (for the department only) when it's needed.
+ *  All statistics are reconciled with DB periodically to catch any drift.
+ */
+@Component
+@Slf4j
+public class DepartmentSalaryAggregator implements EmployeeChangeListener {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private final Map<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+
+    /**
+     * Return statistics of all departments ordered by department name
+     * @return List<DepartmentSalaryStats>
+     */
+    public List<DepartmentSalaryStats> getStatistics() {
+        List<DepartmentSalaryStats> statistics = new ArrayList<>(aggregates.size());
+        for (Map.Entry<String, Aggregate> entry : aggregates.entrySet()) {
+            DepartmentSalaryStats stats = entry.getValue().toStats(entry.getKey());
+            if (stats == null) {
+                // min/max is stale since min or max employee was removed
+                stats = reloadDepartment(entry.getKey());
+            }
+            if (stats != null && stats.getCount() > 0) {
+                statistics.add(stats);
+            }
+        }
+        statistics.sort(Comparator.comparing(DepartmentSalaryStats::getDepartment));
+        return statistics;
+    }
+
+    /**
+     * Reload statistics of all departments from DB.
+     * Initial load is done on startup, then it runs periodically to reconcile drift.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${employee.stats.reconcile.period:300000}")
+    public void reconcile() {
+        Map<String, DepartmentSalaryStats> loaded = new HashMap<>();
+        for (DepartmentSalaryStats stats : employeeRepository.aggregateSalaryByDepartment()) {
+            loaded.put(stats.getDepartment(), stats);
+        }
+
+        int drifted = 0;
+        for (DepartmentSalaryStats stats : loaded.values()) {
+            Aggregate aggregate = new Aggregate();
+            aggregate.reset(stats);
+            Aggregate existing = aggregates.putIfAbsent(stats.getDepartment(), aggregate);
+            if (existing != null && existing.reset(stats)) {
+                drifted++;
+            }
+        }
+        for (String department : aggregates.keySet()) {
+            if (!loaded.containsKey(department)) {
+                aggregates.remove(department);
+                drifted++;
+            }
+        }
+        log.info("Department salary statistics reconciled : departments = " + loaded.size() + ", drifted = " + drifted);
+    }
+
+    @Override
+    public void onEmployeeSaved(Employee employee) {
+        add(employee);
+    }
+
+    @Override
+    public void onEmployeeUpdated(Employee before, Employee after) {
+        remove(before);
+        add(after);
+    }
+
+    @Override
+    public void onEmployeeDeleted(Employee employee) {
+        remove(employee);
+    }
+
+    @Override
+    public void onDepartmentUpdated(String department, List<Long> employeeIds) {
+        // Salary raise is rounded per employee, so sum can't be calculated from delta
+        reloadDepartment(department);
+    }
+
+    @Override
+    public void onDepartmentDeleted(String department, List<Long> employeeIds) {
+        aggregates.remove(department);
+    }
+
+    private void add(Employee employee) {
+        if (employee == null || employee.getDepartment() == null || employee.getSalary() == null) {
+            return;
+        }
+        aggregates.computeIfAbsent(employee.getDepartment(), department -> new Aggregate()).add(employee.getSalary());
+    }
+
+    private void remove(Employee employee) {
+        if (employee == null || employee.getDepartment() == null || employee.getSalary() == null) {
+            return;
+        }
+        Aggregate aggregate = aggregates.get(employee.getDepartment());
+        if (aggregate != null) {
+            aggregate.remove(employee.getSalary());
+        }
+    }
+
+    /**
+     * Reload statistics of the department from DB
+     * @param department
+     * @return DepartmentSalaryStats (null if no employee in the department)
+     */
+    private DepartmentSalaryStats reloadDepartment(String department) {
+        List<DepartmentSalaryStats> loaded = employeeRepository.aggregateSalaryOfDepartment(department);
+        if (loaded.isEmpty()) {
+            aggregates.remove(department);
+            return null;
+        }
+        DepartmentSalaryStats stats = loaded.get(0);
+        aggregates.computeIfAbsent(department, key -> new Aggregate()).reset(stats);
+        return stats;
+    }
+
+
+    /**
+     *  Mutable aggregate of a department. Updated under its own lock, so departments don't block each other.
+     */
+    private static class Aggregate {
+        private long count;
+        private long sum;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+        private boolean minMaxStale;
+
+        synchronized void add(int salary) {
+            count++;
+            sum += salary;
+            min = Math.min(min, salary);
+            max = Math.max(max, salary);
+        }
+
+        synchronized void remove(int salary) {
+            count--;
+            sum -= salary;
+            if (count <= 0) {
+                count = 0;
+                sum = 0;
+                min = Integer.MAX_VALUE;
+                max = Integer.MIN_VALUE;
+                minMaxStale = false;
+            } else if (salary <= min || salary >= max) {
+                minMaxStale = true;
+            }
+        }
+
+        /**
+         * Reset by statistics loaded from DB
+         * @return true if the aggregate was different from DB
+         */
+        synchronized boolean reset(DepartmentSalaryStats stats) {
+            boolean drifted = minMaxStale || count != stats.getCount() || sum != stats.getSum()
+                              || min != stats.getMin() || max != stats.getMax();
+            count = stats.getCount();
+            sum = stats.getSum();
+            min = stats.getMin();
+            max = stats.getMax();
+            minMaxStale = false;
+            return drifted;
+        }
+
+        /**
+         * @return statistics, or null if min/max needs to be reloaded
+         */
+        synchronized DepartmentSalaryStats toStats(String department) {
+            if (minMaxStale) {
+                return null;
+            }
+            if (count == 0) {
+                return new DepartmentSalaryStats(department, 0L, 0L, 0, 0);
+            }
+            return new DepartmentSalaryStats(department, count, sum, min, max);
+        }
+    }
+}
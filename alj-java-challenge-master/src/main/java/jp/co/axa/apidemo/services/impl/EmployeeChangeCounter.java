@@ -0,0 +1,53 @@
+package jp.co.axa.apidemo.services.impl;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeChangeListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Counter of committed employee changes. It's the version of employee collection (used as ETag of the list),
+ *  so clients can check if the list was changed without loading or serializing it.
+ *  Start time is part of the version, so the version is not reused after restart.
+ */
+@Component
+public class EmployeeChangeCounter implements EmployeeChangeListener {
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * @return current version of employee collection
+     */
+    public String getVersion() {
+        return startTime + "-" + changes.get();
+    }
+
+    @Override
+    public void onEmployeeSaved(Employee employee) {
+        changes.incrementAndGet();
+    }
+
+    @Override
+    public void onEmployeeUpdated(Employee before, Employee after) {
+        changes.incrementAndGet();
+    }
+
+    @Override
+    public void onEmployeeDeleted(Employee employee) {
+        changes.incrementAndGet();
+    }
+
+    @Override
+    public void onDepartmentUpdated(String department, List<Long> employeeIds) {
+        changes.incrementAndGet();
+    }
+
+    @Override
+    public void onDepartmentDeleted(String department, List<Long> employeeIds) {
+        changes.incrementAndGet();
+    }
+}
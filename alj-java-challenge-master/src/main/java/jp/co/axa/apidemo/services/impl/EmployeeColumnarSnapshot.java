@@ -0,0 +1,305 @@
+package jp.co.axa.apidemo.services.impl;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.EmployeeChangeListener;
+import jp.co.axa.apidemo.services.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ *  Read-optimized snapshot of EMPLOYEE table for analytics queries (salary range, percentile).
+ *  Columns are kept as primitive arrays (ID, salary, dictionary-encoded department) with sorted salary index,
+ *  so queries don't hit DB, don't build Employee objects and don't allocate per scanned row.
+ *  Employee changes mark the snapshot as changed and it's rebuilt from DB in background.
+ */
+@Component
+@Slf4j
+public class EmployeeColumnarSnapshot implements EmployeeChangeListener {
+
+    // Scan rows in parallel only when the snapshot is large enough to pay for fork/join
+    private static final int PARALLEL_THRESHOLD = 100_000;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile Columns columns = Columns.EMPTY;
+
+    // Incremented on each employee change. Snapshot is rebuilt if it's different from the built version
+    private final AtomicLong changeVersion = new AtomicLong(1);
+    private long builtVersion = 0;
+
+    /**
+     * Rebuild the snapshot if employees were changed after the last build.
+     * Initial build is done on startup.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${employee.snapshot.refresh.period:5000}")
+    public synchronized void refreshIfChanged() {
+        long version = changeVersion.get();
+        if (version != builtVersion) {
+            refresh();
+            builtVersion = version;
+        }
+    }
+
+    /**
+     * Rebuild the snapshot from DB. Queries keep using the previous snapshot until it's replaced.
+     * Synchronized with the scheduled refresh, so a snapshot built earlier never replaces a newer one.
+     */
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        Columns built = transaction.execute(status -> {
+            ColumnsBuilder builder = new ColumnsBuilder();
+            try (Stream<Object[]> rows = employeeRepository.streamSalaryColumns()) {
+                rows.forEach(row -> builder.add((Long) row[0], (Integer) row[1], (String) row[2]));
+            }
+            return builder.build();
+        });
+        columns = built;
+        log.info("Employee columnar snapshot refreshed : size = " + built.size + ", time = "
+                 + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    @Override
+    public void onEmployeeSaved(Employee employee) {
+        changeVersion.incrementAndGet();
+    }
+
+    @Override
+    public void onEmployeeUpdated(Employee before, Employee after) {
+        changeVersion.incrementAndGet();
+    }
+
+    @Override
+    public void onEmployeeDeleted(Employee employee) {
+        changeVersion.incrementAndGet();
+    }
+
+    @Override
+    public void onDepartmentUpdated(String department, List<Long> employeeIds) {
+        changeVersion.incrementAndGet();
+    }
+
+    @Override
+    public void onDepartmentDeleted(String department, List<Long> employeeIds) {
+        changeVersion.incrementAndGet();
+    }
+
+    /**
+     * Count employees whose salary is between min and max (inclusive) by binary search on sorted salaries
+     * @param min
+     * @param max
+     * @param department null for all departments
+     * @return number of employees
+     */
+    public int countBySalaryRange(int min, int max, String department) {
+        int[] sorted = columns.sortedSalaries(department);
+        return firstIndexAbove(sorted, max) - firstIndexAtLeast(sorted, min);
+    }
+
+    /**
+     * Return IDs of employees whose salary is between min and max (inclusive), in ID order up to the limit.
+     * Columns are scanned in parallel for large snapshot.
+     * @param min
+     * @param max
+     * @param department null for all departments
+     * @param limit max number of IDs
+     * @return employee IDs
+     */
+    public long[] findIdsBySalaryRange(int min, int max, String department, int limit) {
+        Columns current = columns;
+        int code = current.departmentCode(department);
+        if (code == Columns.MISSING || limit <= 0) {
+            return new long[0];
+        }
+        long[] ids = current.ids;
+        int[] salaries = current.salaries;
+        int[] departmentCodes = current.departmentCodes;
+
+        IntStream rows = IntStream.range(0, current.size);
+        if (current.size >= PARALLEL_THRESHOLD) {
+            rows = rows.parallel();
+        }
+        return rows.filter(row -> salaries[row] >= min && salaries[row] <= max
+                                  && (code == Columns.ALL || departmentCodes[row] == code))
+                   .limit(limit)
+                   .mapToLong(row -> ids[row])
+                   .toArray();
+    }
+
+    /**
+     * Return salary at the percentile by nearest rank method
+     * @param percentile 0 < percentile <= 100
+     * @param department null for all departments
+     * @return salary
+     * @throws NotFoundException if there is no employee
+     */
+    public int salaryAtPercentile(double percentile, String department) {
+        int[] sorted = columns.sortedSalaries(department);
+        if (sorted.length == 0) {
+            throw new NotFoundException("No employee in department : " + department);
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(Math.max(rank, 1), sorted.length) - 1];
+    }
+
+    /**
+     * @param department null for all departments
+     * @return number of employees in the snapshot
+     */
+    public int size(String department) {
+        return columns.sortedSalaries(department).length;
+    }
+
+    // Index of the first value >= min
+    private static int firstIndexAtLeast(int[] sorted, int min) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < min) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Index of the first value > max
+    private static int firstIndexAbove(int[] sorted, int max) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= max) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     *  Immutable columns of the snapshot. Row N of each array is the same employee (ordered by ID).
+     */
+    private static class Columns {
+        static final int ALL = -1;
+        static final int MISSING = -2;
+        static final int[] NO_SALARIES = new int[0];
+        static final Columns EMPTY = new ColumnsBuilder().build();
+
+        final int size;
+        final long[] ids;
+        final int[] salaries;
+        final int[] departmentCodes;
+        final Map<String, Integer> departmentDictionary;
+        final int[] sortedSalaries;
+        final int[][] sortedSalariesByDepartment;
+
+        Columns(int size, long[] ids, int[] salaries, int[] departmentCodes, Map<String, Integer> departmentDictionary,
+                int[] sortedSalaries, int[][] sortedSalariesByDepartment) {
+            this.size = size;
+            this.ids = ids;
+            this.salaries = salaries;
+            this.departmentCodes = departmentCodes;
+            this.departmentDictionary = departmentDictionary;
+            this.sortedSalaries = sortedSalaries;
+            this.sortedSalariesByDepartment = sortedSalariesByDepartment;
+        }
+
+        int departmentCode(String department) {
+            if (department == null) {
+                return ALL;
+            }
+            return departmentDictionary.getOrDefault(department, MISSING);
+        }
+
+        int[] sortedSalaries(String department) {
+            int code = departmentCode(department);
+            if (code == ALL) {
+                return sortedSalaries;
+            }
+            return code == MISSING ? NO_SALARIES : sortedSalariesByDepartment[code];
+        }
+    }
+
+
+    /**
+     *  Builder that appends rows to growing primitive arrays, then builds sorted indexes.
+     */
+    private static class ColumnsBuilder {
+        private int size;
+        private long[] ids = new long[1024];
+        private int[] salaries = new int[1024];
+        private int[] departmentCodes = new int[1024];
+        private final Map<String, Integer> departmentDictionary = new HashMap<>();
+        private final List<String> departments = new ArrayList<>();
+
+        void add(Long id, Integer salary, String department) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                salaries = Arrays.copyOf(salaries, size * 2);
+                departmentCodes = Arrays.copyOf(departmentCodes, size * 2);
+            }
+            Integer code = departmentDictionary.get(department);
+            if (code == null) {
+                code = departments.size();
+                departmentDictionary.put(department, code);
+                departments.add(department);
+            }
+            ids[size] = id;
+            salaries[size] = salary;
+            departmentCodes[size] = code;
+            size++;
+        }
+
+        Columns build() {
+            long[] builtIds = Arrays.copyOf(ids, size);
+            int[] builtSalaries = Arrays.copyOf(salaries, size);
+            int[] builtCodes = Arrays.copyOf(departmentCodes, size);
+
+            int[] sortedSalaries = builtSalaries.clone();
+            Arrays.parallelSort(sortedSalaries);
+
+            int[] departmentSizes = new int[departments.size()];
+            for (int code : builtCodes) {
+                departmentSizes[code]++;
+            }
+            int[][] sortedByDepartment = new int[departments.size()][];
+            for (int code = 0; code < departmentSizes.length; code++) {
+                sortedByDepartment[code] = new int[departmentSizes[code]];
+            }
+            int[] filled = new int[departments.size()];
+            for (int row = 0; row < size; row++) {
+                int code = builtCodes[row];
+                sortedByDepartment[code][filled[code]++] = builtSalaries[row];
+            }
+            for (int[] departmentSalaries : sortedByDepartment) {
+                Arrays.sort(departmentSalaries);
+            }
+            return new Columns(size, builtIds, builtSalaries, builtCodes, new HashMap<>(departmentDictionary),
+                               sortedSalaries, sortedByDepartment);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package jp.co.axa.apidemo.services.impl;
+
+import jp.co.axa.apidemo.dto.EmployeeNameMatch;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.EmployeeChangeListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ *  In-process search index on employee names.
+ *    - Prefix match : sorted map of normalized names (score 1.0)
+ *    - Fuzzy match  : trigram postings (sorted primitive arrays) ranked by Dice coefficient (score less than 1.0)
+ *  Index is built in bulk on startup and kept up to date by employee change notifications.
+ */
+@Component
+@Slf4j
+public class EmployeeNameIndex implements EmployeeChangeListener {
+
+    // Fuzzy matches under this score are not returned
+    private static final double MIN_FUZZY_SCORE = 0.3;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Employee ID -> original name
+    private final Map<Long, String> names = new HashMap<>();
+    // Normalized name -> employee IDs
+    private final TreeMap<String, Set<Long>> idsByName = new TreeMap<>();
+    // Trigram -> sorted employee IDs
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * Build the index from all employees in DB
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            idsByName.clear();
+            postings.clear();
+            transaction.execute(status -> {
+                try (Stream<Object[]> rows = employeeRepository.streamNames()) {
+                    rows.forEach(row -> add((Long) row[0], (String) row[1]));
+                }
+                return null;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Employee name index built : size = " + names.size() + ", time = "
+                 + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Search employees by name. Prefix matches come first (ordered by name), then fuzzy matches (ordered by score).
+     * @param query
+     * @param limit max number of matches
+     * @return matched employees
+     */
+    public List<EmployeeNameMatch> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<EmployeeNameMatch> matches = new ArrayList<>();
+            Set<Long> matched = new HashSet<>();
+
+            // 1. Prefix match
+            for (Set<Long> ids : idsByName.subMap(normalized, true, normalized + Character.MAX_VALUE, true).values()) {
+                for (Long id : ids) {
+                    matches.add(new EmployeeNameMatch(id, names.get(id), 1.0));
+                    matched.add(id);
+                    if (matches.size() == limit) {
+                        return matches;
+                    }
+                }
+            }
+
+            // 2. Fuzzy match by trigram overlap
+            Set<String> queryTrigrams = trigrams(normalized);
+            List<Postings> queryPostings = new ArrayList<>();
+            for (String trigram : queryTrigrams) {
+                Postings ids = postings.get(trigram);
+                if (ids != null) {
+                    queryPostings.add(ids);
+                }
+            }
+            queryPostings.sort(Comparator.comparingInt(Postings::size));
+
+            // A name with MIN_FUZZY_SCORE has at least minOverlap common trigrams, so it's in at least one of
+            // the (|postings| - minOverlap + 1) shortest postings. Longer postings are only looked up
+            int minOverlap = Math.max(1, (int) Math.ceil(MIN_FUZZY_SCORE * queryTrigrams.size() / (2 - MIN_FUZZY_SCORE)));
+            int candidateLists = Math.max(queryPostings.size() - minOverlap + 1, 0);
+            long[] candidates = union(queryPostings.subList(0, candidateLists));
+
+            List<EmployeeNameMatch> fuzzyMatches = new ArrayList<>();
+            for (long id : candidates) {
+                if (matched.contains(id)) {
+                    continue;
+                }
+                int overlap = 0;
+                for (Postings ids : queryPostings) {
+                    if (ids.contains(id)) {
+                        overlap++;
+                    }
+                }
+                String name = names.get(id);
+                // Dice coefficient : 2 * |common| / (|query trigrams| + |name trigrams|)
+                int nameTrigrams = normalize(name).length() + 1;
+                double score = 2.0 * overlap / (queryTrigrams.size() + nameTrigrams);
+                if (score >= MIN_FUZZY_SCORE) {
+                    fuzzyMatches.add(new EmployeeNameMatch(id, name, Math.min(score, 0.99)));
+                }
+            }
+            fuzzyMatches.sort(Comparator.comparingDouble(EmployeeNameMatch::getScore).reversed()
+                                        .thenComparing(EmployeeNameMatch::getName)
+                                        .thenComparing(EmployeeNameMatch::getId));
+            for (EmployeeNameMatch match : fuzzyMatches) {
+                if (matches.size() == limit) {
+                    break;
+                }
+                matches.add(match);
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onEmployeeSaved(Employee employee) {
+        put(employee.getId(), employee.getName());
+    }
+
+    @Override
+    public void onEmployeeUpdated(Employee before, Employee after) {
+        put(after.getId(), after.getName());
+    }
+
+    @Override
+    public void onEmployeeDeleted(Employee employee) {
+        remove(employee.getId());
+    }
+
+    @Override
+    public void onDepartmentDeleted(String department, List<Long> employeeIds) {
+        lock.writeLock().lock();
+        try {
+            employeeIds.forEach(this::removeEntry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Long id, String name) {
+        if (id == null || name == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+            add(id, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must be called under write lock
+    private void add(Long id, String name) {
+        String normalized = normalize(name);
+        names.put(id, name);
+        idsByName.computeIfAbsent(normalized, key -> new TreeSet<>()).add(id);
+        for (String trigram : trigrams(normalized)) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(id);
+        }
+    }
+
+    // Must be called under write lock
+    private void removeEntry(Long id) {
+        String name = names.remove(id);
+        if (name == null) {
+            return;
+        }
+        String normalized = normalize(name);
+        Set<Long> ids = idsByName.get(normalized);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            idsByName.remove(normalized);
+        }
+        for (String trigram : trigrams(normalized)) {
+            Postings trigramIds = postings.get(trigram);
+            if (trigramIds != null && trigramIds.remove(id) && trigramIds.size() == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Sorted union of IDs of the postings
+     */
+    private static long[] union(List<Postings> lists) {
+        int total = 0;
+        for (Postings list : lists) {
+            total += list.size();
+        }
+        long[] all = new long[total];
+        int length = 0;
+        for (Postings list : lists) {
+            System.arraycopy(list.ids, 0, all, length, list.size());
+            length += list.size();
+        }
+        Arrays.sort(all);
+        int unique = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[unique++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, unique);
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Trigrams of normalized name with padding (e.g. "axa" -> "$$a", "$ax", "axa", "xa$")
+     */
+    private static Set<String> trigrams(String normalized) {
+        String padded = "$$" + normalized + "$";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     *  Employee IDs of a trigram as a sorted primitive array (no boxing).
+     *  IDs are mostly added in ascending order, so adding is usually an append
+     */
+    private static final class Postings {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void add(long id) {
+            int index = size == 0 || ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -(index + 1);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
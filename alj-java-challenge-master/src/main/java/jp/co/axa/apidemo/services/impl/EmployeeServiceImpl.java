@@ -1,81 +1,742 @@
 package jp.co.axa.apidemo.services.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jp.co.axa.apidemo.cache.CachedEmployee;
+import jp.co.axa.apidemo.cache.MissingIdCache;
+import jp.co.axa.apidemo.cache.RefreshAheadCacheManager;
+import jp.co.axa.apidemo.cache.VersionedListCache;
+import jp.co.axa.apidemo.dto.DepartmentSalaryStats;
+import jp.co.axa.apidemo.dto.EmployeeNameMatch;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.SalaryPercentile;
+import jp.co.axa.apidemo.dto.SalaryRangeResult;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.entities.EmployeeView;
+import jp.co.axa.apidemo.services.EmployeeChangeListener;
+import jp.co.axa.apidemo.services.EmployeeExportFormat;
 import jp.co.axa.apidemo.services.EmployeeService;
+import jp.co.axa.apidemo.services.EmployeeSortKey;
+import jp.co.axa.apidemo.services.NotFoundException;
 import jp.co.axa.apidemo.repositories.EmployeeRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 @Service
 @Slf4j
 public class EmployeeServiceImpl implements EmployeeService {
 
+    // Max number of employees in one page
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // Max number of employees in one batch registration
+    public static final int MAX_BATCH_SIZE = 10000;
+
+    // Max percent of a salary raise of a department
+    public static final int MAX_RAISE_PERCENT = 1000;
+
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private DepartmentSalaryAggregator departmentSalaryAggregator;
+
+    @Autowired
+    private EmployeeColumnarSnapshot columnarSnapshot;
+
+    @Autowired
+    private EmployeeNameIndex employeeNameIndex;
+
+    @Autowired
+    private EmployeeChangeCounter employeeChangeCounter;
+
+    // Listeners that keep in-memory data in sync with employee changes
+    @Autowired(required = false)
+    private List<EmployeeChangeListener> changeListeners = Collections.emptyList();
+
+    // JDBC batch size. Persistence context is flushed and cleared by this size on batch registration
+    // (0 or less disables JDBC batching, then it's flushed only on commit)
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize = 50;
+
+    // List of all employees (immutable) on [allEmployeeCache]. It's patched by each change instead of being evicted
+    private final VersionedListCache<EmployeeView> employeeListCache = new VersionedListCache<>(
+            () -> cacheManager == null ? null : cacheManager.getCache("allEmployeeCache"),
+            EmployeeView::getId, EmployeeView::getVersion);
+
+    // IDs known not to exist (negative cache and Bloom filter of existing IDs), so lookups of them don't reach DB
+    private final MissingIdCache missingEmployees = new MissingIdCache("employee", Duration.ofSeconds(5), 10_000, 0.01);
+
     /**
-     * Return all registered employees
-     * @return List<Employee>
+     * Return all registered employees (ordered by ID).
+     * The list on [allEmployeeCache] is kept up to date by each change, so it's loaded from DB only
+     * on the first request, after expiry, or after a bulk update by department.
+     * @return List<EmployeeView> (read-only list of immutable employees)
      */
-    @Cacheable(cacheNames="allEmployeeCache")
     @Override
-    public List<Employee> retrieveEmployees() {
+    public List<EmployeeView> retrieveEmployees() {
+        return employeeListCache.get(this::loadEmployees);
+    }
+
+    private List<EmployeeView> loadEmployees() {
         List<Employee> employees = employeeRepository.findAll();
-        log.info(employees.toString());
-        return employees;
+        log.info("Retrieve Employees : size = " + employees.size());
+        return employees.stream().map(CachedEmployee::of).collect(Collectors.toList());
+    }
+
+    /**
+     * Register loaders that reload [employeeCache] and [allEmployeeCache] before expiry (if refresh-ahead is enabled).
+     * Reloaded list has the version taken before the load, so a list that missed a change is not served.
+     */
+    @PostConstruct
+    public void registerRefreshLoaders() {
+        RefreshAheadCacheManager.registerLoader(cacheManager, "employeeCache",
+                key -> employeeRepository.findById((Long) key).map(CachedEmployee::of).orElse(null));
+        RefreshAheadCacheManager.registerLoader(cacheManager, "allEmployeeCache",
+                key -> employeeListCache.reload(this::loadEmployees));
+    }
+
+    /**
+     * Return version of employee list. It's changed on each committed employee change.
+     * @return version string (used as ETag)
+     */
+    @Override
+    public String getEmployeesVersion() {
+        return employeeChangeCounter.getVersion();
+    }
+
+    /**
+     * Return one page of employees by keyset pagination.
+     * Page starts after the position given by cursor (or afterId when sorting by ID),
+     * so memory and query cost per request stay fixed regardless of page depth.
+     * @param sortKey
+     * @param afterId employee ID to start after (only for ID sort, ignored if cursor is given)
+     * @param cursor opaque cursor returned as nextCursor of the previous page
+     * @param limit page size (1 to MAX_PAGE_SIZE)
+     * @return EmployeePage
+     */
+    @Override
+    public EmployeePage retrieveEmployeePage(EmployeeSortKey sortKey, Long afterId, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // Start position. Default is the beginning of the sort order
+        Long lastId = Long.MIN_VALUE;
+        String lastValue = null;
+        if (cursor != null) {
+            String[] position = decodeCursor(sortKey, cursor);
+            lastId = Long.valueOf(position[0]);
+            lastValue = position[1];
+        } else if (afterId != null) {
+            if (sortKey != EmployeeSortKey.ID) {
+                throw new IllegalArgumentException("after is only available for sort by id. Use cursor instead.");
+            }
+            lastId = afterId;
+        }
+
+        // Read one more row than limit to know if there is a next page
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<Employee> employees;
+        switch (sortKey) {
+            case NAME:
+                employees = employeeRepository.findPageOrderByName(lastValue == null ? "" : lastValue, lastId, pageRequest);
+                break;
+            case SALARY:
+                employees = employeeRepository.findPageOrderBySalary(
+                        lastValue == null ? Integer.MIN_VALUE : Integer.valueOf(lastValue), lastId, pageRequest);
+                break;
+            default:
+                employees = employeeRepository.findPageOrderById(lastId, pageRequest);
+                break;
+        }
+
+        String nextCursor = null;
+        if (employees.size() > limit) {
+            employees = employees.subList(0, limit);
+            nextCursor = encodeCursor(sortKey, employees.get(limit - 1));
+        }
+        log.info("Retrieve Employee Page : sort = " + sortKey + ", size = " + employees.size());
+        return new EmployeePage(employees, nextCursor);
+    }
+
+    /**
+     * Encode position of given employee in sort order as opaque cursor.
+     * Format before encoding is '{sortKey}:{id}:{value}'
+     */
+    private String encodeCursor(EmployeeSortKey sortKey, Employee last) {
+        String value = "";
+        if (sortKey == EmployeeSortKey.NAME) {
+            value = last.getName();
+        } else if (sortKey == EmployeeSortKey.SALARY) {
+            value = last.getSalary().toString();
+        }
+        String position = sortKey.name() + ":" + last.getId() + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * Return Employee by employee ID
-     * @return Employee
+     * Decode cursor and return [id, value]
+     * @throws IllegalArgumentException if cursor is broken or made for another sort key
      */
-    @Cacheable(cacheNames="employeeCache", key="#employeeId")
+    private String[] decodeCursor(EmployeeSortKey sortKey, String cursor) {
+        String[] position;
+        try {
+            position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+            Long.valueOf(position[1]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor : " + cursor);
+        }
+        if (position.length != 3 || !sortKey.name().equals(position[0])) {
+            throw new IllegalArgumentException("Cursor doesn't match sort key : " + sortKey);
+        }
+        return new String[] { position[1], position[2] };
+    }
+
+    /**
+     * Write all employees to given stream as NDJSON or CSV.
+     * Rows are read from a forward-only DB cursor and detached right after written,
+     * so heap usage stays constant regardless of the number of employees.
+     * @param format
+     * @param out
+     * @return number of exported employees
+     * @throws IOException
+     */
+    @Transactional(readOnly = true)
     @Override
-    public Employee getEmployee(Long employeeId) {
+    public long exportEmployees(EmployeeExportFormat format, OutputStream out) throws IOException {
+        log.info("Export Employees : format = " + format);
+        ObjectWriter jsonWriter = objectMapper.writerFor(Employee.class);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long count = 0;
+
+        if (format == EmployeeExportFormat.CSV) {
+            writer.write("id,name,salary,department\n");
+        }
+        try (Stream<Employee> employees = employeeRepository.streamAllOrderById()) {
+            Iterator<Employee> iterator = employees.iterator();
+            while (iterator.hasNext()) {
+                Employee employee = iterator.next();
+                if (format == EmployeeExportFormat.CSV) {
+                    writer.write(employee.getId() + "," + csvValue(employee.getName()) + ","
+                                 + employee.getSalary() + "," + csvValue(employee.getDepartment()) + "\n");
+                } else {
+                    writer.write(jsonWriter.writeValueAsString(employee));
+                    writer.write('\n');
+                }
+                // Exported employee is not needed anymore in persistence context
+                entityManager.detach(employee);
+                count++;
+            }
+        }
+        writer.flush();
+        log.info("Export Employees : size = " + count);
+        return count;
+    }
+
+    /**
+     * Quote CSV value if it has comma, quote or line break
+     */
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Return Employee by employee ID from [employeeCache].
+     * IDs known not to exist are answered before the cache. IDs not on the Bloom filter (e.g. created on another node)
+     * are confirmed by an existence check on DB.
+     * Concurrent cache misses of the same ID wait for one DB load (sync).
+     * Cached employee is immutable, so a cache hit returns the cached instance without copy.
+     * @return EmployeeView (immutable)
+     * @throws NotFoundException if the employee doesn't exist
+     */
+    @Override
+    public EmployeeView getEmployee(Long employeeId) {
+        if (missingEmployees.isMissing(employeeId, employeeRepository::existsById)) {
+            throw new NotFoundException("Employee Not Found. ID = " + employeeId);
+        }
+        Cache employeeCache = cacheManager == null ? null : cacheManager.getCache("employeeCache");
+        if (employeeCache == null) {
+            return loadEmployee(employeeId);
+        }
+        try {
+            return employeeCache.get(employeeId, () -> loadEmployee(employeeId));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private EmployeeView loadEmployee(Long employeeId) {
         log.info("Get Employee by ID = " + employeeId);
         Optional<Employee> optEmp = employeeRepository.findById(employeeId);
-        return optEmp.get();
+        if (!optEmp.isPresent()) {
+            missingEmployees.markMissing(employeeId);
+            throw new NotFoundException("Employee Not Found. ID = " + employeeId);
+        }
+        return CachedEmployee.of(optEmp.get());
     }
 
     /**
-     * Save Employee as registration
+     * Rebuild the Bloom filter of existing employee IDs (drops deleted IDs). Initial build is done on startup.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${cache.id-filter.rebuild-period:600000}")
+    public void rebuildEmployeeIdFilter() {
+        missingEmployees.rebuild(employeeRepository::findAllIds);
+    }
+
+    /**
+     * Save Employee as registration. Saved employee is put on caches after commit.
      * @return Employee (if saved successfully)
      */
-    @Caching(put = {@CachePut(cacheNames="employeeCache", key="#result.id")},
-             evict = {@CacheEvict(cacheNames="allEmployeeCache", allEntries = true)})
+    @Transactional
     @Override
     public Employee saveEmployee(Employee employee){
         log.info("Saving Employee : " + employee.toString());
-        return employeeRepository.save(employee);
+        Employee before = prepareMerge(employee);
+        Employee saved = employeeRepository.save(employee);
+        missingEmployees.add(saved.getId());
+        if (before != null) {
+            // Flush the update here, so that the cached employee has the incremented version
+            employeeRepository.flush();
+        }
+        putEmployeeAfterCommit(saved);
+        if (before != null) {
+            notifyAfterCommit(listener -> listener.onEmployeeUpdated(before, saved));
+        } else {
+            notifyAfterCommit(listener -> listener.onEmployeeSaved(saved));
+        }
+        return saved;
+    }
+
+    /**
+     * Save list of new employees in one transaction.
+     * Inserts are sent by JDBC batch and the list on [allEmployeeCache] is patched once for the whole list.
+     * @param employees new employees (ID must be null)
+     * @return saved employees with IDs
+     */
+    @Transactional
+    @Override
+    public List<Employee> saveEmployees(List<Employee> employees) {
+        if (employees == null || employees.isEmpty() || employees.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Number of employees must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        log.info("Saving Employees : size = " + employees.size());
+
+        int count = 0;
+        for (Employee employee : employees) {
+            if (employee.getId() != null) {
+                throw new IllegalArgumentException("Employee ID must be null for new employee : " + employee.getId());
+            }
+            employeeRepository.save(employee);
+            missingEmployees.add(employee.getId());
+
+            // Send the batch and release saved entities from persistence context
+            if (jdbcBatchSize > 0 && ++count % jdbcBatchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        runAfterCommit(() -> {
+            employees.forEach(saved -> missingEmployees.add(saved.getId()));
+            employeeListCache.upsertAll(employees.stream().map(CachedEmployee::of).collect(Collectors.toList()));
+        });
+        notifyAfterCommit(listener -> employees.forEach(listener::onEmployeeSaved));
+        return employees;
     }
 
     /**
-     * Delete Employee from DB by employee ID
+     * Delete Employee from DB by employee ID. The employee is evicted from caches after commit.
+     * @throws NotFoundException if the employee doesn't exist
      */
-    @Caching(evict = {@CacheEvict(cacheNames="employeeCache", key="#employeeId"),
-                      @CacheEvict(cacheNames="allEmployeeCache", allEntries = true)})
+    @Transactional
     @Override
     public void deleteEmployee(Long employeeId){
         log.info("Delete Employee by ID : ID = " + employeeId.toString());
+        // deleteById loads the employee in the same persistence context, so this doesn't add a query
+        Employee deleted = employeeRepository.findById(employeeId)
+                                             .orElseThrow(() -> new NotFoundException("Employee Not Found. ID = " + employeeId));
         employeeRepository.deleteById(employeeId);
+        evictEmployeesAfterCommit(Collections.singletonList(employeeId), true);
+        notifyAfterCommit(listener -> listener.onEmployeeDeleted(deleted));
     }
 
     /**
-     *  Update Employee fields by employee field passed through API
+     * Replace all fields of the employee (ID in the body is ignored).
+     * @param employeeId
+     * @param employee new values (name, salary and department are required)
+     * @param expectedVersion version the client has (from If-Match), or null to update any version
+     * @return updated employee
+     * @throws NotFoundException if the employee doesn't exist
+     * @throws OptimisticLockingFailureException if the employee was changed by others
      */
-    @Caching(put = {@CachePut(cacheNames="employeeCache", key="#result.id")},
-             evict = {@CacheEvict(cacheNames="allEmployeeCache", allEntries = true)})
+    @Transactional
     @Override
-    public Employee updateEmployee(Employee employee) {
-        log.info("Updating Employee : " + employee.toString());
-        return employeeRepository.save(employee);
+    public Employee updateEmployee(Long employeeId, Employee employee, Long expectedVersion) {
+        if (employee == null || employee.getName() == null || employee.getSalary() == null || employee.getDepartment() == null) {
+            throw new IllegalArgumentException("name, salary and department are required");
+        }
+        log.info("Updating Employee : ID = " + employeeId);
+        return applyChanges(employeeId, employee, expectedVersion);
+    }
+
+    /**
+     * Update only given (non-null) fields of the employee
+     * @param employeeId
+     * @param changes fields to change (null for unchanged)
+     * @param expectedVersion version the client has (from If-Match), or null to update any version
+     * @return updated employee
+     * @throws NotFoundException if the employee doesn't exist
+     * @throws OptimisticLockingFailureException if the employee was changed by others
+     */
+    @Transactional
+    @Override
+    public Employee patchEmployee(Long employeeId, Employee changes, Long expectedVersion) {
+        if (changes == null) {
+            throw new IllegalArgumentException("Fields to change are required");
+        }
+        log.info("Patching Employee : ID = " + employeeId);
+        return applyChanges(employeeId, changes, expectedVersion);
+    }
+
+    /**
+     * Apply changes on the loaded employee and send them as one versioned UPDATE of changed columns.
+     * If nothing is changed, neither DB nor caches are touched.
+     */
+    private Employee applyChanges(Long employeeId, Employee changes, Long expectedVersion) {
+        Employee current = employeeRepository.findById(employeeId)
+                                             .orElseThrow(() -> new NotFoundException("Employee Not Found. ID = " + employeeId));
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            throw new OptimisticLockingFailureException("Employee was changed. ID = " + employeeId
+                                                        + ", version = " + current.getVersion());
+        }
+
+        Employee before = copyOf(current);
+        boolean changed = false;
+        if (changes.getName() != null && !changes.getName().equals(current.getName())) {
+            current.setName(changes.getName());
+            changed = true;
+        }
+        if (changes.getSalary() != null && !changes.getSalary().equals(current.getSalary())) {
+            current.setSalary(changes.getSalary());
+            changed = true;
+        }
+        if (changes.getDepartment() != null && !changes.getDepartment().equals(current.getDepartment())) {
+            current.setDepartment(changes.getDepartment());
+            changed = true;
+        }
+        if (!changed) {
+            log.info("Employee is not changed : ID = " + employeeId);
+            return current;
+        }
+
+        // UPDATE ... WHERE id = ? AND version = ? fails if the employee was changed after it was loaded.
+        // It's flushed here so that the cached employee has the incremented version
+        employeeRepository.flush();
+        putEmployeeAfterCommit(current);
+        notifyAfterCommit(listener -> listener.onEmployeeUpdated(before, current));
+        return current;
+    }
+
+    /**
+     * Raise salary of all employees in the department by given percent (negative value to reduce).
+     * It runs as a single UPDATE statement and only updated employees are evicted from [employeeCache].
+     * The list on [allEmployeeCache] is dropped, since new salaries are known only by DB.
+     * Selected employees are locked, and if the UPDATE changed more rows (inserted into the department in between),
+     * whole [employeeCache] is cleared.
+     * @param department
+     * @param percent
+     * @return number of updated employees
+     */
+    @Transactional
+    @Override
+    public int raiseSalaryByDepartment(String department, int percent) {
+        if (department == null || department.isEmpty() || percent <= -100 || percent > MAX_RAISE_PERCENT) {
+            throw new IllegalArgumentException("department is required and percent must be greater than -100"
+                                               + " and less than or equal to " + MAX_RAISE_PERCENT);
+        }
+        log.info("Raise Salary : department = " + department + ", percent = " + percent);
+        List<Long> employeeIds = employeeRepository.findIdsByDepartment(department);
+        // Salaries are locked above, so the raised min/max checked here are the ones the UPDATE computes
+        for (DepartmentSalaryStats stats : employeeRepository.aggregateSalaryOfDepartment(department)) {
+            if (!fitsInInteger(raise(stats.getMin(), percent)) || !fitsInInteger(raise(stats.getMax(), percent))) {
+                throw new IllegalArgumentException("Raised salary of department " + department + " exceeds integer range");
+            }
+        }
+        int updated = employeeRepository.raiseSalaryByDepartment(department, percent);
+        evictEmployeesAfterCommit(employeeIds, false);
+        if (updated != employeeIds.size()) {
+            clearEmployeeCacheAfterCommit(department);
+        }
+        notifyAfterCommit(listener -> listener.onDepartmentUpdated(department, employeeIds));
+        return updated;
+    }
+
+    /**
+     * Salary raised by percent as computed by the UPDATE statement (BIGINT, rounded toward zero)
+     */
+    private static long raise(int salary, int percent) {
+        return (long) salary * (100 + percent) / 100;
+    }
+
+    private static boolean fitsInInteger(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Delete all employees in the department.
+     * It runs as a single DELETE statement and only deleted employees are evicted from [employeeCache].
+     * Selected employees are locked, and if the DELETE removed more rows (inserted into the department in between),
+     * whole [employeeCache] is cleared.
+     * @param department
+     * @return number of deleted employees
+     */
+    @Transactional
+    @Override
+    public int deleteEmployeesByDepartment(String department) {
+        if (department == null || department.isEmpty()) {
+            throw new IllegalArgumentException("department is required");
+        }
+        log.info("Delete Employees : department = " + department);
+        List<Long> employeeIds = employeeRepository.findIdsByDepartment(department);
+        int deleted = employeeRepository.deleteByDepartment(department);
+        evictEmployeesAfterCommit(employeeIds, true);
+        if (deleted != employeeIds.size()) {
+            clearEmployeeCacheAfterCommit(department);
+        }
+        notifyAfterCommit(listener -> listener.onDepartmentDeleted(department, employeeIds));
+        return deleted;
+    }
+
+    /**
+     * Return salary statistics per department from in-memory aggregates
+     * @return List<DepartmentSalaryStats>
+     */
+    @Override
+    public List<DepartmentSalaryStats> getDepartmentStatistics() {
+        return departmentSalaryAggregator.getStatistics();
+    }
+
+    /**
+     * Find employees whose salary is between min and max (inclusive) on columnar snapshot.
+     * Snapshot is refreshed in background after employee changes, so it can be a few seconds behind DB.
+     * @param min
+     * @param max
+     * @param department null for all departments
+     * @param limit max number of IDs in result
+     * @return SalaryRangeResult
+     */
+    @Override
+    public SalaryRangeResult findBySalaryRange(int min, int max, String department, int limit) {
+        if (min > max || limit < 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("min must be <= max and limit must be between 0 and " + MAX_PAGE_SIZE);
+        }
+        int count = columnarSnapshot.countBySalaryRange(min, max, department);
+        long[] ids = columnarSnapshot.findIdsBySalaryRange(min, max, department, limit);
+        return new SalaryRangeResult(department, min, max, count, ids);
+    }
+
+    /**
+     * Return salary at the percentile (nearest rank) on columnar snapshot
+     * @param percentile 0 < percentile <= 100
+     * @param department null for all departments
+     * @return SalaryPercentile
+     */
+    @Override
+    public SalaryPercentile getSalaryPercentile(double percentile, String department) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be greater than 0 and less than or equal to 100");
+        }
+        int salary = columnarSnapshot.salaryAtPercentile(percentile, department);
+        return new SalaryPercentile(department, percentile, salary, columnarSnapshot.size(department));
+    }
+
+    /**
+     * Search employees by name on in-memory name index (prefix match first, then fuzzy match)
+     * @param query part of employee name
+     * @param limit max number of matches (1 to MAX_PAGE_SIZE)
+     * @return List<EmployeeNameMatch>
+     */
+    @Override
+    public List<EmployeeNameMatch> searchEmployeesByName(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("q must not be empty and limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return employeeNameIndex.search(query, limit);
+    }
+
+    /**
+     * Evict given employees from [employeeCache], and remove them from the list on [allEmployeeCache]
+     * (or drop the list if they are still there with changed values).
+     * Eviction is done after commit, otherwise a concurrent read could cache the old value again before commit.
+     * @param employeeIds
+     * @param deleted true if the employees were deleted
+     */
+    private void evictEmployeesAfterCommit(List<Long> employeeIds, boolean deleted) {
+        if (employeeIds.isEmpty()) {
+            return;
+        }
+        runAfterCommit(() -> {
+            Cache employeeCache = cacheManager == null ? null : cacheManager.getCache("employeeCache");
+            if (employeeCache != null) {
+                employeeIds.forEach(employeeCache::evict);
+            }
+            if (deleted) {
+                employeeIds.forEach(missingEmployees::markMissing);
+                employeeListCache.removeAll(employeeIds);
+            } else {
+                employeeListCache.invalidate();
+            }
+        });
+    }
+
+    /**
+     * Clear [employeeCache] and drop the list on [allEmployeeCache] after commit, when a bulk statement changed
+     * employees whose IDs are not known
+     * @param department
+     */
+    private void clearEmployeeCacheAfterCommit(String department) {
+        runAfterCommit(() -> {
+            log.info("Employees not selected are changed in department " + department + ". Clear employeeCache");
+            Cache employeeCache = cacheManager == null ? null : cacheManager.getCache("employeeCache");
+            if (employeeCache != null) {
+                employeeCache.clear();
+            }
+            employeeListCache.invalidate();
+        });
+    }
+
+    /**
+     * Put saved employee on [employeeCache] and replace it in the list on [allEmployeeCache] after commit.
+     * Immutable copy is taken after commit, so that it has the version written by the commit.
+     * @param employee
+     */
+    private void putEmployeeAfterCommit(Employee employee) {
+        runAfterCommit(() -> {
+            CachedEmployee cached = CachedEmployee.of(employee);
+            missingEmployees.add(cached.getId());
+            Cache employeeCache = cacheManager == null ? null : cacheManager.getCache("employeeCache");
+            if (employeeCache != null) {
+                employeeCache.put(cached.getId(), cached);
+            }
+            employeeListCache.upsert(cached);
+        });
+    }
+
+    /**
+     * Notify employee change to all listeners after commit (nothing is notified on rollback)
+     * @param notification
+     */
+    private void notifyAfterCommit(Consumer<EmployeeChangeListener> notification) {
+        if (changeListeners.isEmpty()) {
+            return;
+        }
+        runAfterCommit(() -> {
+            for (EmployeeChangeListener listener : changeListeners) {
+                try {
+                    notification.accept(listener);
+                } catch (RuntimeException e) {
+                    log.error("Failed to notify employee change to " + listener.getClass().getSimpleName(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Run the action after current transaction is committed, or immediately if no transaction
+     * @param action
+     */
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Employee in request has no version. If its ID exists, take the stored version so that save() merges it,
+     * otherwise clear the ID so that it's registered with a new ID.
+     * @param employee
+     * @return copy of the stored employee if the employee updates existing one, otherwise null
+     */
+    private Employee prepareMerge(Employee employee) {
+        if (employee.getId() == null) {
+            return null;
+        }
+        Optional<Employee> stored = employeeRepository.findById(employee.getId());
+        if (stored.isPresent()) {
+            if (employee.getVersion() == null) {
+                employee.setVersion(stored.get().getVersion());
+            }
+            return copyOf(stored.get());
+        }
+        employee.setId(null);
+        employee.setVersion(null);
+        return null;
+    }
+
+    /**
+     * Copy employee fields, so that the copy isn't affected by changes on managed entity
+     */
+    private static Employee copyOf(Employee employee) {
+        return Employee.builder()
+                       .id(employee.getId())
+                       .name(employee.getName())
+                       .salary(employee.getSalary())
+                       .department(employee.getDepartment())
+                       .version(employee.getVersion())
+                       .build();
     }
 }
@@ -0,0 +1,163 @@
+package jp.co.axa.apidemo.services.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jp.co.axa.apidemo.entities.RefreshToken;
+import jp.co.axa.apidemo.repositories.RefreshTokenRepository;
+import jp.co.axa.apidemo.services.RefreshTokenService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refresh token service. Clients trade a refresh token for a new access token without login (bcrypt).
+ *   - Tokens are 256 bit random values. Only their SHA-256 is stored on [refresh_token] table
+ *   - Recently issued tokens are kept on an in-memory hot set, so most refreshes don't read the table.
+ *     Whether the token can be used is always decided by the conditional update on the table
+ *   - Each refresh rotates the token. Reuse of a rotated token revokes all tokens of the family
+ */
+@Service
+@Slf4j
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    // Refresh token expiration time (days)
+    @Value("${jwt.refresh-token.expiration.period:30}")
+    private long expirationDays = 30;
+
+    // SHA-256 of token -> stored token (recently issued)
+    private final Cache<ByteBuffer, RefreshToken> hotSet;
+
+    @Autowired
+    public RefreshTokenServiceImpl(@Value("${jwt.refresh-token.hot-set.maximum-size:10000}") long hotSetSize,
+                                   @Value("${jwt.refresh-token.hot-set.expire-after-write:60}") long hotSetMinutes) {
+        this.hotSet = Caffeine.newBuilder()
+                              .maximumSize(hotSetSize)
+                              .expireAfterWrite(Duration.ofMinutes(hotSetMinutes))
+                              .build();
+    }
+
+    /**
+     * Issue a new refresh token of the account (first token of a new family)
+     * @param accountId
+     * @return RefreshToken (token is set)
+     */
+    @Override
+    @Transactional
+    public RefreshToken issue(Long accountId) {
+        return issue(accountId, null);
+    }
+
+    private RefreshToken issue(Long accountId, Long family) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        byte[] hash = sha256(token);
+
+        RefreshToken saved = refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash)
+                .accountId(accountId)
+                .family(family == null ? random.nextLong() : family)
+                .expiresAt(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(expirationDays))
+                .used(false)
+                .build());
+        hotSet.put(ByteBuffer.wrap(hash), saved);
+
+        // Token is returned on a copy, so the hot set doesn't keep it
+        return RefreshToken.builder()
+                .id(saved.getId())
+                .accountId(saved.getAccountId())
+                .family(saved.getFamily())
+                .expiresAt(saved.getExpiresAt())
+                .used(false)
+                .token(token)
+                .build();
+    }
+
+    /**
+     * Trade the refresh token for a new one of the same family.
+     * The token is marked used, and kept until it expires to detect reuse.
+     * @param token
+     * @return new RefreshToken (token is set), or empty if the token can't be used
+     */
+    @Override
+    @Transactional
+    public Optional<RefreshToken> refresh(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        byte[] hash = sha256(token);
+        ByteBuffer key = ByteBuffer.wrap(hash);
+        RefreshToken stored = hotSet.getIfPresent(key);
+        if (stored == null) {
+            stored = refreshTokenRepository.findByTokenHash(hash).orElse(null);
+            if (stored == null) {
+                return Optional.empty();
+            }
+        }
+        hotSet.invalidate(key);
+        if (stored.getExpiresAt() < System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        if (refreshTokenRepository.markUsed(stored.getId()) == 0) {
+            log.warn("Used or revoked refresh token is presented. Revoke family : " + stored);
+            refreshTokenRepository.deleteByFamily(stored.getFamily());
+            return Optional.empty();
+        }
+        return Optional.of(issue(stored.getAccountId(), stored.getFamily()));
+    }
+
+    /**
+     * Revoke all refresh tokens of the account (e.g. account changed or deleted).
+     * Tokens on the hot set are rejected by the conditional update, so the hot set isn't scanned.
+     * @param accountId
+     */
+    @Override
+    @Transactional
+    public void revokeAll(Long accountId) {
+        int revoked = refreshTokenRepository.deleteByAccountId(accountId);
+        log.info("Revoked refresh tokens of account " + accountId + " : " + revoked);
+    }
+
+    /**
+     * Delete expired refresh tokens (used ones as well)
+     * @return number of deleted tokens
+     */
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${jwt.refresh-token.purge.period:3600000}")
+    public int purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(System.currentTimeMillis());
+        if (purged > 0) {
+            log.info("Purged expired refresh tokens : " + purged);
+        }
+        return purged;
+    }
+
+    private static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
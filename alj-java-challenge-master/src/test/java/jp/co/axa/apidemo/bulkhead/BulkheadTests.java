@@ -0,0 +1,107 @@
+package jp.co.axa.apidemo.bulkhead;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkheadTests {
+
+    private final Bulkhead login = new Bulkhead("login", 1, 1, 5000);
+    private final Bulkhead employee = new Bulkhead("employee", 2, 10, 5000);
+
+    @After
+    public void tearDown() {
+        login.shutdown();
+        employee.shutdown();
+    }
+
+    /**
+     * A full bulkhead rejects new tasks at once, and other bulkheads keep running tasks
+     */
+    @Test
+    public void fullBulkheadTest() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        Runnable slowLogin = () -> {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+
+        assertThat(login.tryExecute(slowLogin)).isTrue();
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        // 1 running, 1 queued, then full
+        assertThat(login.tryExecute(done::countDown)).isTrue();
+        assertThat(login.tryExecute(done::countDown)).isFalse();
+        assertThat(login.getRejectedCount()).isEqualTo(1);
+
+        CountDownLatch read = new CountDownLatch(1);
+        assertThat(employee.tryExecute(read::countDown)).isTrue();
+        assertThat(read.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Slots are released when tasks are done
+        release.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        CountDownLatch next = new CountDownLatch(1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!login.tryExecute(next::countDown) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(next.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    /**
+     * Tasks that waited longer than the max wait are expired
+     */
+    @Test
+    public void expiredTest() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("admin", 1, 1, 10);
+        try {
+            long queuedAt = System.nanoTime();
+            assertThat(bulkhead.isExpired(queuedAt)).isFalse();
+            Thread.sleep(20);
+            assertThat(bulkhead.isExpired(queuedAt)).isTrue();
+            assertThat(bulkhead.getExpiredCount()).isEqualTo(1);
+        } finally {
+            bulkhead.shutdown();
+        }
+    }
+
+    /**
+     * Requests are routed by path, and excluded paths run on the request thread
+     */
+    @Test
+    public void routesTest() {
+        BulkheadRoutes routes = new BulkheadRoutes()
+                .exclude("/api/v1/employees/export")
+                .route("/api/v1/token/**", login)
+                .route("/api/v1/employees/**", employee);
+
+        assertThat(routes.bulkheadOf(request("/api/v1/token"))).isSameAs(login);
+        assertThat(routes.bulkheadOf(request("/api/v1/token/refresh"))).isSameAs(login);
+        assertThat(routes.bulkheadOf(request("/api/v1/employees"))).isSameAs(employee);
+        assertThat(routes.bulkheadOf(request("/api/v1/employees/1"))).isSameAs(employee);
+        assertThat(routes.bulkheadOf(request("/api/v1/employees/export"))).isNull();
+        assertThat(routes.bulkheadOf(request("/swagger-ui/index.html"))).isNull();
+
+        MockHttpServletRequest syncRequest = request("/api/v1/employees/1");
+        syncRequest.setAsyncSupported(false);
+        assertThat(routes.bulkheadOf(syncRequest)).isNull();
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setAsyncSupported(true);
+        return request;
+    }
+}
@@ -0,0 +1,54 @@
+package jp.co.axa.apidemo.cache;
+
+import jp.co.axa.apidemo.dto.CacheEventStatistics;
+import jp.co.axa.apidemo.entities.Employee;
+import org.ehcache.event.EventType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheEventAggregatorTests {
+
+    private final CacheEventAggregator aggregator = new CacheEventAggregator();
+
+    /**
+     * Events are counted per cache and event type from many threads, and rates are computed by sample
+     */
+    @Test
+    public void countAndRateTest() {
+        aggregator.sample(0);
+        IntStream.range(0, 1000).parallel().forEach(i -> aggregator.record("employeeCache", EventType.CREATED, null));
+        aggregator.record("employeeCache", EventType.EXPIRED, null);
+        aggregator.record("accountCache", EventType.EVICTED, null);
+        aggregator.sample(TimeUnit.SECONDS.toNanos(10));
+
+        List<CacheEventStatistics> statistics = aggregator.getStatistics();
+        assertThat(statistics).extracting(CacheEventStatistics::getCacheName).containsExactly("accountCache", "employeeCache");
+        assertThat(statistics.get(1).getCounts()).containsEntry("CREATED", 1000L).containsEntry("EXPIRED", 1L);
+        assertThat(statistics.get(1).getRates()).containsEntry("CREATED", 100.0);
+        assertThat(aggregator.getEventCounts()).containsEntry("accountCache.EVICTED", 1L);
+
+        aggregator.reset();
+        assertThat(aggregator.getStatistics()).isEmpty();
+    }
+
+    /**
+     * Created entries are counted by power-of-two buckets of estimated size
+     */
+    @Test
+    public void entrySizeTest() {
+        CachedEmployee employee = CachedEmployee.of(Employee.builder().id(1L).name("emp1").department("Tech").build());
+
+        aggregator.record("employeeCache", EventType.CREATED, employee);
+        aggregator.record("allEmployeeCache", EventType.CREATED, new VersionedList<>(1L, Arrays.asList(employee, employee, employee)));
+
+        assertThat(CacheEventAggregator.estimateSize(employee)).isEqualTo(18);
+        assertThat(aggregator.getEntrySizeHistogram()).containsEntry("employeeCache.<32", 1L)
+                                                      .containsEntry("allEmployeeCache.<64", 1L);
+    }
+}
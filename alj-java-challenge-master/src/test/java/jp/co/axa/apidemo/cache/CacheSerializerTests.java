@@ -0,0 +1,84 @@
+package jp.co.axa.apidemo.cache;
+
+import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.Employee;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheSerializerTests {
+
+    private final ClassLoader classLoader = getClass().getClassLoader();
+
+    private static CachedEmployee employee(long id) {
+        return CachedEmployee.of(Employee.builder().id(id).name("Employee " + id).salary(3000 + (int) id)
+                                         .department(id % 2 == 0 ? "Tech" : "Sales").version(id % 3).build());
+    }
+
+    /**
+     * Read from a direct buffer, like Ehcache does for offheap tier
+     */
+    private static ByteBuffer direct(ByteBuffer binary) {
+        ByteBuffer direct = ByteBuffer.allocateDirect(binary.remaining());
+        direct.put(binary).flip();
+        return direct;
+    }
+
+    @Test
+    public void employeeTest() throws Exception {
+        CachedEmployeeSerializer serializer = new CachedEmployeeSerializer(classLoader);
+        CachedEmployee employee = employee(12345L);
+        CachedEmployee nulls = CachedEmployee.of(Employee.builder().name("日本語").salary(-1).build());
+
+        assertThat(serializer.read(serializer.serialize(employee))).isEqualTo(employee);
+        assertThat(serializer.read(direct(serializer.serialize(nulls)))).isEqualTo(nulls);
+        assertThat(serializer.equals(employee, serializer.serialize(employee))).isTrue();
+
+        int javaSize = new PlainJavaSerializer<CachedEmployee>(classLoader).serialize(employee).remaining();
+        assertThat(serializer.serialize(employee).remaining()).isLessThan(javaSize / 5);
+    }
+
+    @Test
+    public void accountTest() throws Exception {
+        CachedAccountSerializer serializer = new CachedAccountSerializer(classLoader);
+        for (Boolean admin : Arrays.asList(true, false, null)) {
+            CachedAccount account = CachedAccount.of(Account.builder().id(1L).name("admin1").password("x").admin(admin).version(4L).build());
+            assertThat(serializer.read(serializer.serialize(account))).isEqualTo(account);
+        }
+    }
+
+    /**
+     * Large list is compressed by LZ4, and both serializers read both formats
+     */
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void listTest() throws Exception {
+        List<CachedEmployee> employees = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            employees.add(employee(id));
+        }
+        VersionedList list = new VersionedList<>(7L, employees);
+        VersionedListSerializer plain = new VersionedListSerializer(classLoader);
+        VersionedListSerializer lz4 = new Lz4VersionedListSerializer(classLoader);
+
+        ByteBuffer plainBinary = plain.serialize(list);
+        ByteBuffer compressedBinary = lz4.serialize(list);
+        assertThat(compressedBinary.remaining()).isLessThan(plainBinary.remaining() / 2);
+        assertThat(lz4.read(plainBinary.duplicate())).isEqualTo(list);
+        assertThat(plain.read(compressedBinary.duplicate())).isEqualTo(list);
+        assertThat(lz4.read(direct(compressedBinary))).isEqualTo(list);
+
+        VersionedList accounts = new VersionedList<>(1L, Collections.singletonList(
+                CachedAccount.of(Account.of("user1", "user1", false))));
+        assertThat(lz4.read(lz4.serialize(accounts))).isEqualTo(accounts);
+        VersionedList empty = new VersionedList<>(0L, Collections.emptyList());
+        assertThat(lz4.read(lz4.serialize(empty))).isEqualTo(empty);
+    }
+}
@@ -0,0 +1,43 @@
+package jp.co.axa.apidemo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.Employee;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachedEmployeeTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Immutable employee/account are written as the same JSON as the entities (account without password)
+     */
+    @Test
+    public void jsonTest() throws Exception {
+        Employee employee = Employee.builder().id(1L).name("emp1").salary(100).department("Tech").version(2L).build();
+        assertThat(objectMapper.writeValueAsString(CachedEmployee.of(employee)))
+                .isEqualTo(objectMapper.writeValueAsString(employee));
+
+        Account account = Account.builder().id(3L).name("admin1").password("{bcrypt}hash").admin(true).version(0L).build();
+        assertThat(objectMapper.writeValueAsString(CachedAccount.of(account)))
+                .isEqualTo("{\"id\":3,\"name\":\"admin1\",\"password\":\"\",\"admin\":true}");
+    }
+
+    /**
+     * Cache hit returns the cached instance itself
+     */
+    @Test
+    public void storeByReferenceTest() {
+        SingleFlightCache cache = new SingleFlightCache(
+                new TwoTierCache(new ConcurrentMapCache("employeeCache", false), Caffeine.newBuilder().maximumSize(10)));
+        CachedEmployee employee = CachedEmployee.of(Employee.of("emp1", 100, "Tech"));
+
+        assertThat(cache.get(1L, () -> employee)).isSameAs(employee);
+        assertThat(cache.get(1L, () -> CachedEmployee.of(Employee.of("emp2", 200, "Tech")))).isSameAs(employee);
+        assertThat(CachedEmployee.of(employee)).isSameAs(employee);
+    }
+}
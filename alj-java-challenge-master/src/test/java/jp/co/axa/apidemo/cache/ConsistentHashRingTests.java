@@ -0,0 +1,45 @@
+package jp.co.axa.apidemo.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashRingTests {
+
+    private final ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node1:7070", "node2:7070", "node3:7070"), 128);
+
+    /**
+     * Sequential IDs are spread evenly over nodes
+     */
+    @Test
+    public void distributionTest() {
+        Map<String, Long> counts = new HashMap<>();
+        LongStream.rangeClosed(1, 30_000).forEach(id -> counts.merge(ring.ownerOf(id), 1L, Long::sum));
+
+        assertThat(counts).containsOnlyKeys("node1:7070", "node2:7070", "node3:7070");
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(8_000L, 12_000L));
+    }
+
+    /**
+     * Adding a node moves only the keys that the new node owns
+     */
+    @Test
+    public void addNodeTest() {
+        ConsistentHashRing added = new ConsistentHashRing(Arrays.asList("node1:7070", "node2:7070", "node3:7070", "node4:7070"), 128);
+
+        long moved = 0;
+        for (long id = 1; id <= 30_000; id++) {
+            String owner = added.ownerOf(id);
+            if (!owner.equals(ring.ownerOf(id))) {
+                assertThat(owner).isEqualTo("node4:7070");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(5_000L, 10_000L);
+    }
+}
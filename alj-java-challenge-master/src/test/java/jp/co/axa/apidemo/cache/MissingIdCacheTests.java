@@ -0,0 +1,98 @@
+package jp.co.axa.apidemo.cache;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MissingIdCacheTests {
+
+    private static final Predicate<Long> NOT_IN_DB = id -> false;
+
+    private final MissingIdCache cache = new MissingIdCache("employee", Duration.ofMinutes(1), 100, 0.01);
+
+    /**
+     * Bloom filter has no false negative, and false positives stay around the given rate
+     */
+    @Test
+    public void bloomFilterTest() {
+        IdBloomFilter filter = new IdBloomFilter(10_000, 0.01);
+        LongStream.rangeClosed(1, 10_000).forEach(filter::add);
+
+        assertThat(LongStream.rangeClosed(1, 10_000).allMatch(filter::mightContain)).isTrue();
+        long falsePositives = LongStream.rangeClosed(10_001, 110_000).filter(filter::mightContain).count();
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    /**
+     * Every ID may exist until the first build. After it, IDs not in DB are missing unless they are added
+     */
+    @Test
+    public void rebuildTest() {
+        assertThat(cache.isMissing(5L, NOT_IN_DB)).isFalse();
+
+        cache.rebuild(() -> Arrays.asList(1L, 2L, 3L));
+        assertThat(cache.isMissing(1L, NOT_IN_DB)).isFalse();
+        assertThat(cache.isMissing(5L, NOT_IN_DB)).isTrue();
+
+        cache.add(5L);
+        assertThat(cache.isMissing(5L, NOT_IN_DB)).isFalse();
+        assertThat(cache.isMissing(null, NOT_IN_DB)).isFalse();
+    }
+
+    /**
+     * IDs added while the filter is rebuilt (after DB was read) are kept in the new filter
+     */
+    @Test
+    public void addDuringRebuildTest() {
+        cache.rebuild(() -> {
+            List<Long> ids = new ArrayList<>(LongStream.rangeClosed(1, 100).boxed().collect(Collectors.toList()));
+            cache.add(1000L);
+            return ids;
+        });
+        assertThat(cache.isMissing(1000L, NOT_IN_DB)).isFalse();
+    }
+
+    /**
+     * Missing and deleted IDs are answered by negative cache, and saving the ID clears it
+     */
+    @Test
+    public void negativeCacheTest() {
+        cache.rebuild(() -> Arrays.asList(1L, 2L));
+
+        cache.markMissing(2L);
+        assertThat(cache.isMissing(2L, NOT_IN_DB)).isTrue();
+
+        cache.add(2L);
+        assertThat(cache.isMissing(2L, NOT_IN_DB)).isFalse();
+    }
+
+    /**
+     * ID not on the filter (created on another node after the build) is confirmed by DB, and kept on the filter.
+     * ID not in DB is kept on the negative cache, so DB is checked only once for both
+     */
+    @Test
+    public void confirmFilterMissTest() {
+        cache.rebuild(() -> Arrays.asList(1L, 2L, 3L));
+        AtomicInteger checks = new AtomicInteger();
+
+        assertThat(cache.isMissing(7L, id -> checks.incrementAndGet() > 0)).isFalse();
+        assertThat(cache.isMissing(7L, id -> checks.incrementAndGet() < 0)).isFalse();
+        assertThat(checks.get()).isEqualTo(1);
+
+        assertThat(cache.isMissing(8L, id -> checks.incrementAndGet() < 0)).isTrue();
+        assertThat(cache.isMissing(8L, id -> checks.incrementAndGet() < 0)).isTrue();
+        assertThat(checks.get()).isEqualTo(2);
+
+        assertThat(cache.isMissing(1L, id -> checks.incrementAndGet() < 0)).isFalse();
+        assertThat(checks.get()).isEqualTo(2);
+    }
+}
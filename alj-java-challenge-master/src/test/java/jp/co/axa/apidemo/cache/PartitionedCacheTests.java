@@ -0,0 +1,152 @@
+package jp.co.axa.apidemo.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionedCacheTests {
+
+    private static final Set<String> CACHES = Collections.singleton("employeeCache");
+
+    private final ConcurrentMapCacheManager local1 = new ConcurrentMapCacheManager("employeeCache");
+    private final ConcurrentMapCacheManager local2 = new ConcurrentMapCacheManager("employeeCache");
+
+    private String node1;
+    private String node2;
+    private PartitionServer server2;
+    private PartitionClient client;
+    private Cache cache1;
+
+    // Employee ID owned by node2
+    private long remoteId;
+
+    @Before
+    public void setUp() throws IOException {
+        node1 = "localhost:" + freePort();
+        node2 = "localhost:" + freePort();
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList(node1, node2), 128);
+        remoteId = LongStream.rangeClosed(1, 100).filter(id -> ring.ownerOf(id).equals(node2)).findFirst().getAsLong();
+
+        client = new PartitionClient(1000, 60_000);
+        cache1 = new PartitionedCacheManager(local1, CACHES, ring, node1, client, 100, Duration.ofMinutes(1))
+                .getCache("employeeCache");
+        server2 = new PartitionServer(local2, CACHES, PartitionClient.toAddress(node2), 4);
+        server2.start();
+    }
+
+    @After
+    public void tearDown() {
+        server2.stop();
+        client.close();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static CachedEmployee employee(long id, String name) {
+        return new CachedEmployee(id, name, 100, "technology", 0L);
+    }
+
+    /**
+     * Entries are kept only on the owner. Entries of the other node are read from it and kept on the near cache
+     */
+    @Test
+    public void ownerTest() {
+        long localId = remoteId + 1;
+        while (((PartitionedCache) cache1).remoteOwner(localId) != null) {
+            localId++;
+        }
+        cache1.put(localId, employee(localId, "employee1"));
+        cache1.put(remoteId, employee(remoteId, "employee2"));
+
+        assertThat(local1.getCache("employeeCache").get(localId)).isNotNull();
+        assertThat(local1.getCache("employeeCache").get(remoteId)).isNull();
+        assertThat(local2.getCache("employeeCache").get(remoteId).get()).isEqualTo(employee(remoteId, "employee2"));
+
+        // Written on the owner by another node : near cache has the old value until it expires
+        local2.getCache("employeeCache").put(remoteId, employee(remoteId, "employee2 updated"));
+        assertThat(cache1.get(remoteId).get()).isEqualTo(employee(remoteId, "employee2"));
+
+        cache1.evict(remoteId);
+        assertThat(local2.getCache("employeeCache").get(remoteId)).isNull();
+        assertThat(cache1.get(remoteId)).isNull();
+    }
+
+    /**
+     * Value loaded on miss is written to the owner, and the next read is served by the owner or the near cache
+     */
+    @Test
+    public void loadTest() {
+        AtomicInteger loads = new AtomicInteger();
+        assertThat(cache1.get(remoteId, () -> {
+            loads.incrementAndGet();
+            return employee(remoteId, "employee2");
+        })).isEqualTo(employee(remoteId, "employee2"));
+        assertThat(cache1.get(remoteId, () -> employee(remoteId, "loaded again"))).isEqualTo(employee(remoteId, "employee2"));
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(local2.getCache("employeeCache").get(remoteId).get()).isEqualTo(employee(remoteId, "employee2"));
+    }
+
+    /**
+     * Value loaded from DB doesn't overwrite a newer value written on the owner by another node while loading
+     */
+    @Test
+    public void loadRaceTest() {
+        Object loaded = cache1.get(remoteId, () -> {
+            local2.getCache("employeeCache").put(remoteId, employee(remoteId, "updated"));
+            return employee(remoteId, "stale");
+        });
+
+        assertThat(loaded).isEqualTo(employee(remoteId, "updated"));
+        assertThat(local2.getCache("employeeCache").get(remoteId).get()).isEqualTo(employee(remoteId, "updated"));
+        assertThat(cache1.get(remoteId).get()).isEqualTo(employee(remoteId, "updated"));
+        assertThat(cache1.putIfAbsent(remoteId, employee(remoteId, "stale")).get()).isEqualTo(employee(remoteId, "updated"));
+    }
+
+    /**
+     * Clear is sent to the other nodes, so their partitions don't keep entries changed by a bulk update
+     */
+    @Test
+    public void clearTest() {
+        cache1.put(remoteId, employee(remoteId, "employee2"));
+
+        cache1.clear();
+        assertThat(local2.getCache("employeeCache").get(remoteId)).isNull();
+        assertThat(cache1.get(remoteId)).isNull();
+    }
+
+    /**
+     * If the owner is down, values are loaded on this node and kept on the near cache
+     */
+    @Test
+    public void ownerDownTest() {
+        server2.stop();
+
+        assertThat(cache1.get(remoteId)).isNull();
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache1.get(remoteId, () -> {
+                loads.incrementAndGet();
+                return employee(remoteId, "employee2");
+            })).isEqualTo(employee(remoteId, "employee2"));
+        }
+        assertThat(loads.get()).isEqualTo(1);
+    }
+}
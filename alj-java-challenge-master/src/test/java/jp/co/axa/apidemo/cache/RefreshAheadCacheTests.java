@@ -0,0 +1,92 @@
+package jp.co.axa.apidemo.cache;
+
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RefreshAheadCacheTests {
+
+    private final ConcurrentMapCache target = new ConcurrentMapCache("employeeCache");
+
+    // Values in DB
+    private final Map<Object, Object> db = new HashMap<>();
+
+    // Clock moved by test
+    private final AtomicLong nanos = new AtomicLong();
+
+    private Function<Object, Object> loader = db::get;
+
+    // TTL 20s, refreshed when read after 15s (no jitter). Reloads run on the reading thread
+    private final RefreshAheadCache cache = new RefreshAheadCache(target, () -> loader, Duration.ofSeconds(20),
+                                                                  0.75, 0, Runnable::run, nanos::get);
+
+    private void elapse(long seconds) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    /**
+     * Entry read after refresh time is reloaded, and the refresh time restarts
+     */
+    @Test
+    public void refreshTest() {
+        db.put(1L, "employee1");
+        assertThat(cache.get(1L, () -> db.get(1L))).isEqualTo("employee1");
+        db.put(1L, "employee1 updated");
+
+        elapse(10);
+        assertThat(cache.get(1L).get()).isEqualTo("employee1");
+        assertThat(target.get(1L).get()).isEqualTo("employee1");
+
+        elapse(6);
+        cache.get(1L);
+        assertThat(target.get(1L).get()).isEqualTo("employee1 updated");
+
+        // Deleted in DB
+        db.remove(1L);
+        elapse(10);
+        assertThat(cache.get(1L).get()).isEqualTo("employee1 updated");
+        elapse(6);
+        cache.get(1L);
+        assertThat(target.get(1L)).isNull();
+    }
+
+    /**
+     * Caches without registered loader and failed reloads keep the cached value
+     */
+    @Test
+    public void noLoaderAndFailureTest() {
+        loader = null;
+        cache.put(1L, "employee1");
+        elapse(16);
+        assertThat(cache.get(1L, String.class)).isEqualTo("employee1");
+
+        loader = key -> {
+            throw new IllegalStateException("DB is down");
+        };
+        assertThat(cache.get(1L, String.class)).isEqualTo("employee1");
+        assertThat(target.get(1L).get()).isEqualTo("employee1");
+    }
+
+    /**
+     * Reload is not written if the entry is written during the reload
+     */
+    @Test
+    public void writeDuringReloadTest() {
+        cache.put(1L, "employee1");
+        loader = key -> {
+            cache.put(key, "written by update");
+            return "reloaded";
+        };
+        elapse(16);
+        cache.get(1L);
+        assertThat(target.get(1L).get()).isEqualTo("written by update");
+    }
+}
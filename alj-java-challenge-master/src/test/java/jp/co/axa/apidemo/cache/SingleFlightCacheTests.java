@@ -0,0 +1,112 @@
+package jp.co.axa.apidemo.cache;
+
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightCacheTests {
+
+    private static final int CALLERS = 10;
+
+    /**
+     * Concurrent misses of the same key run the loader once and other callers get the same value
+     */
+    @Test
+    public void coalesceConcurrentLoadsTest() throws Exception {
+        SingleFlightCache cache = new SingleFlightCache(new ConcurrentMapCache("employeeCache"));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get(1L, () -> {
+                calls.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "employee1";
+            })));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(executor.submit(() -> cache.get(1L, () -> {
+                    calls.incrementAndGet();
+                    return "loaded again";
+                })));
+            }
+            // wait until all callers join the load in progress
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.getCoalescedLoads() < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("employee1");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(cache.getLoads()).isEqualTo(1);
+        assertThat(cache.getCoalescedLoads()).isEqualTo(CALLERS - 1);
+        assertThat(cache.get(1L).get()).isEqualTo("employee1");
+    }
+
+    /**
+     * Loader error is thrown to the caller, and nothing is cached
+     */
+    @Test
+    public void loaderErrorTest() {
+        SingleFlightCache cache = new SingleFlightCache(new ConcurrentMapCache("employeeCache"));
+
+        assertThatThrownBy(() -> cache.get(2L, () -> { throw new NoSuchElementException(); }))
+                .isInstanceOf(Cache.ValueRetrievalException.class)
+                .hasCauseInstanceOf(NoSuchElementException.class);
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(2L, () -> "employee2")).isEqualTo("employee2");
+        assertThat(cache.getLoads()).isEqualTo(2);
+    }
+
+    /**
+     * Evict during a slow load detaches it : the caller gets the loaded value, but it isn't written on the cache
+     */
+    @Test
+    public void evictDuringLoadTest() throws Exception {
+        SingleFlightCache cache = new SingleFlightCache(new ConcurrentMapCache("employeeCache"));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> result = executor.submit(() -> cache.get(3L, () -> {
+                loading.countDown();
+                release.await();
+                return "before update";
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            cache.evict(3L);
+            release.countDown();
+
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("before update");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(cache.get(3L)).isNull();
+        assertThat(cache.get(3L, () -> "after update")).isEqualTo("after update");
+        assertThat(cache.get(3L).get()).isEqualTo("after update");
+    }
+}
@@ -0,0 +1,94 @@
+package jp.co.axa.apidemo.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jp.co.axa.apidemo.dto.CacheTierStatistics;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TwoTierCacheTests {
+
+    private final ConcurrentMapCache target = new ConcurrentMapCache("employeeCache");
+
+    // Clock of L1 moved by test
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final TwoTierCache cache = new TwoTierCache(target, Caffeine.newBuilder()
+                                                                       .maximumSize(100)
+                                                                       .expireAfterWrite(30, TimeUnit.SECONDS)
+                                                                       .refreshAfterWrite(5, TimeUnit.SECONDS)
+                                                                       .ticker(nanos::get)
+                                                                       .executor(Runnable::run));
+
+    /**
+     * Value on L2 is kept on L1 and following reads hit L1
+     */
+    @Test
+    public void readThroughTest() {
+        target.put(1L, "employee1");
+
+        assertThat(cache.get(1L).get()).isEqualTo("employee1");
+        assertThat(cache.get(1L).get()).isEqualTo("employee1");
+        assertThat(cache.get(2L)).isNull();
+
+        List<CacheTierStatistics> tiers = cache.getTierStatistics();
+        assertThat(tiers.get(0).getHits()).isEqualTo(1);
+        assertThat(tiers.get(0).getMisses()).isEqualTo(2);
+        assertThat(tiers.get(1).getHits()).isEqualTo(1);
+        assertThat(tiers.get(1).getMisses()).isEqualTo(1);
+        assertThat(tiers.get(0).getHitRatio()).isEqualTo(1.0 / 3);
+    }
+
+    /**
+     * Writes go to both tiers
+     */
+    @Test
+    public void writeThroughTest() {
+        cache.put(1L, "employee1");
+        assertThat(target.get(1L).get()).isEqualTo("employee1");
+
+        cache.evict(1L);
+        assertThat(target.get(1L)).isNull();
+        assertThat(cache.get(1L)).isNull();
+
+        assertThat(cache.get(2L, () -> "employee2")).isEqualTo("employee2");
+        assertThat(target.get(2L).get()).isEqualTo("employee2");
+        assertThat(cache.get(2L, () -> "loaded again")).isEqualTo("employee2");
+    }
+
+    /**
+     * L1 entry is reloaded from L2 after refresh period, and removed when L2 doesn't have it anymore
+     */
+    @Test
+    public void refreshTest() {
+        cache.put(1L, "employee1");
+        // Changed on L2 only (e.g. expired)
+        target.put(1L, "employee1 on L2");
+
+        assertThat(cache.get(1L).get()).isEqualTo("employee1");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        // Old value is returned while refresh runs
+        assertThat(cache.get(1L).get()).isEqualTo("employee1");
+        assertThat(cache.get(1L).get()).isEqualTo("employee1 on L2");
+
+        target.evict(1L);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        cache.get(1L);
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    /**
+     * Null value is cached as well
+     */
+    @Test
+    public void nullValueTest() {
+        cache.put(3L, null);
+        assertThat(cache.get(3L)).isNotNull();
+        assertThat(cache.get(3L).get()).isNull();
+    }
+}
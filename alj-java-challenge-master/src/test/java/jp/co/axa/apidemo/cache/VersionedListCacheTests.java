@@ -0,0 +1,92 @@
+package jp.co.axa.apidemo.cache;
+
+import jp.co.axa.apidemo.entities.Employee;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VersionedListCacheTests {
+
+    private final ConcurrentMapCache cache = new ConcurrentMapCache("allEmployeeCache");
+    private final VersionedListCache<Employee> listCache =
+            new VersionedListCache<>(() -> cache, Employee::getId, Employee::getVersion);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private static Employee employee(long id, String name, long version) {
+        return Employee.builder().id(id).name(name).salary(1000).department("IT").version(version).build();
+    }
+
+    private List<Employee> load() {
+        loads.incrementAndGet();
+        return Arrays.asList(employee(3L, "c", 0L), employee(1L, "a", 0L));
+    }
+
+    private static List<String> names(List<Employee> employees) {
+        return employees.stream().map(Employee::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * Changes are applied to the cached list, and the list is loaded only once
+     */
+    @Test
+    public void patchCachedListTest() {
+        assertThat(names(listCache.get(this::load))).containsExactly("a", "c");
+
+        listCache.upsert(employee(2L, "b", 0L));
+        listCache.upsert(employee(3L, "c2", 1L));
+        listCache.remove(1L);
+
+        assertThat(names(listCache.get(this::load))).containsExactly("b", "c2");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(listCache.getVersion()).isEqualTo(3);
+    }
+
+    /**
+     * Replacement by an older version of the item is ignored
+     */
+    @Test
+    public void ignoreOlderVersionTest() {
+        listCache.get(this::load);
+        listCache.upsert(employee(1L, "a2", 2L));
+        listCache.upsert(employee(1L, "a1", 1L));
+
+        assertThat(names(listCache.get(this::load))).containsExactly("a2", "c");
+    }
+
+    /**
+     * List loaded before a change (but cached after it) is not served
+     */
+    @Test
+    public void rejectStaleListTest() {
+        List<Employee> employees = listCache.get(() -> {
+            if (loads.get() == 0) {
+                // Change committed while the first list is being loaded
+                listCache.upsert(employee(2L, "b", 0L));
+            }
+            return load();
+        });
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(names(employees)).containsExactly("a", "c");
+        assertThat(((VersionedList<?>) cache.get(SimpleKey.EMPTY).get()).getVersion()).isEqualTo(1);
+    }
+
+    /**
+     * Invalidated list is loaded again
+     */
+    @Test
+    public void invalidateTest() {
+        listCache.get(this::load);
+        listCache.invalidate();
+
+        listCache.get(this::load);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+}
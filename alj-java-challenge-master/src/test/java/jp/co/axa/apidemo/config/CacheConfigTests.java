@@ -0,0 +1,61 @@
+package jp.co.axa.apidemo.config;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.ehcache.xml.XmlConfiguration;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.jcache.JCacheCacheManager;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ehcache.config.builders.CacheConfigurationBuilder.newCacheConfigurationBuilder;
+
+public class CacheConfigTests {
+
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(5);
+
+    /**
+     * Refresh-ahead TTL of each cache is read from its expiry in ehcache.xml and ehcache-persistent.xml
+     */
+    @Test
+    public void ttlOfCacheTest() {
+        JCacheCacheManager cacheManager = cacheManagerOf("/ehcache.xml");
+        assertThat(CacheConfig.ttlOf(cacheManager, "employeeCache", DEFAULT_TTL)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(CacheConfig.ttlOf(cacheManager, "allEmployeeCache", DEFAULT_TTL)).isEqualTo(Duration.ofSeconds(30));
+        cacheManager.getCacheManager().close();
+
+        cacheManager = cacheManagerOf("/ehcache-persistent.xml");
+        assertThat(CacheConfig.ttlOf(cacheManager, "employeeCache", DEFAULT_TTL)).isEqualTo(Duration.ofHours(1));
+        assertThat(CacheConfig.ttlOf(cacheManager, "accountCache", DEFAULT_TTL)).isEqualTo(Duration.ofHours(1));
+        assertThat(CacheConfig.ttlOf(cacheManager, "allAccountCache", DEFAULT_TTL)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(CacheConfig.ttlOf(cacheManager, "unknownCache", DEFAULT_TTL)).isEqualTo(DEFAULT_TTL);
+        cacheManager.getCacheManager().close();
+
+        assertThat(CacheConfig.ttlOf(new ConcurrentMapCacheManager("employeeCache"), "employeeCache", DEFAULT_TTL))
+                .isEqualTo(DEFAULT_TTL);
+    }
+
+    /**
+     * JCache CacheManager with the caches of the Ehcache XML on heap only (the XML has disk tiers used by the application)
+     */
+    private static JCacheCacheManager cacheManagerOf(String xml) {
+        XmlConfiguration configuration = new XmlConfiguration(CacheConfigTests.class.getResource(xml));
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        CacheManager manager = provider.getCacheManager(URI.create("test:" + xml),
+                                                        new DefaultConfiguration(CacheConfigTests.class.getClassLoader()));
+        for (Map.Entry<String, CacheConfiguration<?, ?>> cache : configuration.getCacheConfigurations().entrySet()) {
+            manager.createCache(cache.getKey(), Eh107Configuration.fromEhcacheCacheConfiguration(
+                    newCacheConfigurationBuilder(cache.getValue()).withResourcePools(ResourcePoolsBuilder.heap(10))));
+        }
+        return new JCacheCacheManager(manager);
+    }
+}
@@ -0,0 +1,223 @@
+package jp.co.axa.apidemo.config;
+
+import jp.co.axa.apidemo.ApiDemoApplication;
+import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.repositories.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+
+import javax.servlet.Filter;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ *  Virtual thread mode (profile 'virtual-threads') tests.
+ *  Load test compares platform thread pool and virtual threads under the same load, and it runs only on JDK 21 with
+ *  -Dloadtest=true (e.g. mvn -Pvirtual-threads test -Dtest=VirtualThreadLoadTests -Dloadtest=true).
+ *  Each request waits for simulated I/O latency (like remote DB), then max concurrency on server and p99 latency
+ *  on client are logged for both modes.
+ */
+@Slf4j
+public class VirtualThreadLoadTests {
+
+    private static final int PLATFORM_MAX_THREADS = Integer.getInteger("loadtest.max-threads", 50);
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", 400);
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("loadtest.requests", 10);
+    private static final long IO_LATENCY_MS = Long.getLong("loadtest.latency", 50L);
+
+    private static final String NAME = "loadTestUser";
+    private static final String PASSWORD = "loadTestPassword";
+
+    @Test
+    public void virtualThreadExecutorTest() throws Exception {
+        if (!VirtualThreads.isAvailable()) {
+            assertThatThrownBy(() -> VirtualThreads.newThreadPerTaskExecutor("test-"))
+                    .isInstanceOf(IllegalStateException.class);
+            return;
+        }
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get();
+            assertThat(VirtualThreads.isVirtual(thread)).isTrue();
+            assertThat(thread.getName()).startsWith("test-");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void loadTest() throws Exception {
+        Assume.assumeTrue("Load test is enabled by -Dloadtest=true", Boolean.getBoolean("loadtest"));
+        Assume.assumeTrue("Virtual threads require JDK 21", VirtualThreads.isAvailable());
+
+        Result platform = run("default");
+        Result virtual = run("virtual-threads");
+        log.info(String.format("Load test (%d clients x %d requests, %d ms I/O latency)", CLIENTS, REQUESTS_PER_CLIENT, IO_LATENCY_MS));
+        log.info("  platform threads (max-threads=" + PLATFORM_MAX_THREADS + ") : " + platform);
+        log.info("  virtual threads                      : " + virtual);
+
+        assertThat(platform.maxConcurrency).isLessThanOrEqualTo(PLATFORM_MAX_THREADS);
+        assertThat(virtual.maxConcurrency).isGreaterThan(PLATFORM_MAX_THREADS);
+        assertThat(virtual.errors).isZero();
+    }
+
+    private Result run(String profile) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ApiDemoApplication.class, LatencyConfig.class)
+                .profiles(profile)
+                .properties("server.port=0",
+                            "server.tomcat.max-threads=" + PLATFORM_MAX_THREADS,
+                            "server.tomcat.accept-count=" + CLIENTS,
+                            "spring.datasource.url=jdbc:h2:mem:loadtest-" + profile + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;",
+                            "logging.level.root=WARN",
+                            "logging.level.jp.co.axa.apidemo.config=INFO")
+                .run();
+        try {
+            context.getBean(AccountRepository.class).save(
+                    Account.of(NAME, PasswordEncoderFactories.createDelegatingPasswordEncoder().encode(PASSWORD), false));
+            String baseUrl = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            String token = token(baseUrl);
+            LatencyConfig.IN_FLIGHT.set(0);
+            LatencyConfig.MAX_IN_FLIGHT.set(0);
+
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            AtomicInteger errors = new AtomicInteger();
+            long start = System.nanoTime();
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit((Callable<List<Long>>) () -> {
+                    List<Long> latencies = new ArrayList<>();
+                    for (int n = 0; n < REQUESTS_PER_CLIENT; n++) {
+                        long requestStart = System.nanoTime();
+                        if (get(baseUrl + "/api/v1/employees/1", token) != 200) {
+                            errors.incrementAndGet();
+                        }
+                        latencies.add(System.nanoTime() - requestStart);
+                    }
+                    return latencies;
+                }));
+            }
+            List<Long> latencies = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                latencies.addAll(future.get());
+            }
+            long elapsed = System.nanoTime() - start;
+            clients.shutdown();
+
+            Collections.sort(latencies);
+            long p99 = latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+            return new Result(LatencyConfig.MAX_IN_FLIGHT.get(), p99 / 1_000_000, latencies.size() * 1_000_000_000L / elapsed, errors.get());
+        } finally {
+            context.close();
+        }
+    }
+
+    private static String token(String baseUrl) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/api/v1/token").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(("name=" + NAME + "&password=" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+        }
+        String body = read(connection.getInputStream());
+        return body.substring(body.indexOf("Bearer "), body.lastIndexOf('"'));
+    }
+
+    private static int get(String url, String token) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty("Authorization", token);
+            int status = connection.getResponseCode();
+            read(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            return status;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static String read(InputStream in) throws Exception {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+
+    /**
+     *  Simulated I/O latency on each request, and counter of requests being processed at the same time
+     */
+    @TestConfiguration
+    static class LatencyConfig {
+        static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+        static final AtomicInteger MAX_IN_FLIGHT = new AtomicInteger();
+
+        @Bean
+        public FilterRegistrationBean<Filter> latencyFilter() {
+            FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+                MAX_IN_FLIGHT.accumulateAndGet(IN_FLIGHT.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(IO_LATENCY_MS);
+                    chain.doFilter(request, response);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    IN_FLIGHT.decrementAndGet();
+                }
+            });
+            registration.addUrlPatterns("/api/v1/employees/*");
+            return registration;
+        }
+    }
+
+
+    private static class Result {
+        final int maxConcurrency;
+        final long p99Millis;
+        final long requestsPerSecond;
+        final int errors;
+
+        Result(int maxConcurrency, long p99Millis, long requestsPerSecond, int errors) {
+            this.maxConcurrency = maxConcurrency;
+            this.p99Millis = p99Millis;
+            this.requestsPerSecond = requestsPerSecond;
+            this.errors = errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("max concurrency = %d, p99 = %d ms, throughput = %d req/s, errors = %d",
+                                 maxConcurrency, p99Millis, requestsPerSecond, errors);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package jp.co.axa.apidemo.controllers;
 
 import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.AccountView;
 import jp.co.axa.apidemo.repositories.AccountRepository;
+import jp.co.axa.apidemo.services.NotFoundException;
 import jp.co.axa.apidemo.services.impl.AccountServiceImpl;
 import jp.co.axa.apidemo.security.DemoSecurityConfig;
 import jp.co.axa.apidemo.security.DemoLoginUser;
@@ -56,7 +58,7 @@ public class AccountControllerTests {
     @Test
     public void getAccountsTest() throws Exception {
         Account account = Account.of("admin1","admin1",true);
-        List<Account> resAccounts = Arrays.asList(account);
+        List<AccountView> resAccounts = Arrays.asList(account);
         when(accountService.retrieveAccounts()).thenReturn(resAccounts);
 
         DemoLoginUser loginUser = new DemoLoginUser(account);
@@ -160,4 +162,25 @@ public class AccountControllerTests {
         assertTrue(result.getResponse().getErrorMessage().equals("Account Not Found. ID = "+deleteAccountId.toString()));
     }
 
+    /**
+     * [getAccountById] with ID of missing account. It's answered 404 (Not Found)
+     * @throws Exception
+     */
+    @Test
+    public void getMissingAccountTest() throws Exception {
+        Account account = Account.of("admin1","admin1",true);
+        when(accountService.findById(9L)).thenThrow(new NotFoundException("Account Not Found. ID = 9"));
+
+        DemoLoginUser loginUser = new DemoLoginUser(account);
+        RequestBuilder builder = MockMvcRequestBuilders.get("/api/v1/account/{accountId}", "9")
+                        .with(user(loginUser))
+                        .accept(MediaType.APPLICATION_JSON);
+
+        MvcResult result = mvc.perform(builder)
+                .andExpect(status().isNotFound())
+                .andDo(print())
+                .andReturn();
+
+        assertThat(result.getResponse().getErrorMessage()).isEqualTo("Account Not Found. ID = 9");
+    }
 }
@@ -1,14 +1,26 @@
 package jp.co.axa.apidemo.controllers;
 
+import jp.co.axa.apidemo.dto.DepartmentSalaryStats;
+import jp.co.axa.apidemo.dto.EmployeeNameMatch;
+import jp.co.axa.apidemo.dto.EmployeePage;
 import jp.co.axa.apidemo.entities.Account;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.entities.EmployeeView;
 import jp.co.axa.apidemo.repositories.AccountRepository;
 import jp.co.axa.apidemo.repositories.EmployeeRepository;
 import jp.co.axa.apidemo.security.DemoLoginUser;
+import jp.co.axa.apidemo.services.EmployeeExportFormat;
+import jp.co.axa.apidemo.services.EmployeeSortKey;
+import jp.co.axa.apidemo.services.NotFoundException;
 import jp.co.axa.apidemo.services.impl.EmployeeServiceImpl;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,6 +28,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -23,6 +36,8 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
@@ -30,7 +45,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -61,7 +79,7 @@ public class EmployeeControllerTests {
     @Test
     public void getEmployeesTest() throws Exception {
         Employee employee = Employee.of("emp1",100,"Tech");
-        List<Employee> resEmployees = Arrays.asList(employee);
+        List<EmployeeView> resEmployees = Arrays.asList(employee);
         when(employeeService.retrieveEmployees()).thenReturn(resEmployees);
 
         RequestBuilder builder = MockMvcRequestBuilders.get("/api/v1/employees")
@@ -80,6 +98,155 @@ public class EmployeeControllerTests {
     }
 
 
+    /**
+     * [getEmployees] conditional GET test. 304 is returned without loading employees if ETag matches.
+     * @throws Exception
+     */
+    @Test
+    public void getEmployeesNotModifiedTest() throws Exception {
+        when(employeeService.getEmployeesVersion()).thenReturn("100-5");
+
+        RequestBuilder builder = MockMvcRequestBuilders.get("/api/v1/employees")
+                            .with(user(loginUser))
+                            .header("If-None-Match", "\"employees-100-5\"")
+                            .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(builder)
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"employees-100-5\""))
+                .andExpect(content().string(""))
+                .andDo(print());
+        verify(employeeService, never()).retrieveEmployees();
+    }
+
+
+    /**
+     * [getEmployeePage] function unit test on controll.
+     * It expects to return the page of employees with next cursor by JSON string.
+     * @throws Exception
+     */
+    @Test
+    public void getEmployeePageTest() throws Exception {
+        Employee employee = Employee.of("emp1",100,"Tech");
+        employee.setId(3L);
+        EmployeePage page = new EmployeePage(Arrays.asList(employee), "bmV4dA");
+        when(employeeService.retrieveEmployeePage(EmployeeSortKey.SALARY, null, null, 1)).thenReturn(page);
+
+        RequestBuilder builder = MockMvcRequestBuilders.get("/api/v1/employees")
+                            .param("limit", "1")
+                            .param("sort", "salary")
+                            .with(user(loginUser))
+                            .accept(MediaType.APPLICATION_JSON);
+
+        String expectedContent = "{\"employees\":[{\"id\":3,\"name\":\"emp1\",\"salary\":100,\"department\":\"Tech\"}],\"nextCursor\":\"bmV4dA\"}";
+        mvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().json(expectedContent))
+                .andDo(print());
+    }
+
+
+    /**
+     * [exportEmployees] function unit test on controll.
+     * It expects to stream what service writes with CSV content type.
+     * @throws Exception
+     */
+    @Test
+    public void exportEmployeesTest() throws Exception {
+        String csv = "id,name,salary,department\n1,emp1,100,Tech\n";
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write(csv.getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(employeeService).exportEmployees(eq(EmployeeExportFormat.CSV), any(OutputStream.class));
+
+        RequestBuilder builder = MockMvcRequestBuilders.get("/api/v1/employees/export")
+                            .param("format", "csv")
+                            .with(user(loginUser));
+
+        MvcResult asyncResult = mvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string(csv))
+                .andDo(print());
+    }
+
+
+    /**
+     * [getDepartmentStatistics] function unit test on controll.
+     * @throws Exception
+     */
+    @Test
+    public void getDepartmentStatisticsTest() throws Exception {
+        DepartmentSalaryStats stats = new DepartmentSalaryStats("tech", 2L, 300L, 100, 200);
+        when(employeeService.getDepartmentStatistics()).thenReturn(Arrays.asList(stats));
+
+        RequestBuilder builder = MockMvcRequestBuilders.get("/api/v1/employees/stats/departments")
+                            .with(user(loginUser))
+                            .accept(MediaType.APPLICATION_JSON);
+
+        String expectedContent = "[{\"department\":\"tech\",\"count\":2,\"sum\":300,\"min\":100,\"max\":200,\"average\":150.0}]";
+        mvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().json(expectedContent))
+                .andDo(print());
+    }
+
+
+    /**
+     * [searchEmployees] function unit test on controll.
+     * @throws Exception
+     */
+    @Test
+    public void searchEmployeesTest() throws Exception {
+        EmployeeNameMatch match = new EmployeeNameMatch(5L, "test", 1.0);
+        when(employeeService.searchEmployeesByName("te", 10)).thenReturn(Arrays.asList(match));
+
+        RequestBuilder builder = MockMvcRequestBuilders.get("/api/v1/employees/search")
+                            .param("q", "te")
+                            .with(user(loginUser))
+                            .accept(MediaType.APPLICATION_JSON);
+
+        String expectedContent = "[{\"id\":5,\"name\":\"test\",\"score\":1.0}]";
+        mvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().json(expectedContent))
+                .andDo(print());
+    }
+
+
+    /**
+     * [getEmployee] conditional GET test. ETag is made of ID and version, and 304 is returned if it matches.
+     * @throws Exception
+     */
+    @Test
+    public void getEmployeeNotModifiedTest() throws Exception {
+        Employee employee = Employee.of("test",100,"tech");
+        employee.setId(5L);
+        employee.setVersion(3L);
+        when(employeeService.getEmployee(5L)).thenReturn(employee);
+
+        RequestBuilder builder = MockMvcRequestBuilders.get("/api/v1/employees/{employeeId}", "5")
+                        .with(user(loginUser))
+                        .header("If-None-Match", "\"employee-5-3\"")
+                        .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(builder)
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+                .andDo(print());
+
+        // Changed employee (version 4) is returned with new ETag
+        employee.setVersion(4L);
+        mvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"employee-5-4\""))
+                .andDo(print());
+    }
+
 
     /**
      * Normal behavior test on [getEmployee] function on controll.
@@ -107,6 +274,27 @@ public class EmployeeControllerTests {
     }
 
 
+    /**
+     * [getEmployee] with ID of missing employee. It's answered 404 (Not Found)
+     * @throws Exception
+     */
+    @Test
+    public void getMissingEmployeeTest() throws Exception {
+        when(employeeService.getEmployee(999L)).thenThrow(new NotFoundException("Employee Not Found. ID = 999"));
+
+        RequestBuilder builder = MockMvcRequestBuilders.get("/api/v1/employees/{employeeId}", "999")
+                        .with(user(loginUser))
+                        .accept(MediaType.APPLICATION_JSON);
+
+        MvcResult result = mvc.perform(builder)
+                .andExpect(status().isNotFound())
+                .andDo(print())
+                .andReturn();
+
+        assertThat(result.getResponse().getErrorMessage()).isEqualTo("Employee Not Found. ID = 999");
+    }
+
+
     /**
      * Normal behavior test on [saveEmployee] function on controll.
      * It expects to return JSON string for Employee object from service (mock here).
@@ -137,6 +325,34 @@ public class EmployeeControllerTests {
 
 
 
+    /**
+     * Normal behavior test on [saveEmployees] function on controll.
+     * It expects to return JSON array for saved employees from service (mock here).
+     * @throws Exception
+     */
+    @Test
+    public void saveEmployeesTest() throws Exception {
+        Employee employee1 = Employee.of("test1",100,"tech");
+        Employee employee2 = Employee.of("test2",200,"sales");
+        List<Employee> employees = Arrays.asList(employee1, employee2);
+        when(employeeService.saveEmployees(employees)).thenReturn(employees);
+
+        String requestContent = "[{\"name\":\"test1\",\"salary\":100,\"department\":\"tech\"},"
+                              + "{\"name\":\"test2\",\"salary\":200,\"department\":\"sales\"}]";
+        RequestBuilder builder = MockMvcRequestBuilders.post("/api/v1/employees/batch")
+                        .with(user(loginUser))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestContent);
+
+        String expectedContent = "[{\"id\":null,\"name\":\"test1\",\"salary\":100,\"department\":\"tech\"},"
+                               + "{\"id\":null,\"name\":\"test2\",\"salary\":200,\"department\":\"sales\"}]";
+        mvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().json(expectedContent))
+                .andDo(print());
+    }
+
+
     /**
      * Exception handling test on [saveEmployee] function. This is to simulate when service throws exception
      * when client sends bad request or some error on service layer. 
@@ -179,7 +395,7 @@ public class EmployeeControllerTests {
                                 .accept(MediaType.APPLICATION_JSON);
 
         MvcResult result = mvc.perform(builder)
-                .andExpect(status().isBadRequest())
+                .andExpect(status().isNotFound())
                 .andDo(print())
                 .andReturn();
 
@@ -197,8 +413,7 @@ public class EmployeeControllerTests {
         Long updateEmployeeId = 2L;
         Employee employee = Employee.of("test",200,"tech");
         employee.setId(updateEmployeeId);
-        when(employeeService.getEmployee(updateEmployeeId)).thenReturn(employee);
-        when(employeeService.updateEmployee(employee)).thenReturn(employee);
+        when(employeeService.updateEmployee(updateEmployeeId, employee, null)).thenReturn(employee);
 
         String updateContent = "{\"id\":2,\"name\":\"test\",\"salary\":200,\"department\":\"tech\"}";
         RequestBuilder builder = MockMvcRequestBuilders.put("/api/v1/employees/{employeeId}", updateEmployeeId.toString())
@@ -225,7 +440,7 @@ public class EmployeeControllerTests {
     @Test
     public void throwExceptionOnUpdateTest() throws Exception {
         Long updateEmployeeId = 2L;
-        when(employeeService.getEmployee(updateEmployeeId)).thenReturn(null);
+        when(employeeService.updateEmployee(eq(updateEmployeeId), any(Employee.class), any())).thenThrow(RuntimeException.class);
 
         String updateContent = "{\"id\":2,\"name\":\"test\",\"salary\":200,\"department\":\"tech\"}";
         RequestBuilder builder = MockMvcRequestBuilders.put("/api/v1/employees/{employeeId}", updateEmployeeId.toString())
@@ -241,4 +456,83 @@ public class EmployeeControllerTests {
         assertTrue(result.getResponse().getErrorMessage().equals("Error on updating employee. Please contact support."));
     }
 
+
+    /**
+     * [updateEmployee] and [patchEmployee] return 404 for unknown ID, same as [getEmployee]
+     * @throws Exception
+     */
+    @Test
+    public void updateMissingEmployeeTest() throws Exception {
+        when(employeeService.updateEmployee(eq(999L), any(Employee.class), any())).thenThrow(new NotFoundException("Employee Not Found. ID = 999"));
+        when(employeeService.patchEmployee(eq(999L), any(Employee.class), any())).thenThrow(new NotFoundException("Employee Not Found. ID = 999"));
+
+        String updateContent = "{\"name\":\"test\",\"salary\":200,\"department\":\"tech\"}";
+        mvc.perform(MockMvcRequestBuilders.put("/api/v1/employees/{employeeId}", "999")
+                        .with(user(loginUser))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateContent))
+                .andExpect(status().isNotFound())
+                .andDo(print());
+        mvc.perform(MockMvcRequestBuilders.patch("/api/v1/employees/{employeeId}", "999")
+                        .with(user(loginUser))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"salary\":300}"))
+                .andExpect(status().isNotFound())
+                .andDo(print());
+    }
+
+
+    /**
+     * [patchEmployee] function unit test on controll. Version in If-Match is passed to service and new ETag is returned.
+     * @throws Exception
+     */
+    @Test
+    public void patchEmployeeTest() throws Exception {
+        Employee patched = Employee.of("test",300,"tech");
+        patched.setId(2L);
+        patched.setVersion(4L);
+        when(employeeService.patchEmployee(eq(2L), any(Employee.class), eq(3L))).thenReturn(patched);
+
+        RequestBuilder builder = MockMvcRequestBuilders.patch("/api/v1/employees/{employeeId}", "2")
+                        .with(user(loginUser))
+                        .header("If-Match", "\"employee-2-3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"salary\":300}");
+
+        mvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"employee-2-4\""))
+                .andExpect(content().json("{\"id\":2,\"name\":\"test\",\"salary\":300,\"department\":\"tech\"}"))
+                .andDo(print());
+    }
+
+
+    /**
+     * [patchEmployee] returns 412 when the employee was changed by others (or If-Match is not ETag of the employee)
+     * @throws Exception
+     */
+    @Test
+    public void patchEmployeeConflictTest() throws Exception {
+        when(employeeService.patchEmployee(eq(2L), any(Employee.class), eq(3L)))
+            .thenThrow(new OptimisticLockingFailureException("changed"));
+
+        RequestBuilder builder = MockMvcRequestBuilders.patch("/api/v1/employees/{employeeId}", "2")
+                        .with(user(loginUser))
+                        .header("If-Match", "\"employee-2-3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"salary\":300}");
+        mvc.perform(builder)
+                .andExpect(status().isPreconditionFailed())
+                .andDo(print());
+
+        RequestBuilder otherEmployee = MockMvcRequestBuilders.patch("/api/v1/employees/{employeeId}", "2")
+                        .with(user(loginUser))
+                        .header("If-Match", "\"employee-1-3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"salary\":300}");
+        mvc.perform(otherEmployee)
+                .andExpect(status().isPreconditionFailed())
+                .andDo(print());
+    }
+
 }
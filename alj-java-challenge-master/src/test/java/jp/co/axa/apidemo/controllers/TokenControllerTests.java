@@ -0,0 +1,85 @@
+package jp.co.axa.apidemo.controllers;
+
+import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.RefreshToken;
+import jp.co.axa.apidemo.repositories.AccountRepository;
+import jp.co.axa.apidemo.security.DemoSecurityConfig;
+import jp.co.axa.apidemo.services.AccountService;
+import jp.co.axa.apidemo.services.RefreshTokenService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Optional;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(value = TokenController.class)
+@Import(value = {DemoSecurityConfig.class})
+@TestPropertySource(properties = "jwt.refresh-token.enabled=true")
+public class TokenControllerTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private AccountRepository accountRepository;
+    @MockBean
+    private AccountService accountService;
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+
+    /**
+     * Refresh token on X-Refresh-Token header is traded for a new token of the account read from DB
+     * @throws Exception
+     */
+    @Test
+    public void refreshTest() throws Exception {
+        Account account = Account.of("admin1","admin1",true);
+        account.setId(1L);
+        RefreshToken next = RefreshToken.builder().accountId(1L).token("next").build();
+        when(refreshTokenService.refresh("current")).thenReturn(Optional.of(next));
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(account));
+
+        mvc.perform(MockMvcRequestBuilders.post("/api/v1/token/refresh")
+                        .header(TokenController.REFRESH_TOKEN_HEADER, "current")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refreshToken").value("next"))
+                .andDo(print());
+
+        verify(accountService, never()).findById(any());
+    }
+
+    /**
+     * Refresh token on URL is not accepted
+     * @throws Exception
+     */
+    @Test
+    public void refreshOnUrlTest() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/api/v1/token/refresh").param("refreshToken", "current")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andDo(print());
+
+        verify(refreshTokenService, never()).refresh(any());
+    }
+}
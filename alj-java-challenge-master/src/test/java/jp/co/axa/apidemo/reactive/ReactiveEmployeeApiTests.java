@@ -0,0 +1,126 @@
+package jp.co.axa.apidemo.reactive;
+
+import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.AccountRepository;
+import jp.co.axa.apidemo.security.DemoToken;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *  Employee API in reactive mode (WebFlux on Netty, R2DBC) through real HTTP requests
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = { "spring.datasource.url=jdbc:h2:mem:reactivedb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;",
+                               "reactive.r2dbc.database=reactivedb" })
+@ActiveProfiles("reactive")
+public class ReactiveEmployeeApiTests {
+
+    private static final String NAME = "reactiveUser";
+    private static final String PASSWORD = "reactivePassword";
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Before
+    public void setUp() {
+        if (!accountRepository.findFirstByName(NAME).isPresent()) {
+            String encoded = PasswordEncoderFactories.createDelegatingPasswordEncoder().encode(PASSWORD);
+            accountRepository.save(Account.of(NAME, encoded, false));
+        }
+    }
+
+    @Test
+    public void tokenRequiredTest() {
+        webClient.get().uri("/api/v1/employees").exchange()
+                 .expectStatus().isUnauthorized();
+        webClient.get().uri("/api/v1/employees").header("Authorization", "Bearer invalid").exchange()
+                 .expectStatus().isUnauthorized();
+        webClient.post().uri("/api/v1/token").body(BodyInserters.fromFormData(login(NAME, "wrongPassword"))).exchange()
+                 .expectStatus().isForbidden();
+    }
+
+    @Test
+    public void employeeCrudTest() {
+        String token = token();
+
+        // list with ETag, then 304 with If-None-Match
+        String listETag = webClient.get().uri("/api/v1/employees").header("Authorization", token).exchange()
+                                   .expectStatus().isOk()
+                                   .expectBodyList(Employee.class).hasSize(3)
+                                   .returnResult().getResponseHeaders().getETag();
+        webClient.get().uri("/api/v1/employees").header("Authorization", token).header("If-None-Match", listETag).exchange()
+                 .expectStatus().isNotModified();
+
+        // register by form parameters
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("name", "reactive");
+        form.add("salary", "200");
+        form.add("department", "technology");
+        Employee saved = webClient.post().uri("/api/v1/employees").header("Authorization", token)
+                                  .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                                  .body(BodyInserters.fromFormData(form)).exchange()
+                                  .expectStatus().isOk()
+                                  .expectBody(Employee.class).returnResult().getResponseBody();
+        assertThat(saved.getId()).isNotNull();
+        webClient.get().uri("/api/v1/employees").header("Authorization", token).header("If-None-Match", listETag).exchange()
+                 .expectStatus().isOk();
+
+        // patch with If-Match, then stale If-Match fails with 412
+        String path = "/api/v1/employees/" + saved.getId();
+        String etag = webClient.get().uri(path).header("Authorization", token).exchange()
+                               .expectStatus().isOk()
+                               .returnResult(Employee.class).getResponseHeaders().getETag();
+        Employee patched = webClient.patch().uri(path).header("Authorization", token).header("If-Match", etag)
+                                    .contentType(MediaType.APPLICATION_JSON).bodyValue("{\"salary\":300}").exchange()
+                                    .expectStatus().isOk()
+                                    .expectBody(Employee.class).returnResult().getResponseBody();
+        assertThat(patched.getSalary()).isEqualTo(300);
+        assertThat(patched.getName()).isEqualTo("reactive");
+        webClient.put().uri(path).header("Authorization", token).header("If-Match", etag)
+                 .contentType(MediaType.APPLICATION_JSON)
+                 .bodyValue("{\"name\":\"reactive\",\"salary\":400,\"department\":\"sales\"}").exchange()
+                 .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        // delete, then not found
+        webClient.delete().uri(path).header("Authorization", token).exchange()
+                 .expectStatus().isOk();
+        webClient.get().uri(path).header("Authorization", token).exchange()
+                 .expectStatus().isNotFound();
+        webClient.delete().uri(path).header("Authorization", token).exchange()
+                 .expectStatus().isNotFound();
+    }
+
+    private String token() {
+        DemoToken token = webClient.post().uri("/api/v1/token").body(BodyInserters.fromFormData(login(NAME, PASSWORD))).exchange()
+                                   .expectStatus().isOk()
+                                   .expectBody(DemoToken.class).returnResult().getResponseBody();
+        assertThat(token.getToken()).startsWith("Bearer ");
+        return token.getToken();
+    }
+
+    private static MultiValueMap<String, String> login(String name, String password) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("name", name);
+        form.add("password", password);
+        return form;
+    }
+}
@@ -6,8 +6,10 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,4 +35,63 @@ public class EmployeeRepositoryTests {
         assertThat(actual).isEqualTo(expected);
     }
 
+
+    /**
+     * Keyset page test. Employees with the same salary are ordered by ID and the page starts after given position
+     */
+    @Test
+    public void findPageOrderBySalary() {
+        Employee emp1 = testEntityManager.persistFlushFind(Employee.of("emp1", 3000, "tech"));
+        Employee emp2 = testEntityManager.persistFlushFind(Employee.of("emp2", 2000, "tech"));
+        Employee emp3 = testEntityManager.persistFlushFind(Employee.of("emp3", 2000, "tech"));
+
+        // start after pre-defined employees in data.sql
+        List<Employee> firstPage = employeeRepository.findPageOrderBySalary(1000, Long.MIN_VALUE, PageRequest.of(0, 2));
+        assertThat(firstPage).containsExactly(emp2, emp3);
+
+        List<Employee> nextPage = employeeRepository.findPageOrderBySalary(emp3.getSalary(), emp3.getId(), PageRequest.of(0, 2));
+        assertThat(nextPage).containsExactly(emp1);
+    }
+
+
+    /**
+     * Salary raise test. Only employees in the department are updated (rounded down) and their version is incremented
+     */
+    @Test
+    public void raiseSalaryByDepartment() {
+        Employee target = testEntityManager.persistFlushFind(Employee.of("emp1", 105, "raise"));
+        Employee other = testEntityManager.persistFlushFind(Employee.of("emp2", 100, "other"));
+
+        int updated = employeeRepository.raiseSalaryByDepartment("raise", 10);
+
+        assertThat(updated).isEqualTo(1);
+        Employee raised = employeeRepository.findById(target.getId()).get();
+        assertThat(raised.getSalary()).isEqualTo(115);
+        assertThat(raised.getVersion()).isEqualTo(target.getVersion() + 1);
+        assertThat(employeeRepository.findById(other.getId()).get().getSalary()).isEqualTo(100);
+    }
+
+    /**
+     * Salary raise is computed in BIGINT, so a product beyond integer range doesn't overflow
+     */
+    @Test
+    public void raiseLargeSalaryByDepartment() {
+        Employee target = testEntityManager.persistFlushFind(Employee.of("emp1", 30_000_000, "raise"));
+
+        employeeRepository.raiseSalaryByDepartment("raise", 5);
+
+        assertThat(employeeRepository.findById(target.getId()).get().getSalary()).isEqualTo(31_500_000);
+    }
+
+    /**
+     * IDs of the department are selected with row locks (select for update)
+     */
+    @Test
+    public void findIdsByDepartment() {
+        Employee target = testEntityManager.persistFlushFind(Employee.of("emp1", 105, "locked"));
+        testEntityManager.persistFlushFind(Employee.of("emp2", 100, "other"));
+
+        assertThat(employeeRepository.findIdsByDepartment("locked")).containsExactly(target.getId());
+    }
+
 }
@@ -3,8 +3,12 @@ package jp.co.axa.apidemo.security;
 import java.util.Optional;
 
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jp.co.axa.apidemo.entities.Account;
@@ -18,11 +22,13 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.servlet.FilterChain;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.fail;;
 
 @RunWith(SpringRunner.class)
@@ -95,4 +101,61 @@ public class JWTTokenTests {
 
     }
 
+    /**
+     * Stateless mode : token is authenticated by its claims and the account version without loading the account,
+     * and is rejected after the account is changed
+     */
+    @Test
+    public void statelessTokenTests() throws Exception {
+        String secretKey = "secretKey";
+        Account account = Account.of("admin1", "admin1", true);
+        account.setId(1L);
+        account.setVersion(3L);
+        String token = new DemoAuthenticationSuccessHandler(secretKey, 10L).generateToken(account);
+
+        when(accountRepository.findVersionById(1L)).thenReturn(3L);
+        AccountVersionTable accountVersions = new AccountVersionTable(accountRepository, 60, 100);
+        DemoTokenFilter tokenFilter = new DemoTokenFilter(accountRepository, secretKey, accountVersions);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        try {
+            tokenFilter.doFilter(request, new MockHttpServletResponse(), filterChain);
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            DemoLoginUser loginUser = (DemoLoginUser) authentication.getPrincipal();
+            assertThat(loginUser.getUsername()).isEqualTo("admin1");
+            assertThat(loginUser.getAccount().getId()).isEqualTo(1L);
+            assertThat(authentication.getAuthorities()).extracting("authority").contains("ROLE_ADMIN");
+            verify(accountRepository, never()).findById(1L);
+
+            // Account updated after the token was issued
+            SecurityContextHolder.clearContext();
+            accountVersions.updated(1L, 4L);
+            tokenFilter.doFilter(request, new MockHttpServletResponse(), filterChain);
+            assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Verified token is kept and returned without verification until it expires. Tokens with wrong signature
+     * are not kept
+     */
+    @Test
+    public void verifiedTokenCacheTests() {
+        Account account = Account.of("user1", "user1", false);
+        account.setId(4L);
+        String token = new DemoAuthenticationSuccessHandler("secretKey", 10L).generateToken(account);
+        DemoTokenFilter tokenFilter = new DemoTokenFilter(accountRepository, "secretKey");
+
+        DecodedJWT jwt = tokenFilter.verifyToken(token);
+        assertThat(jwt.getSubject()).isEqualTo("4");
+        assertThat(tokenFilter.verifyToken(token)).isSameAs(jwt);
+
+        String forged = new DemoAuthenticationSuccessHandler("otherKey", 10L).generateToken(account);
+        assertThatThrownBy(() -> tokenFilter.verifyToken(forged)).isInstanceOf(SignatureVerificationException.class);
+        assertThatThrownBy(() -> tokenFilter.verifyToken(forged)).isInstanceOf(SignatureVerificationException.class);
+    }
+
 }
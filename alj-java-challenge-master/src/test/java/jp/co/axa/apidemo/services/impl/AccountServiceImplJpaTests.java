@@ -0,0 +1,78 @@
+package jp.co.axa.apidemo.services.impl;
+
+import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.RefreshToken;
+import jp.co.axa.apidemo.repositories.AccountRepository;
+import jp.co.axa.apidemo.repositories.RefreshTokenRepository;
+import jp.co.axa.apidemo.security.AccountVersionTable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *  AccountServiceImpl on real repositories. Refresh tokens are revoked by bulk delete in the same transaction
+ *  as the account change, which must not drop the change.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({AccountServiceImpl.class, RefreshTokenServiceImpl.class, AccountVersionTable.class})
+public class AccountServiceImplJpaTests {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+    @Autowired
+    private AccountServiceImpl accountService;
+    @Autowired
+    private RefreshTokenServiceImpl refreshTokenService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @MockBean
+    private CacheManager cacheManager;
+
+    /**
+     * Updated account row is written, and refresh tokens of the account are revoked
+     */
+    @Test
+    public void updateAccountTest() {
+        Account stored = testEntityManager.persistFlushFind(Account.of("user1", "password1", false));
+        RefreshToken token = refreshTokenService.issue(stored.getId());
+        testEntityManager.clear();
+
+        Account changes = Account.of("user1", "password2", true);
+        changes.setId(stored.getId());
+        accountService.saveAccount(changes);
+        testEntityManager.clear();
+
+        Account updated = accountRepository.findById(stored.getId()).orElseThrow(RuntimeException::new);
+        assertThat(updated.getVersion()).isEqualTo(stored.getVersion() + 1);
+        assertThat(updated.getAdmin()).isTrue();
+        assertThat(updated.getPassword()).isNotEqualTo(stored.getPassword());
+        assertThat(refreshTokenRepository.findById(token.getId())).isEmpty();
+    }
+
+    /**
+     * Deleted account row is removed, and refresh tokens of the account are revoked
+     */
+    @Test
+    public void deleteAccountTest() {
+        Account stored = testEntityManager.persistFlushFind(Account.of("user1", "password1", false));
+        RefreshToken token = refreshTokenService.issue(stored.getId());
+        testEntityManager.clear();
+
+        accountService.deleteAccount(stored.getId());
+        testEntityManager.clear();
+
+        assertThat(accountRepository.findById(stored.getId())).isEmpty();
+        assertThat(refreshTokenRepository.findById(token.getId())).isEmpty();
+    }
+}
@@ -1,6 +1,10 @@
 package jp.co.axa.apidemo.services.impl;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -8,13 +12,16 @@ import java.util.List;
 import java.util.Optional;
 
 import jp.co.axa.apidemo.entities.Account;
+import jp.co.axa.apidemo.entities.AccountView;
 import jp.co.axa.apidemo.repositories.AccountRepository;
+import jp.co.axa.apidemo.security.AccountVersionTable;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.transaction.TestTransaction;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -24,6 +31,8 @@ public class AccountServiceImplTests {
 
     @Mock
     private AccountRepository accountRepository;
+    @Mock
+    private AccountVersionTable accountVersionTable;
     @InjectMocks
     private AccountServiceImpl accountService;
 
@@ -45,7 +54,7 @@ public class AccountServiceImplTests {
         List<Account> accounts = Arrays.asList(account, account, account);
         when(accountRepository.findAll()).thenReturn(accounts);
 
-        List<Account> resAccounts = accountService.retrieveAccounts();
+        List<AccountView> resAccounts = accountService.retrieveAccounts();
 
         assertThat(resAccounts.size()).isEqualTo(accounts.size());
     }
@@ -61,10 +70,14 @@ public class AccountServiceImplTests {
         account.setId(accountId);
         when(accountRepository.findById(accountId)).thenReturn( Optional.ofNullable(account));
 
-        Account resAccount = accountService.findById(accountId);
+        AccountView resAccount = accountService.findById(accountId);
 
-        // password could be different, but this returns true because of Account.equals()
-        assertThat(resAccount).isEqualTo(account);
+        // immutable copy without password is returned, and the loaded account is not changed
+        assertThat(resAccount.getId()).isEqualTo(accountId);
+        assertThat(resAccount.getName()).isEqualTo(account.getName());
+        assertThat(resAccount.getAdmin()).isEqualTo(account.getAdmin());
+        assertThat(resAccount.getPassword()).isEmpty();
+        assertThat(account.getPassword()).isEqualTo("newPassword");
     }
 
 
@@ -92,4 +105,50 @@ public class AccountServiceImplTests {
         accountService.deleteAccount(deleteAccountId);
         assertThat(true).isTrue();
     }
+
+    /**
+     * Version of account list is changed after commit (not before), so the ETag doesn't cover uncommitted changes
+     */
+    @Test
+    public void accountsVersionAfterCommitTest() throws Exception {
+        Account account = getTestAccount();
+        when(accountRepository.save(account)).thenReturn(account);
+        String version = accountService.getAccountsVersion();
+
+        accountService.saveAccount(account);
+        accountService.deleteAccount(1L);
+        assertThat(accountService.getAccountsVersion()).isEqualTo(version);
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        assertThat(accountService.getAccountsVersion()).isNotEqualTo(version).endsWith("-2");
+    }
+
+    /**
+     * Version table gets the version written by the flushed update, and only after commit
+     */
+    @Test
+    public void accountVersionAfterCommitTest() throws Exception {
+        Account account = getTestAccount();
+        account.setId(1L);
+        account.setVersion(3L);
+        Account saved = getTestAccount();
+        saved.setId(1L);
+        saved.setVersion(3L);
+        when(accountRepository.save(account)).thenReturn(saved);
+        doAnswer(invocation -> {
+            saved.setVersion(4L);
+            return null;
+        }).when(accountRepository).flush();
+
+        accountService.saveAccount(account);
+        accountService.deleteAccount(2L);
+        verify(accountVersionTable, never()).updated(any(), any());
+        verify(accountVersionTable, never()).deleted(any());
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        verify(accountVersionTable).updated(1L, 4L);
+        verify(accountVersionTable).deleted(2L);
+    }
 }
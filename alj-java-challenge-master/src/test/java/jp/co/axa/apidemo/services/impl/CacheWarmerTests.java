@@ -0,0 +1,75 @@
+package jp.co.axa.apidemo.services.impl;
+
+import jp.co.axa.apidemo.cache.CachedAccount;
+import jp.co.axa.apidemo.cache.CachedEmployee;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(CacheWarmer.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = { "cache.preload.enabled=true",
+                                   "cache.preload.batch-size=2",
+                                   "cache.persistent.enabled=true",
+                                   "cache.persistent.data-version-file=target/cache-warmer-test/data-version.properties" })
+public class CacheWarmerTests {
+
+    @TestConfiguration
+    static class CacheManagerConfig {
+        @Bean
+        public CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager("employeeCache", "accountCache");
+        }
+    }
+
+    @Autowired
+    private CacheWarmer cacheWarmer;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    /**
+     * Pre-defined employees and accounts are preloaded on startup.
+     * On restart, the cache whose data was changed after shutdown is cleared and the other one is kept.
+     */
+    @Test
+    public void preloadAndDataVersionTest() {
+        Cache employeeCache = cacheManager.getCache("employeeCache");
+        Cache accountCache = cacheManager.getCache("accountCache");
+        assertThat(employeeCache.get(1L).get()).isInstanceOf(CachedEmployee.class);
+        assertThat(employeeCache.get(3L, CachedEmployee.class).getName()).isEqualTo("employee3");
+        assertThat(accountCache.get(6L).get()).isInstanceOf(CachedAccount.class);
+
+        cacheWarmer.stop();
+        Employee employee = employeeRepository.save(Employee.of("changed after shutdown", 100, "tech"));
+        try {
+            employeeCache.put(-1L, "stale");
+            accountCache.put(-1L, "kept");
+            cacheWarmer.start();
+
+            assertThat(employeeCache.get(-1L)).isNull();
+            assertThat(employeeCache.get(employee.getId(), CachedEmployee.class).getName()).isEqualTo("changed after shutdown");
+            assertThat(accountCache.get(-1L).get()).isEqualTo("kept");
+        } finally {
+            employeeRepository.delete(employee);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package jp.co.axa.apidemo.services.impl;
+
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jp.co.axa.apidemo.dto.DepartmentSalaryStats;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class DepartmentSalaryAggregatorTests {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+    @InjectMocks
+    private DepartmentSalaryAggregator aggregator;
+
+    /**
+     * Statistics are updated by deltas after initial load from DB
+     */
+    @Test
+    public void applyDeltaTest() throws Exception {
+        when(employeeRepository.aggregateSalaryByDepartment()).thenReturn(
+            Arrays.asList(new DepartmentSalaryStats("tech", 2L, 300L, 100, 200)));
+        aggregator.reconcile();
+
+        aggregator.onEmployeeSaved(Employee.of("emp3", 400, "tech"));
+        aggregator.onEmployeeSaved(Employee.of("emp4", 50, "sales"));
+
+        List<DepartmentSalaryStats> statistics = aggregator.getStatistics();
+        assertThat(statistics.size()).isEqualTo(2);
+        assertThat(statistics.get(0).getDepartment()).isEqualTo("sales");
+        DepartmentSalaryStats tech = statistics.get(1);
+        assertThat(tech.getCount()).isEqualTo(3);
+        assertThat(tech.getSum()).isEqualTo(700);
+        assertThat(tech.getMax()).isEqualTo(400);
+        assertThat(tech.getAverage()).isEqualTo(700.0 / 3);
+    }
+
+
+    /**
+     * Min/max of department is reloaded from DB when min or max employee is removed
+     */
+    @Test
+    public void reloadMinMaxOnRemoveTest() throws Exception {
+        when(employeeRepository.aggregateSalaryByDepartment()).thenReturn(Collections.emptyList());
+        aggregator.reconcile();
+        aggregator.onEmployeeSaved(Employee.of("emp1", 100, "tech"));
+        aggregator.onEmployeeSaved(Employee.of("emp2", 200, "tech"));
+        when(employeeRepository.aggregateSalaryOfDepartment("tech")).thenReturn(
+            Arrays.asList(new DepartmentSalaryStats("tech", 1L, 100L, 100, 100)));
+
+        aggregator.onEmployeeDeleted(Employee.of("emp2", 200, "tech"));
+
+        DepartmentSalaryStats tech = aggregator.getStatistics().get(0);
+        assertThat(tech.getCount()).isEqualTo(1);
+        assertThat(tech.getMax()).isEqualTo(100);
+    }
+}
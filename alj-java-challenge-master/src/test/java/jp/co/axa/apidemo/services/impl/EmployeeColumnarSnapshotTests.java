@@ -0,0 +1,49 @@
+package jp.co.axa.apidemo.services.impl;
+
+import java.util.Arrays;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(EmployeeColumnarSnapshot.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmployeeColumnarSnapshotTests {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private EmployeeColumnarSnapshot snapshot;
+
+    /**
+     * Range and percentile queries on snapshot built from DB (pre-defined employees are 100/80/110)
+     */
+    @Test
+    public void rangeAndPercentileTest() throws Exception {
+        Employee employee = employeeRepository.save(Employee.of("snapshot", 95, "technology"));
+        try {
+            snapshot.refresh();
+
+            assertThat(snapshot.countBySalaryRange(90, 110, null)).isEqualTo(3);
+            assertThat(snapshot.countBySalaryRange(90, 110, "technology")).isEqualTo(2);
+            assertThat(snapshot.countBySalaryRange(90, 110, "unknown")).isEqualTo(0);
+            assertThat(snapshot.findIdsBySalaryRange(90, 100, "technology", 10)).containsExactly(1L, employee.getId());
+
+            assertThat(snapshot.salaryAtPercentile(50, null)).isEqualTo(95);
+            assertThat(snapshot.salaryAtPercentile(100, "technology")).isEqualTo(100);
+        } finally {
+            employeeRepository.delete(employee);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package jp.co.axa.apidemo.services.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jp.co.axa.apidemo.dto.EmployeeNameMatch;
+import jp.co.axa.apidemo.entities.Employee;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(EmployeeNameIndex.class)
+public class EmployeeNameIndexTests {
+
+    @Autowired
+    private EmployeeNameIndex nameIndex;
+
+    /**
+     * Prefix and fuzzy search on index built from DB (pre-defined employees are employee1/2/3),
+     * then kept up to date by change notifications.
+     */
+    @Test
+    public void searchTest() throws Exception {
+        nameIndex.build();
+
+        List<EmployeeNameMatch> prefix = nameIndex.search("Employee", 2);
+        assertThat(prefix).extracting(EmployeeNameMatch::getId).containsExactly(1L, 2L);
+        assertThat(prefix).extracting(EmployeeNameMatch::getScore).containsOnly(1.0);
+
+        Employee employee = Employee.of("Jonathan", 100, "sales");
+        employee.setId(100L);
+        nameIndex.onEmployeeSaved(employee);
+
+        // Typo : no prefix match, found by trigram similarity
+        List<EmployeeNameMatch> fuzzy = nameIndex.search("jonatan", 10);
+        assertThat(fuzzy).extracting(EmployeeNameMatch::getId).containsExactly(100L);
+        assertThat(fuzzy.get(0).getScore()).isLessThan(1.0);
+
+        Employee renamed = Employee.of("Alice", 100, "sales");
+        renamed.setId(100L);
+        nameIndex.onEmployeeUpdated(employee, renamed);
+        assertThat(nameIndex.search("jonatan", 10)).isEmpty();
+        assertThat(nameIndex.search("ali", 10)).extracting(EmployeeNameMatch::getId).containsExactly(100L);
+
+        nameIndex.onDepartmentDeleted("sales", Arrays.asList(3L, 100L));
+        assertThat(nameIndex.search("ali", 10)).isEmpty();
+        assertThat(nameIndex.search("employee", 10)).extracting(EmployeeNameMatch::getId).containsExactly(1L, 2L);
+    }
+
+    /**
+     * Fuzzy search after employees are added out of ID order and removed (postings are kept sorted)
+     */
+    @Test
+    public void fuzzySearchOrderTest() throws Exception {
+        nameIndex.build();
+        Employee deleted = null;
+        for (long id : new long[] {205L, 201L, 203L, 202L, 204L}) {
+            Employee employee = Employee.of(id % 2 == 0 ? "Margaret" : "Marguerite", 100, "sales");
+            employee.setId(id);
+            nameIndex.onEmployeeSaved(employee);
+            if (id == 203L) {
+                deleted = employee;
+            }
+        }
+        nameIndex.onEmployeeDeleted(deleted);
+
+        List<EmployeeNameMatch> fuzzy = nameIndex.search("margret", 10);
+        assertThat(fuzzy).extracting(EmployeeNameMatch::getId).containsExactly(202L, 204L, 201L, 205L);
+        assertThat(fuzzy.get(0).getScore()).isGreaterThan(fuzzy.get(2).getScore());
+    }
+}
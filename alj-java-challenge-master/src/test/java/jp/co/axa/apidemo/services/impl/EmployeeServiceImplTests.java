@@ -1,22 +1,36 @@
 package jp.co.axa.apidemo.services.impl;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import jp.co.axa.apidemo.dto.DepartmentSalaryStats;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.entities.EmployeeView;
 import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.NotFoundException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -24,6 +38,10 @@ public class EmployeeServiceImplTests {
 
     @Mock
     private EmployeeRepository employeeRepository;
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private Cache cache;
     @InjectMocks
     private EmployeeServiceImpl employeeService;
 
@@ -45,7 +63,7 @@ public class EmployeeServiceImplTests {
         List<Employee> employees = Arrays.asList(employee, employee);
         when(employeeRepository.findAll()).thenReturn(employees);
 
-        List<Employee> resEmployees = employeeService.retrieveEmployees();
+        List<EmployeeView> resEmployees = employeeService.retrieveEmployees();
 
         assertThat(resEmployees.size()).isEqualTo(employees.size());
     }
@@ -61,10 +79,34 @@ public class EmployeeServiceImplTests {
         employee.setId(employeeId);
         when(employeeRepository.findById(employeeId)).thenReturn( Optional.ofNullable(employee) );
 
-        Employee resEmployee = employeeService.getEmployee(employeeId);
+        EmployeeView resEmployee = employeeService.getEmployee(employeeId);
+
+        // compare on all variables on Employee instance (immutable copy is returned)
+        assertThat(resEmployee).isNotSameAs(employee);
+        assertThat(resEmployee).isEqualToComparingFieldByField(employee);
+    }
+
+
+    /**
+     * [getEmployee] missing employee test. Missing ID is answered from memory until it's saved
+     */
+    @Test
+    public void getMissingEmployeeTest() throws Exception {
+        when(employeeRepository.findById(100L)).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> employeeService.getEmployee(100L))
+                    .isInstanceOf(NotFoundException.class)
+                    .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+        }
+        verify(employeeRepository, times(1)).findById(100L);
 
-        // compare on all variables on Employee instance
-        assertThat(resEmployee).isEqualTo(employee);
+        Employee employee = getTestEmployee();
+        employee.setId(100L);
+        when(employeeRepository.save(employee)).thenReturn(employee);
+        when(employeeRepository.findById(100L)).thenReturn(Optional.of(employee));
+        employeeService.saveEmployee(employee);
+        assertThat(employeeService.getEmployee(100L).getName()).isEqualTo(employee.getName());
     }
 
 
@@ -82,15 +124,103 @@ public class EmployeeServiceImplTests {
     }
 
 
+    /**
+     * [saveEmployee] unit test with ID of existing employee. The save is notified as update of the stored employee,
+     * so department statistics move the employee instead of counting it twice
+     */
+    @Test
+    public void saveExistingEmployeeTest() throws Exception {
+        Employee stored = getTestEmployee();
+        stored.setId(1L);
+        stored.setVersion(0L);
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(employeeRepository.aggregateSalaryByDepartment()).thenReturn(
+            Collections.singletonList(new DepartmentSalaryStats("tech", 1L, 100L, 100, 100)));
+        DepartmentSalaryAggregator aggregator = new DepartmentSalaryAggregator();
+        ReflectionTestUtils.setField(aggregator, "employeeRepository", employeeRepository);
+        aggregator.reconcile();
+        ReflectionTestUtils.setField(employeeService, "changeListeners", Collections.singletonList(aggregator));
+
+        Employee employee = Employee.of("employee", 300, "sales");
+        employee.setId(1L);
+        when(employeeRepository.save(employee)).thenReturn(employee);
+        employeeService.saveEmployee(employee);
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        List<DepartmentSalaryStats> statistics = aggregator.getStatistics();
+        assertThat(statistics).extracting(DepartmentSalaryStats::getDepartment).containsExactly("sales");
+        assertThat(statistics.get(0).getCount()).isEqualTo(1);
+        assertThat(statistics.get(0).getSum()).isEqualTo(300);
+    }
+
+
+    /**
+     * [saveEmployees] unit test.
+     */
+    @Test
+    public void saveEmployeesTest() throws Exception {
+        List<Employee> employees = Arrays.asList(getTestEmployee(), getTestEmployee());
+
+        List<Employee> resEmployees = employeeService.saveEmployees(employees);
+
+        assertThat(resEmployees.size()).isEqualTo(employees.size());
+        verify(employeeRepository, times(2)).save(any(Employee.class));
+    }
+
+
+    /**
+     * [saveEmployees] unit test with JDBC batching disabled (batch_size=0)
+     */
+    @Test
+    public void saveEmployeesWithoutBatchTest() throws Exception {
+        ReflectionTestUtils.setField(employeeService, "jdbcBatchSize", 0);
+        List<Employee> employees = Arrays.asList(getTestEmployee(), getTestEmployee());
+
+        assertThat(employeeService.saveEmployees(employees).size()).isEqualTo(employees.size());
+    }
+
+
+    /**
+     * [saveEmployees] unit test. Existing employee (with ID) is not accepted as new employee
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void saveEmployeesWithIdTest() throws Exception {
+        Employee employee = getTestEmployee();
+        employee.setId(1L);
+
+        employeeService.saveEmployees(Arrays.asList(employee));
+    }
+
+
     /**
      * [deleteEmployee] unit test.
      */
     @Test
     public void deleteEmployeeTest() throws Exception {
         Long deleteEmployeeId = 1L;
+        Employee employee = getTestEmployee();
+        employee.setId(deleteEmployeeId);
+        when(employeeRepository.findById(deleteEmployeeId)).thenReturn(Optional.of(employee));
         doNothing().when(employeeRepository).deleteById(deleteEmployeeId);
         employeeService.deleteEmployee(deleteEmployeeId);
-        assertThat(true).isTrue();
+        verify(employeeRepository).deleteById(deleteEmployeeId);
+    }
+
+
+    /**
+     * [deleteEmployee], [updateEmployee] and [patchEmployee] throw NotFoundException for unknown ID
+     */
+    @Test
+    public void changeMissingEmployeeTest() throws Exception {
+        when(employeeRepository.findById(100L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> employeeService.deleteEmployee(100L)).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> employeeService.updateEmployee(100L, Employee.of("new", 200, "tech"), null))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> employeeService.patchEmployee(100L, Employee.of(null, 200, null), null))
+                .isInstanceOf(NotFoundException.class);
+        verify(employeeRepository, never()).deleteById(100L);
     }
 
 
@@ -106,4 +236,135 @@ public class EmployeeServiceImplTests {
 
         assertThat(resEmployee.getName()).isEqualTo(employee.getName());
     }
+
+
+    /**
+     * [patchEmployee] unit test. Only given fields are changed and the change is flushed
+     */
+    @Test
+    public void patchEmployeeTest() throws Exception {
+        Employee employee = getTestEmployee();
+        employee.setId(1L);
+        employee.setVersion(0L);
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(employee));
+
+        Employee changes = new Employee();
+        changes.setSalary(300);
+        Employee patched = employeeService.patchEmployee(1L, changes, 0L);
+
+        assertThat(patched.getSalary()).isEqualTo(300);
+        assertThat(patched.getName()).isEqualTo("employee");
+        verify(employeeRepository).flush();
+    }
+
+
+    /**
+     * [patchEmployee] unit test. Nothing is written (and no cache access) if values are the same
+     */
+    @Test
+    public void patchEmployeeNoChangeTest() throws Exception {
+        Employee employee = getTestEmployee();
+        employee.setId(1L);
+        employee.setVersion(0L);
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(employee));
+
+        Employee changes = new Employee();
+        changes.setSalary(100);
+        employeeService.patchEmployee(1L, changes, null);
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        verify(employeeRepository, never()).flush();
+        verify(cacheManager, never()).getCache(any());
+    }
+
+
+    /**
+     * [updateEmployee] unit test. Version in If-Match must be the current version
+     */
+    @Test(expected = OptimisticLockingFailureException.class)
+    public void updateEmployeeVersionConflictTest() throws Exception {
+        Employee employee = getTestEmployee();
+        employee.setId(1L);
+        employee.setVersion(2L);
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(employee));
+
+        employeeService.updateEmployee(1L, Employee.of("new", 200, "tech"), 1L);
+    }
+
+
+    /**
+     * [deleteEmployeesByDepartment] unit test. Deleted employees are evicted from cache
+     */
+    @Test
+    public void deleteEmployeesByDepartmentTest() throws Exception {
+        when(employeeRepository.findIdsByDepartment("tech")).thenReturn(Arrays.asList(1L, 2L));
+        when(employeeRepository.deleteByDepartment("tech")).thenReturn(2);
+        when(cacheManager.getCache("employeeCache")).thenReturn(cache);
+
+        int deleted = employeeService.deleteEmployeesByDepartment("tech");
+
+        assertThat(deleted).isEqualTo(2);
+
+        // cache is evicted after commit of test transaction
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        verify(cache).evict(1L);
+        verify(cache).evict(2L);
+        verify(cache, never()).clear();
+    }
+
+    /**
+     * [raiseSalaryByDepartment] unit test. If the UPDATE changed employees that were not selected
+     * (inserted in between), whole cache is cleared after commit
+     */
+    @Test
+    public void raiseSalaryByDepartmentWithInsertedEmployeeTest() throws Exception {
+        when(employeeRepository.findIdsByDepartment("tech")).thenReturn(Arrays.asList(1L, 2L));
+        when(employeeRepository.raiseSalaryByDepartment("tech", 10)).thenReturn(3);
+        when(cacheManager.getCache("employeeCache")).thenReturn(cache);
+
+        assertThat(employeeService.raiseSalaryByDepartment("tech", 10)).isEqualTo(3);
+        verify(cache, never()).clear();
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        verify(cache).evict(1L);
+        verify(cache).evict(2L);
+        verify(cache).clear();
+    }
+
+    /**
+     * [raiseSalaryByDepartment] unit test. Percent over the max, or raised salaries beyond integer range, are rejected
+     * before the UPDATE
+     */
+    @Test
+    public void raiseSalaryOutOfRangeTest() throws Exception {
+        when(employeeRepository.aggregateSalaryOfDepartment("tech")).thenReturn(
+            Collections.singletonList(new DepartmentSalaryStats("tech", 2L, 2_100_000_000L, 100, 2_000_000_000)));
+
+        assertThatThrownBy(() -> employeeService.raiseSalaryByDepartment("tech", EmployeeServiceImpl.MAX_RAISE_PERCENT + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> employeeService.raiseSalaryByDepartment("tech", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(employeeRepository, never()).raiseSalaryByDepartment(any(), any(Integer.class));
+    }
+
+    /**
+     * [deleteEmployee] evicts the employee after commit (not before), same as other writes
+     */
+    @Test
+    public void deleteEmployeeEvictAfterCommitTest() throws Exception {
+        when(cacheManager.getCache("employeeCache")).thenReturn(cache);
+        Employee employee = getTestEmployee();
+        employee.setId(1L);
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(employee));
+
+        employeeService.deleteEmployee(1L);
+        verify(cache, never()).evict(1L);
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        verify(cache).evict(1L);
+    }
 }
@@ -0,0 +1,85 @@
+package jp.co.axa.apidemo.services.impl;
+
+import jp.co.axa.apidemo.entities.RefreshToken;
+import jp.co.axa.apidemo.repositories.RefreshTokenRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(RefreshTokenServiceImpl.class)
+public class RefreshTokenServiceImplTests {
+
+    @Autowired
+    private RefreshTokenServiceImpl refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    /**
+     * Only hash of the token is stored
+     */
+    @Test
+    public void issueTest() {
+        RefreshToken issued = refreshTokenService.issue(1L);
+
+        assertThat(issued.getToken()).isNotEmpty();
+        RefreshToken stored = refreshTokenRepository.findById(issued.getId()).orElseThrow(RuntimeException::new);
+        assertThat(stored.getToken()).isNull();
+        assertThat(stored.getTokenHash()).hasSize(32);
+        assertThat(stored.getAccountId()).isEqualTo(1L);
+    }
+
+    /**
+     * Refresh returns a new token of the same family, and the old token can't be used again
+     */
+    @Test
+    public void refreshTest() {
+        RefreshToken issued = refreshTokenService.issue(1L);
+
+        RefreshToken refreshed = refreshTokenService.refresh(issued.getToken()).orElseThrow(RuntimeException::new);
+        assertThat(refreshed.getToken()).isNotEqualTo(issued.getToken());
+        assertThat(refreshed.getAccountId()).isEqualTo(1L);
+        assertThat(refreshed.getFamily()).isEqualTo(issued.getFamily());
+
+        assertThat(refreshTokenService.refresh("unknown")).isEmpty();
+    }
+
+    /**
+     * Reuse of a rotated token revokes the whole family (the latest token as well)
+     */
+    @Test
+    public void reuseTest() {
+        RefreshToken issued = refreshTokenService.issue(1L);
+        RefreshToken refreshed = refreshTokenService.refresh(issued.getToken()).orElseThrow(RuntimeException::new);
+        RefreshToken other = refreshTokenService.issue(1L);
+
+        assertThat(refreshTokenService.refresh(issued.getToken())).isEmpty();
+        assertThat(refreshTokenService.refresh(refreshed.getToken())).isEmpty();
+        // Other family (e.g. other device) is not revoked
+        assertThat(refreshTokenService.refresh(other.getToken())).isPresent();
+    }
+
+    /**
+     * Tokens of the account are revoked (tokens of other accounts are kept)
+     */
+    @Test
+    public void revokeAllTest() {
+        RefreshToken token1 = refreshTokenService.issue(1L);
+        RefreshToken token2 = refreshTokenService.issue(2L);
+
+        refreshTokenService.revokeAll(1L);
+
+        Optional<RefreshToken> refreshed1 = refreshTokenService.refresh(token1.getToken());
+        assertThat(refreshed1).isEmpty();
+        assertThat(refreshTokenService.refresh(token2.getToken())).isPresent();
+    }
+}